@@ -1,11 +1,31 @@
 package ac.h2;
 
+import ac.h2.codec.CacheCodec;
+import ac.h2.codec.CompressingCacheCodec;
+import ac.h2.codec.KryoCacheCodec;
+
 public class CacheConfiguration {
     public enum FallbackStrategy {
         REDIS_ONLY,
         DATABASE_ONLY,
         REDIS_THEN_DATABASE,
-        DATABASE_THEN_REDIS
+        DATABASE_THEN_REDIS,
+        /**
+         * Like {@code REDIS_THEN_DATABASE}, but a single-item read that Redis has not answered within the hedge
+         * delay (see {@link Builder#hedgedReads}) also starts on the database, and the first value found wins.
+         * Searches are not hedged.
+         */
+        REDIS_THEN_DATABASE_HEDGED
+    }
+
+    /**
+     * How {@link HierarchicalCacheService} keeps items: {@code BUCKETS} reads every lookup from Redis;
+     * {@code LOCAL_CACHED_MAP} also keeps hot items and key pointers in Redisson local cached maps, invalidated
+     * across nodes by Redisson, so repeated reads of a key skip the network.
+     */
+    public enum StorageMode {
+        BUCKETS,
+        LOCAL_CACHED_MAP
     }
 
     private final FallbackStrategy globalFallbackStrategy;
@@ -21,6 +41,30 @@ public class CacheConfiguration {
     private final String databaseUsername;
     private final String databasePassword;
     private final long databaseCacheTtlMillis;
+    private final long databasePurgeIntervalMillis;
+    private final int databasePurgeChunkSize;
+    private final int databasePurgeMaxChunksPerRun;
+    private final boolean databasePartitioned;
+    private final CacheCodec codec;
+    private final long clusterLockWaitMillis;
+    private final long clusterLockLeaseMillis;
+    private final double earlyRefreshBeta;
+    private final long localRefreshAfterWriteMillis;
+    private final int localRefreshThreads;
+    private final String invalidationTopic;
+    private final StorageMode storageMode;
+    private final int localCachedMapSize;
+    private final long localCachedMapTtlMillis;
+    private final long invalidationBatchWindowMillis;
+    private final int writeBehindCapacity;
+    private final int writeBehindBatchSize;
+    private final long writeBehindFlushIntervalMillis;
+    private final double hedgePercentile;
+    private final long hedgeInitialDelayMillis;
+    private final int hedgeThreads;
+    private final double circuitBreakerFailureRateThreshold;
+    private final long circuitBreakerSlowCallMillis;
+    private final long circuitBreakerOpenMillis;
 
     public static class Builder {
         private FallbackStrategy globalFallbackStrategy = FallbackStrategy.REDIS_THEN_DATABASE;
@@ -36,6 +80,32 @@ public class CacheConfiguration {
         private String databaseUsername;
         private String databasePassword;
         private long databaseCacheTtlMillis = 3600000L; // 1 hour
+        private long databasePurgeIntervalMillis = 0L;
+        private int databasePurgeChunkSize = ExpiredEntryPurger.DEFAULT_CHUNK_SIZE;
+        private int databasePurgeMaxChunksPerRun = ExpiredEntryPurger.DEFAULT_MAX_CHUNKS_PER_RUN;
+        private boolean databasePartitioned;
+        private CacheCodec codec;
+        private CompressingCacheCodec.Algorithm compressionAlgorithm;
+        private int compressionThresholdBytes = CompressingCacheCodec.DEFAULT_THRESHOLD_BYTES;
+        private long clusterLockWaitMillis;
+        private long clusterLockLeaseMillis;
+        private double earlyRefreshBeta;
+        private long localRefreshAfterWriteMillis;
+        private int localRefreshThreads;
+        private String invalidationTopic;
+        private long invalidationBatchWindowMillis = InvalidationBus.DEFAULT_BATCH_WINDOW_MILLIS;
+        private StorageMode storageMode = StorageMode.BUCKETS;
+        private int localCachedMapSize;
+        private long localCachedMapTtlMillis;
+        private int writeBehindCapacity;
+        private int writeBehindBatchSize = WriteBehindQueue.DEFAULT_MAX_BATCH_SIZE;
+        private long writeBehindFlushIntervalMillis = WriteBehindQueue.DEFAULT_FLUSH_INTERVAL_MILLIS;
+        private double hedgePercentile = 95.0;
+        private long hedgeInitialDelayMillis = 20L;
+        private int hedgeThreads = 16;
+        private double circuitBreakerFailureRateThreshold = CircuitBreaker.DEFAULT_FAILURE_RATE_THRESHOLD;
+        private long circuitBreakerSlowCallMillis = CircuitBreaker.DEFAULT_SLOW_CALL_MILLIS;
+        private long circuitBreakerOpenMillis = CircuitBreaker.DEFAULT_OPEN_MILLIS;
 
         public Builder fallbackStrategy(FallbackStrategy strategy) {
             this.globalFallbackStrategy = strategy;
@@ -102,6 +172,150 @@ public class CacheConfiguration {
             return this;
         }
 
+        /**
+         * Deletes expired database rows in the background every minute, 1000 rows per transaction and at most 100
+         * transactions per run. Off by default, so expired rows are only filtered out by lookups. Starting it adds
+         * an index on {@code expires_at} to existing tables; see {@link DatabaseCacheProvider#startPurging}.
+         */
+        public Builder enableDatabasePurge(boolean enable) {
+            this.databasePurgeIntervalMillis = enable ? ExpiredEntryPurger.DEFAULT_INTERVAL_MILLIS : 0L;
+            return this;
+        }
+
+        /**
+         * Same as {@link #enableDatabasePurge}, but every {@code intervalMillis}, {@code chunkSize} rows per
+         * transaction and at most {@code maxChunksPerRun} transactions per run; an interval of 0 switches it off.
+         */
+        public Builder databasePurge(long intervalMillis, int chunkSize, int maxChunksPerRun) {
+            this.databasePurgeIntervalMillis = intervalMillis;
+            this.databasePurgeChunkSize = chunkSize;
+            this.databasePurgeMaxChunksPerRun = maxChunksPerRun;
+            return this;
+        }
+
+        /**
+         * Creates the database tables interval-partitioned by expiry hour, so the purge drops whole expired
+         * partitions instead of deleting rows. Needs Oracle 12c or later (interval-reference partitioning) and
+         * only applies to tables created by this run; existing tables keep their layout. Off by default.
+         */
+        public Builder databasePartitioned(boolean partitioned) {
+            this.databasePartitioned = partitioned;
+            return this;
+        }
+
+        /**
+         * Encoding of cached values in Redis and the database; defaults to {@link KryoCacheCodec}.
+         */
+        public Builder codec(CacheCodec codec) {
+            this.codec = codec;
+            return this;
+        }
+
+        /**
+         * Compresses encoded values of at least {@code thresholdBytes} in Redis and the database, on top of
+         * whichever {@link #codec(CacheCodec)} is configured.
+         */
+        public Builder compression(CompressingCacheCodec.Algorithm algorithm, int thresholdBytes) {
+            this.compressionAlgorithm = algorithm;
+            this.compressionThresholdBytes = thresholdBytes;
+            return this;
+        }
+
+        /**
+         * Lets only one node in the cluster run a {@code getOrCompute} supplier for a key at a time, through a
+         * Redis lock held for at most {@code leaseMillis}. Other nodes wait up to {@code waitMillis} for the
+         * result before computing it themselves. Off by default; in-process coalescing is always on.
+         */
+        public Builder clusterSingleFlight(long waitMillis, long leaseMillis) {
+            this.clusterLockWaitMillis = waitMillis;
+            this.clusterLockLeaseMillis = leaseMillis;
+            return this;
+        }
+
+        /**
+         * Lets {@code getOrCompute} hits refresh a value in the background shortly before it expires, with a
+         * probability that rises as expiry nears and with how long the value took to compute (XFetch). 1.0 is
+         * the usual setting; larger values refresh earlier. Off (0) by default.
+         */
+        public Builder earlyRefresh(double beta) {
+            this.earlyRefreshBeta = beta;
+            return this;
+        }
+
+        /**
+         * Reloads local cache entries from Redis/the database in the background once they are older than
+         * {@code refreshAfterWriteMillis}, using at most {@code threads} threads, so hot keys are served from the
+         * local cache instead of paying a remote fetch when they expire. Should be shorter than the local TTL.
+         * Off by default.
+         */
+        public Builder localRefreshAhead(long refreshAfterWriteMillis, int threads) {
+            this.localRefreshAfterWriteMillis = refreshAfterWriteMillis;
+            this.localRefreshThreads = threads;
+            return this;
+        }
+
+        /**
+         * Broadcasts writes and invalidations to the local caches of the other nodes over a Redis pub/sub topic,
+         * batched per {@code batchWindowMillis}, so local TTLs can be long without serving replaced data.
+         * Requires the remote cache. Off by default.
+         */
+        public Builder invalidationBus(String topic, long batchWindowMillis) {
+            this.invalidationTopic = topic;
+            this.invalidationBatchWindowMillis = batchWindowMillis;
+            return this;
+        }
+
+        /**
+         * Switches {@link HierarchicalCacheService} to {@link StorageMode#LOCAL_CACHED_MAP}: up to
+         * {@code cacheSize} items and key pointers are kept in-process for at most {@code timeToLiveMillis},
+         * and Redisson keeps the copies of all nodes coherent.
+         */
+        public Builder localCachedStorage(int cacheSize, long timeToLiveMillis) {
+            this.storageMode = StorageMode.LOCAL_CACHED_MAP;
+            this.localCachedMapSize = cacheSize;
+            this.localCachedMapTtlMillis = timeToLiveMillis;
+            return this;
+        }
+
+        /**
+         * Makes {@link TransparentHierarchicalCacheService} puts return once the local cache is updated, and
+         * writes them to Redis and the database in the background, in batches of up to {@code batchSize} at
+         * least every {@code flushIntervalMillis}. Repeated puts of a key before it is flushed are written once;
+         * puts block once {@code capacity} keys are waiting. Pending writes are flushed on shutdown. Off by
+         * default.
+         */
+        public Builder writeBehind(int capacity, int batchSize, long flushIntervalMillis) {
+            this.writeBehindCapacity = capacity;
+            this.writeBehindBatchSize = batchSize;
+            this.writeBehindFlushIntervalMillis = flushIntervalMillis;
+            return this;
+        }
+
+        /**
+         * Tunes {@link FallbackStrategy#REDIS_THEN_DATABASE_HEDGED}: the database read starts once a Redis read
+         * is slower than the {@code percentile}-th percentile of recent Redis reads ({@code initialDelayMillis}
+         * until enough have been seen), and at most {@code threads} reads run in parallel. Defaults to the 95th
+         * percentile, 20 ms and 16 threads.
+         */
+        public Builder hedgedReads(double percentile, long initialDelayMillis, int threads) {
+            this.hedgePercentile = percentile;
+            this.hedgeInitialDelayMillis = initialDelayMillis;
+            this.hedgeThreads = threads;
+            return this;
+        }
+
+        /**
+         * Tunes the per-tier circuit breakers of the transparent services: Redis or the database is skipped for
+         * {@code openMillis} once at least {@code failureRateThreshold} (0-1) of its recent calls failed or took
+         * longer than {@code slowCallMillis}. On by default (50%, 1 s, 5 s); a threshold of 0 switches it off.
+         */
+        public Builder circuitBreaker(double failureRateThreshold, long slowCallMillis, long openMillis) {
+            this.circuitBreakerFailureRateThreshold = failureRateThreshold;
+            this.circuitBreakerSlowCallMillis = slowCallMillis;
+            this.circuitBreakerOpenMillis = openMillis;
+            return this;
+        }
+
         public CacheConfiguration build() {
             return new CacheConfiguration(this);
         }
@@ -121,6 +335,33 @@ public class CacheConfiguration {
         this.databaseUsername = builder.databaseUsername;
         this.databasePassword = builder.databasePassword;
         this.databaseCacheTtlMillis = builder.databaseCacheTtlMillis;
+        this.databasePurgeIntervalMillis = builder.databasePurgeIntervalMillis;
+        this.databasePurgeChunkSize = builder.databasePurgeChunkSize;
+        this.databasePurgeMaxChunksPerRun = builder.databasePurgeMaxChunksPerRun;
+        this.databasePartitioned = builder.databasePartitioned;
+        CacheCodec baseCodec = builder.codec != null ? builder.codec : new KryoCacheCodec();
+        this.codec = builder.compressionAlgorithm != null
+                ? new CompressingCacheCodec(baseCodec, builder.compressionAlgorithm, builder.compressionThresholdBytes)
+                : baseCodec;
+        this.clusterLockWaitMillis = builder.clusterLockWaitMillis;
+        this.clusterLockLeaseMillis = builder.clusterLockLeaseMillis;
+        this.earlyRefreshBeta = builder.earlyRefreshBeta;
+        this.localRefreshAfterWriteMillis = builder.localRefreshAfterWriteMillis;
+        this.localRefreshThreads = builder.localRefreshThreads;
+        this.invalidationTopic = builder.invalidationTopic;
+        this.storageMode = builder.storageMode;
+        this.localCachedMapSize = builder.localCachedMapSize;
+        this.localCachedMapTtlMillis = builder.localCachedMapTtlMillis;
+        this.invalidationBatchWindowMillis = builder.invalidationBatchWindowMillis;
+        this.writeBehindCapacity = builder.writeBehindCapacity;
+        this.writeBehindBatchSize = builder.writeBehindBatchSize;
+        this.writeBehindFlushIntervalMillis = builder.writeBehindFlushIntervalMillis;
+        this.hedgePercentile = builder.hedgePercentile;
+        this.hedgeInitialDelayMillis = builder.hedgeInitialDelayMillis;
+        this.hedgeThreads = builder.hedgeThreads;
+        this.circuitBreakerFailureRateThreshold = builder.circuitBreakerFailureRateThreshold;
+        this.circuitBreakerSlowCallMillis = builder.circuitBreakerSlowCallMillis;
+        this.circuitBreakerOpenMillis = builder.circuitBreakerOpenMillis;
     }
 
     // Getters
@@ -137,6 +378,37 @@ public class CacheConfiguration {
     public String getDatabaseUsername() { return databaseUsername; }
     public String getDatabasePassword() { return databasePassword; }
     public long getDatabaseCacheTtlMillis() { return databaseCacheTtlMillis; }
+    public boolean isDatabasePurgeEnabled() { return databasePurgeIntervalMillis > 0; }
+    public long getDatabasePurgeIntervalMillis() { return databasePurgeIntervalMillis; }
+    public int getDatabasePurgeChunkSize() { return databasePurgeChunkSize; }
+    public int getDatabasePurgeMaxChunksPerRun() { return databasePurgeMaxChunksPerRun; }
+    public boolean isDatabasePartitioned() { return databasePartitioned; }
+    public CacheCodec getCodec() { return codec; }
+    public boolean isClusterSingleFlightEnabled() { return clusterLockLeaseMillis > 0; }
+    public long getClusterLockWaitMillis() { return clusterLockWaitMillis; }
+    public long getClusterLockLeaseMillis() { return clusterLockLeaseMillis; }
+    public boolean isEarlyRefreshEnabled() { return earlyRefreshBeta > 0; }
+    public double getEarlyRefreshBeta() { return earlyRefreshBeta; }
+    public boolean isLocalRefreshAheadEnabled() { return localRefreshAfterWriteMillis > 0 && localRefreshThreads > 0; }
+    public long getLocalRefreshAfterWriteMillis() { return localRefreshAfterWriteMillis; }
+    public int getLocalRefreshThreads() { return localRefreshThreads; }
+    public boolean isInvalidationBusEnabled() { return invalidationTopic != null; }
+    public String getInvalidationTopic() { return invalidationTopic; }
+    public long getInvalidationBatchWindowMillis() { return invalidationBatchWindowMillis; }
+    public StorageMode getStorageMode() { return storageMode; }
+    public int getLocalCachedMapSize() { return localCachedMapSize; }
+    public long getLocalCachedMapTtlMillis() { return localCachedMapTtlMillis; }
+    public boolean isWriteBehindEnabled() { return writeBehindCapacity > 0; }
+    public int getWriteBehindCapacity() { return writeBehindCapacity; }
+    public int getWriteBehindBatchSize() { return writeBehindBatchSize; }
+    public long getWriteBehindFlushIntervalMillis() { return writeBehindFlushIntervalMillis; }
+    public double getHedgePercentile() { return hedgePercentile; }
+    public long getHedgeInitialDelayMillis() { return hedgeInitialDelayMillis; }
+    public int getHedgeThreads() { return hedgeThreads; }
+    public boolean isCircuitBreakerEnabled() { return circuitBreakerFailureRateThreshold > 0; }
+    public double getCircuitBreakerFailureRateThreshold() { return circuitBreakerFailureRateThreshold; }
+    public long getCircuitBreakerSlowCallMillis() { return circuitBreakerSlowCallMillis; }
+    public long getCircuitBreakerOpenMillis() { return circuitBreakerOpenMillis; }
 
     public static Builder builder() {
         return new Builder();
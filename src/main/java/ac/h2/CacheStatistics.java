@@ -35,6 +35,12 @@ public class CacheStatistics {
     private final AtomicLong l3Puts = new AtomicLong(0);
     private final AtomicLong l3Errors = new AtomicLong(0);
 
+    // Circuit breakers of the remote tiers
+    private final AtomicLong l2ShortCircuits = new AtomicLong(0);
+    private final AtomicLong l3ShortCircuits = new AtomicLong(0);
+    private volatile CircuitBreaker.State l2CircuitState = CircuitBreaker.State.CLOSED;
+    private volatile CircuitBreaker.State l3CircuitState = CircuitBreaker.State.CLOSED;
+
     // Timing
     private volatile LocalDateTime createdAt = LocalDateTime.now();
     private volatile LocalDateTime lastResetAt = LocalDateTime.now();
@@ -235,6 +241,46 @@ public class CacheStatistics {
         return total == 0 ? 0.0 : (double) l3Hits.get() / total;
     }
 
+    // ==================== CIRCUIT BREAKERS ====================
+
+    /**
+     * Counts a Redis call skipped because its circuit breaker was open.
+     */
+    public void incrementL2ShortCircuits() {
+        l2ShortCircuits.incrementAndGet();
+    }
+
+    /**
+     * Counts a database call skipped because its circuit breaker was open.
+     */
+    public void incrementL3ShortCircuits() {
+        l3ShortCircuits.incrementAndGet();
+    }
+
+    public long getL2ShortCircuits() {
+        return l2ShortCircuits.get();
+    }
+
+    public long getL3ShortCircuits() {
+        return l3ShortCircuits.get();
+    }
+
+    public void setL2CircuitState(CircuitBreaker.State state) {
+        this.l2CircuitState = state;
+    }
+
+    public void setL3CircuitState(CircuitBreaker.State state) {
+        this.l3CircuitState = state;
+    }
+
+    public CircuitBreaker.State getL2CircuitState() {
+        return l2CircuitState;
+    }
+
+    public CircuitBreaker.State getL3CircuitState() {
+        return l3CircuitState;
+    }
+
     // ==================== KEY/VALUE TRACKING ====================
 
     public void incrementKeys() {
@@ -246,15 +292,11 @@ public class CacheStatistics {
     }
 
     public void decrementKeys() {
-        if (totalKeys.get() > 0) {
-            totalKeys.decrementAndGet();
-        }
+        totalKeys.getAndUpdate(count -> count > 0 ? count - 1 : 0);
     }
 
     public void decrementValues() {
-        if (totalValues.get() > 0) {
-            totalValues.decrementAndGet();
-        }
+        totalValues.getAndUpdate(count -> count > 0 ? count - 1 : 0);
     }
 
     public void incrementEvictions() {
@@ -325,6 +367,10 @@ public class CacheStatistics {
         l3Puts.set(0);
         l3Errors.set(0);
 
+        // Breaker states describe the tiers, not the counters, so they are kept
+        l2ShortCircuits.set(0);
+        l3ShortCircuits.set(0);
+
         lastResetAt = LocalDateTime.now();
     }
 
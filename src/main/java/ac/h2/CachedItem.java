@@ -1,8 +1,13 @@
 package ac.h2;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class CachedItem<T> implements Serializable {
     private final String stringKey;
@@ -11,6 +16,7 @@ public class CachedItem<T> implements Serializable {
     private final List<SearchParameter> parameters;
     private final long createdAt;
     private final long ttl;
+    private final long computeMillis;
 
     public CachedItem(String stringKey, Long longKey, T value, List<SearchParameter> parameters, long ttl) {
         this.stringKey = stringKey;
@@ -19,6 +25,35 @@ public class CachedItem<T> implements Serializable {
         this.parameters = new ArrayList<>(parameters);
         this.createdAt = System.currentTimeMillis();
         this.ttl = ttl;
+        this.computeMillis = 0;
+    }
+
+    /**
+     * Restores an item read back by a codec, keeping its original creation time.
+     */
+    public CachedItem(String stringKey, Long longKey, T value, List<SearchParameter> parameters, long ttl, long createdAt) {
+        this(stringKey, longKey, value, parameters, ttl, createdAt, 0);
+    }
+
+    /**
+     * @param computeMillis how long the value took to compute, used for early refresh; 0 if unknown
+     */
+    @JsonCreator
+    public CachedItem(
+            @JsonProperty("stringKey") String stringKey,
+            @JsonProperty("longKey") Long longKey,
+            @JsonProperty("value") T value,
+            @JsonProperty("parameters") List<SearchParameter> parameters,
+            @JsonProperty("ttl") long ttl,
+            @JsonProperty("createdAt") long createdAt,
+            @JsonProperty("computeMillis") long computeMillis) {
+        this.stringKey = stringKey;
+        this.longKey = longKey;
+        this.value = value;
+        this.parameters = new ArrayList<>(parameters);
+        this.createdAt = createdAt;
+        this.ttl = ttl;
+        this.computeMillis = computeMillis;
     }
 
     public String getStringKey() {
@@ -45,19 +80,48 @@ public class CachedItem<T> implements Serializable {
         return ttl;
     }
 
+    public long getComputeMillis() {
+        return computeMillis;
+    }
+
+    @JsonIgnore
     public boolean isExpired() {
         return ttl > 0 && (System.currentTimeMillis() - createdAt) > ttl;
     }
 
+    /**
+     * Probabilistic early expiration (XFetch): true when this read should recompute the value ahead of its
+     * expiry. The chance grows as expiry approaches and with the recorded compute time, so the readers of a
+     * hot key refresh it at different moments before it hard-expires. {@code beta} above 1 favours earlier
+     * refreshes, below 1 later ones. Items without a TTL or a recorded compute time never refresh early.
+     */
+    public boolean shouldRefreshEarly(double beta) {
+        return shouldRefreshEarly(beta, System.currentTimeMillis(), ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * @param random uniform in [0, 1)
+     */
+    boolean shouldRefreshEarly(double beta, long now, double random) {
+        if (ttl <= 0 || computeMillis <= 0 || beta <= 0) {
+            return false;
+        }
+        // -ln(random) is exponentially distributed with mean 1; 1 - random avoids ln(0)
+        double headStart = computeMillis * beta * -Math.log(1.0 - random);
+        return now + headStart >= createdAt + ttl;
+    }
+
     public String generateUniqueId() {
         return stringKey + (longKey != null ? ":" + longKey : "");
     }
 
     // Alias method for backward compatibility
+    @JsonIgnore
     public String getPrimaryKey() {
         return stringKey;
     }
 
+    @JsonIgnore
     public long getTtlMillis() {
         return ttl;
     }
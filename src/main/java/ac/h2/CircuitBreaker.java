@@ -0,0 +1,222 @@
+package ac.h2;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker around one remote tier (Redis or the database). While {@code CLOSED} every call goes through
+ * and its outcome is recorded; once enough of the recent calls failed or were slower than the slow-call
+ * threshold, the breaker opens and calls are refused without touching the tier, so callers fall through to the
+ * next tier immediately instead of each waiting out a client timeout. After the open period a few probe calls
+ * are let through ({@code HALF_OPEN}): if they all succeed the breaker closes, otherwise it opens again.
+ * <p>
+ * Callers must pair every permitted call with exactly one {@link #recordSuccess} or {@link #recordFailure}.
+ */
+public class CircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    public static final double DEFAULT_FAILURE_RATE_THRESHOLD = 0.5;
+    public static final long DEFAULT_SLOW_CALL_MILLIS = 1000L;
+    public static final long DEFAULT_OPEN_MILLIS = 5000L;
+
+    private static final int WINDOW_SIZE = 100;
+    private static final int MINIMUM_CALLS = 20;
+    private static final int HALF_OPEN_PROBES = 3;
+
+    private static final CircuitBreaker DISABLED = new CircuitBreaker(
+            "disabled", 1.0, Long.MAX_VALUE, 0L, state -> { }, System::nanoTime) {
+        @Override
+        public boolean allowRequest() {
+            return true;
+        }
+
+        @Override
+        public void recordSuccess(long elapsedNanos) {
+        }
+
+        @Override
+        public void recordSuccess() {
+        }
+
+        @Override
+        public void recordFailure() {
+        }
+    };
+
+    private final String name;
+    private final double failureRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final Consumer<State> stateListener;
+    private final LongSupplier clock;
+
+    // Guarded by this
+    private final boolean[] window = new boolean[WINDOW_SIZE];
+    private int windowCalls;
+    private int windowFailures;
+    private int windowPosition;
+    private State state = State.CLOSED;
+    private long stateSince;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    /**
+     * @param failureRateThreshold fraction of recent calls, in (0, 1], that must fail or be slow to open the breaker
+     * @param slowCallMillis       calls slower than this count as failures
+     * @param openMillis           how long calls are refused before probing the tier again
+     * @param stateListener        told about every state change, e.g. to publish it in {@link CacheStatistics}
+     */
+    public CircuitBreaker(String name, double failureRateThreshold, long slowCallMillis, long openMillis,
+                          Consumer<State> stateListener) {
+        this(name, failureRateThreshold, slowCallMillis, openMillis, stateListener, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, double failureRateThreshold, long slowCallMillis, long openMillis,
+                   Consumer<State> stateListener, LongSupplier clock) {
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1 || slowCallMillis <= 0 || openMillis < 0) {
+            throw new IllegalArgumentException("Failure rate threshold must be in (0, 1], the slow-call threshold positive and the open period not negative");
+        }
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = slowCallMillis == Long.MAX_VALUE ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.stateListener = stateListener;
+        this.clock = clock;
+    }
+
+    /**
+     * A breaker that always allows calls, for when circuit breaking is switched off.
+     */
+    public static CircuitBreaker disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * The breaker for one tier of a transparent service, as configured, or {@link #disabled()}.
+     */
+    public static CircuitBreaker forTier(String tier, CacheConfiguration config, Consumer<State> stateListener) {
+        if (!config.isCircuitBreakerEnabled()) {
+            return DISABLED;
+        }
+        return new CircuitBreaker(tier, config.getCircuitBreakerFailureRateThreshold(),
+                config.getCircuitBreakerSlowCallMillis(), config.getCircuitBreakerOpenMillis(), stateListener);
+    }
+
+    /**
+     * @return whether the tier should be called now; when false the caller should skip to the next tier
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && clock.getAsLong() - stateSince >= openNanos) {
+            transitionTo(State.HALF_OPEN);
+        } else if (state == State.HALF_OPEN && probesStarted >= HALF_OPEN_PROBES
+                && clock.getAsLong() - stateSince >= openNanos) {
+            // Probes that never reported back must not keep the breaker half-open forever
+            transitionTo(State.HALF_OPEN);
+        }
+
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && probesStarted < HALF_OPEN_PROBES) {
+            probesStarted++;
+            return true;
+        }
+        return false;
+    }
+
+    public void recordSuccess(long elapsedNanos) {
+        record(elapsedNanos <= slowCallNanos);
+    }
+
+    /**
+     * Records a success whose duration is not comparable to single calls, such as a batch write.
+     */
+    public void recordSuccess() {
+        record(true);
+    }
+
+    /**
+     * Records a failed call, unless the calling thread has been interrupted: a call cut short that way, such as
+     * a hedged read stopped during shutdown, says nothing about the tier.
+     */
+    public void recordFailure() {
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private synchronized void record(boolean success) {
+        switch (state) {
+            case CLOSED:
+                addToWindow(!success);
+                if (windowCalls >= MINIMUM_CALLS && windowFailures >= failureRateThreshold * windowCalls) {
+                    transitionTo(State.OPEN);
+                }
+                break;
+            case HALF_OPEN:
+                if (!success) {
+                    transitionTo(State.OPEN);
+                } else if (++probesSucceeded >= HALF_OPEN_PROBES) {
+                    transitionTo(State.CLOSED);
+                }
+                break;
+            case OPEN:
+                // A call that started before the breaker opened; its outcome no longer matters
+                break;
+        }
+    }
+
+    private void addToWindow(boolean failed) {
+        if (windowCalls == WINDOW_SIZE) {
+            if (window[windowPosition]) windowFailures--;
+        } else {
+            windowCalls++;
+        }
+        window[windowPosition] = failed;
+        if (failed) windowFailures++;
+        windowPosition = (windowPosition + 1) % WINDOW_SIZE;
+    }
+
+    // Listeners run under the lock so they observe state changes in order
+    private void transitionTo(State next) {
+        State previous = state;
+        state = next;
+        probesStarted = 0;
+        probesSucceeded = 0;
+        if (next == State.OPEN || next == State.HALF_OPEN) {
+            stateSince = clock.getAsLong();
+        } else if (next == State.CLOSED) {
+            windowCalls = 0;
+            windowFailures = 0;
+            windowPosition = 0;
+        }
+        if (previous != next) {
+            if (next == State.OPEN) {
+                logger.warn("Circuit breaker '{}' opened; calls are skipped for {} ms", name,
+                        TimeUnit.NANOSECONDS.toMillis(openNanos));
+            } else {
+                logger.info("Circuit breaker '{}' is now {}", name, next);
+            }
+            stateListener.accept(next);
+        }
+    }
+}
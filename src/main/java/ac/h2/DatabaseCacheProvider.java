@@ -1,20 +1,22 @@
 package ac.h2;
 
-import com.esotericsoftware.kryo.Kryo;
-import com.esotericsoftware.kryo.io.Input;
-import com.esotericsoftware.kryo.io.Output;
+import ac.h2.codec.CacheCodec;
+import ac.h2.codec.KryoCacheCodec;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import oracle.jdbc.OracleConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.sql.*;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class DatabaseCacheProvider<T> {
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseCacheProvider.class);
+
     // Updated table schema with NUMBER primary key and BLOB for binary data
     private static final String CREATE_CACHE_TABLE = """
     DECLARE
@@ -57,7 +59,7 @@ public class DatabaseCacheProvider<T> {
         IF table_exists = 0 THEN
             EXECUTE IMMEDIATE 'CREATE TABLE cache_param_index (
                 id NUMBER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-                param_pattern VARCHAR2(1000),
+                param_pattern NUMBER(19),
                 unique_string_id VARCHAR2(500),
                 created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                 CONSTRAINT uk_param_unique UNIQUE (param_pattern, unique_string_id)
@@ -69,6 +71,126 @@ public class DatabaseCacheProvider<T> {
     END;
     """;
 
+    // Partitioned variant: one interval partition per expiry hour, so expired rows are removed by dropping
+    // partitions. Rows without a TTL map to the initial range partition, which is never dropped.
+    private static final String CREATE_PARTITIONED_CACHE_TABLE = """
+    DECLARE
+        table_exists NUMBER;
+    BEGIN
+        SELECT COUNT(*) INTO table_exists
+        FROM user_tables
+        WHERE table_name = 'HIERARCHICAL_CACHE';
+
+        IF table_exists = 0 THEN
+            EXECUTE IMMEDIATE 'CREATE TABLE hierarchical_cache (
+                id NUMBER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                unique_string_id VARCHAR2(500) UNIQUE NOT NULL,
+                string_key VARCHAR2(200),
+                long_key NUMBER(19),
+                value_data BLOB,
+                value_type VARCHAR2(200),
+                parameters CLOB,
+                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                ttl_millis NUMBER(19),
+                expires_at TIMESTAMP,
+                partition_expires_at TIMESTAMP GENERATED ALWAYS AS
+                    (NVL(expires_at, TIMESTAMP ''1970-01-01 00:00:00'')) VIRTUAL
+            )
+            PARTITION BY RANGE (partition_expires_at) INTERVAL (NUMTODSINTERVAL(1, ''HOUR''))
+            (PARTITION p_no_ttl VALUES LESS THAN (TIMESTAMP ''2000-01-01 00:00:00''))
+            ENABLE ROW MOVEMENT';
+
+            EXECUTE IMMEDIATE 'CREATE INDEX idx_cache_string_key ON hierarchical_cache(string_key)';
+            EXECUTE IMMEDIATE 'CREATE INDEX idx_cache_long_key ON hierarchical_cache(long_key)';
+        END IF;
+    END;
+    """;
+
+    // Reference-partitioned on the cache row, so its partitions are dropped along with the cache partitions
+    private static final String CREATE_PARTITIONED_PARAM_INDEX_TABLE = """
+    DECLARE
+        table_exists NUMBER;
+    BEGIN
+        SELECT COUNT(*) INTO table_exists
+        FROM user_tables
+        WHERE table_name = 'CACHE_PARAM_INDEX';
+
+        IF table_exists = 0 THEN
+            EXECUTE IMMEDIATE 'CREATE TABLE cache_param_index (
+                id NUMBER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                param_pattern NUMBER(19),
+                unique_string_id VARCHAR2(500) NOT NULL,
+                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                CONSTRAINT uk_param_unique UNIQUE (param_pattern, unique_string_id),
+                CONSTRAINT fk_param_cache FOREIGN KEY (unique_string_id)
+                    REFERENCES hierarchical_cache (unique_string_id)
+            )
+            PARTITION BY REFERENCE (fk_param_cache)
+            ENABLE ROW MOVEMENT';
+
+            EXECUTE IMMEDIATE 'CREATE INDEX idx_param_pattern ON cache_param_index(param_pattern)';
+            EXECUTE IMMEDIATE 'CREATE INDEX idx_param_unique_id ON cache_param_index(unique_string_id)';
+        END IF;
+    END;
+    """;
+
+    // Tables created before pattern ids hold VARCHAR2 string patterns that no lookup can match any more. The
+    // cache is emptied rather than converted, since the old patterns cannot be mapped to ids.
+    private static final String MIGRATE_PARAM_PATTERN_COLUMN = """
+    DECLARE
+        column_type VARCHAR2(128);
+        migrated NUMBER := 0;
+    BEGIN
+        SELECT data_type INTO column_type
+        FROM user_tab_columns
+        WHERE table_name = 'CACHE_PARAM_INDEX' AND column_name = 'PARAM_PATTERN';
+
+        IF column_type <> 'NUMBER' THEN
+            EXECUTE IMMEDIATE 'TRUNCATE TABLE cache_param_index';
+            EXECUTE IMMEDIATE 'TRUNCATE TABLE hierarchical_cache';
+            EXECUTE IMMEDIATE 'ALTER TABLE cache_param_index MODIFY (param_pattern NUMBER(19))';
+            migrated := 1;
+        END IF;
+
+        ? := migrated;
+    END;
+    """;
+
+    // Lets the purge find expired rows without a full scan. Built ONLINE so puts and invalidations of an existing
+    // table are not blocked while it is built; returns 1 when built, 2 when the edition cannot build online
+    private static final String CREATE_EXPIRES_AT_INDEX = """
+    DECLARE
+        index_exists NUMBER;
+        table_partitioned VARCHAR2(3);
+        outcome NUMBER := 0;
+    BEGIN
+        SELECT partitioned INTO table_partitioned
+        FROM user_tables
+        WHERE table_name = 'HIERARCHICAL_CACHE';
+
+        SELECT COUNT(*) INTO index_exists
+        FROM user_ind_columns
+        WHERE table_name = 'HIERARCHICAL_CACHE' AND column_name = 'EXPIRES_AT';
+
+        IF table_partitioned = 'NO' AND index_exists = 0 THEN
+            BEGIN
+                EXECUTE IMMEDIATE 'CREATE INDEX idx_cache_expires_at ON hierarchical_cache(expires_at) ONLINE';
+                outcome := 1;
+            EXCEPTION
+                WHEN OTHERS THEN
+                    -- ORA-00439: feature not enabled (online index builds need Enterprise Edition)
+                    IF SQLCODE = -439 THEN
+                        outcome := 2;
+                    ELSE
+                        RAISE;
+                    END IF;
+            END;
+        END IF;
+
+        ? := outcome;
+    END;
+    """;
+
     private static final String INSERT_CACHE_ITEM = """
         MERGE INTO hierarchical_cache hc
         USING (SELECT ? as unique_string_id FROM dual) src
@@ -97,22 +219,100 @@ public class DatabaseCacheProvider<T> {
         WHERE long_key = ? AND (expires_at IS NULL OR expires_at > CURRENT_TIMESTAMP)
         """;
 
+    // Keys are bound as one SQL array, so there is one statement text per key column whatever the key count
+    private static final String SELECT_ALL_BY_KEY_COLUMN = """
+        SELECT %1$s, value_data FROM hierarchical_cache
+        WHERE %1$s IN (SELECT /*+ CARDINALITY(wanted 100) */ column_value FROM TABLE(?) wanted)
+        AND (expires_at IS NULL OR expires_at > CURRENT_TIMESTAMP)
+        """;
+
+    private static final String SELECT_ALL_BY_STRING_KEY = SELECT_ALL_BY_KEY_COLUMN.formatted("string_key");
+    private static final String SELECT_ALL_BY_LONG_KEY = SELECT_ALL_BY_KEY_COLUMN.formatted("long_key");
+    private static final String STRING_ARRAY_TYPE = "SYS.ODCIVARCHAR2LIST";
+
+    // One statement and round trip for any number of patterns: they are bound as a single SQL array, and the
+    // semi-join returns each live item once however many of its patterns match. The hint replaces the
+    // optimizer's default guess of thousands of rows for a bound collection.
+    private static final String SELECT_BY_PATTERNS = """
+        SELECT hc.value_data FROM hierarchical_cache hc
+        WHERE hc.unique_string_id IN (
+            SELECT /*+ CARDINALITY(patterns 16) */ pi.unique_string_id
+            FROM TABLE(?) patterns
+            JOIN cache_param_index pi ON pi.param_pattern = patterns.column_value
+        )
+        AND (hc.expires_at IS NULL OR hc.expires_at > CURRENT_TIMESTAMP)
+        """;
+
+    private static final String NUMBER_ARRAY_TYPE = "SYS.ODCINUMBERLIST";
+
+    // Rows per round trip in stream(); the driver otherwise fetches only 10 at a time
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+
+    // Capacity of the SYS.ODCI*LIST varrays
+    private static final int MAX_ARRAY_SIZE = 32767;
+
     private static final String DELETE_BY_UNIQUE_ID = "DELETE FROM hierarchical_cache WHERE unique_string_id = ?";
     private static final String DELETE_PARAM_BY_UNIQUE_ID = "DELETE FROM cache_param_index WHERE unique_string_id = ?";
+    private static final String INSERT_PARAM_PATTERN =
+            "INSERT INTO cache_param_index (param_pattern, unique_string_id) VALUES (?, ?)";
+    private static final String INSERT_PARAM_PATTERN_IF_ABSENT =
+            "INSERT /*+ IGNORE_ROW_ON_DUPKEY_INDEX(cache_param_index, uk_param_unique) */ " +
+            "INTO cache_param_index (param_pattern, unique_string_id) VALUES (?, ?)";
     private static final String DELETE_ALL_CACHE = "DELETE FROM hierarchical_cache";
     private static final String DELETE_ALL_PARAMS = "DELETE FROM cache_param_index";
 
     private final HikariDataSource dataSource;
-    private final ThreadLocal<Kryo> kryoThreadLocal;
-    private final Map<Class<?>, Boolean> registeredClasses = new ConcurrentHashMap<>();
+    private final CacheCodec codec;
+    private final SingleFlight<String> flights = new SingleFlight<>();
+    private final SingleFlight<String> searchFlights = new SingleFlight<>();
     private final long defaultTtlMillis;
+    private final int batchSize;
     private final CacheStatistics statistics;
+    private final HierarchicalPatternGenerator patternGenerator = HierarchicalPatternGenerator.shared();
+    private volatile ExpiredEntryPurger purger;
 
     public DatabaseCacheProvider(String jdbcUrl, String username, String password) {
         this(jdbcUrl, username, password, 300000L); // 5 minutes default TTL
     }
 
     public DatabaseCacheProvider(String jdbcUrl, String username, String password, long defaultTtlMillis) {
+        this(jdbcUrl, username, password, defaultTtlMillis, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param batchSize rows sent per JDBC batch by {@link #put} and {@link #putAll}
+     */
+    public DatabaseCacheProvider(String jdbcUrl, String username, String password, long defaultTtlMillis, int batchSize) {
+        this(jdbcUrl, username, password, defaultTtlMillis, batchSize, new KryoCacheCodec());
+    }
+
+    public DatabaseCacheProvider(CacheConfiguration configuration) {
+        this(configuration.getDatabaseJdbcUrl(), configuration.getDatabaseUsername(), configuration.getDatabasePassword(),
+                configuration.getDatabaseCacheTtlMillis(), DEFAULT_BATCH_SIZE, configuration.getCodec(),
+                configuration.isDatabasePartitioned());
+        if (configuration.isDatabasePurgeEnabled()) {
+            startPurging(configuration.getDatabasePurgeIntervalMillis(), configuration.getDatabasePurgeChunkSize(),
+                    configuration.getDatabasePurgeMaxChunksPerRun());
+        }
+    }
+
+    public DatabaseCacheProvider(String jdbcUrl, String username, String password, long defaultTtlMillis, int batchSize,
+                                 CacheCodec codec) {
+        this(jdbcUrl, username, password, defaultTtlMillis, batchSize, codec, false);
+    }
+
+    /**
+     * @param partitioned create missing tables partitioned by expiry hour; see
+     *                    {@link CacheConfiguration.Builder#databasePartitioned}
+     */
+    public DatabaseCacheProvider(String jdbcUrl, String username, String password, long defaultTtlMillis, int batchSize,
+                                 CacheCodec codec, boolean partitioned) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+
         // Initialize HikariCP
         HikariConfig config = new HikariConfig();
         config.setJdbcUrl(jdbcUrl);
@@ -126,75 +326,52 @@ public class DatabaseCacheProvider<T> {
 
         this.dataSource = new HikariDataSource(config);
         this.defaultTtlMillis = defaultTtlMillis;
+        this.batchSize = batchSize;
+        this.codec = codec;
         this.statistics = new CacheStatistics();
 
-        // Initialize Kryo ThreadLocal
-        this.kryoThreadLocal = ThreadLocal.withInitial(() -> {
-            Kryo kryo = new Kryo();
-            kryo.setReferences(true);
-            kryo.setRegistrationRequired(false);
-            // Pre-register common classes
-            kryo.register(String.class);
-            kryo.register(ArrayList.class);
-            kryo.register(HashMap.class);
-            kryo.register(SearchParameter.class);
-            kryo.register(CachedItem.class);
-            return kryo;
-        });
-
-        initializeTables();
+        initializeTables(partitioned);
     }
 
-    private void initializeTables() {
+    private void initializeTables(boolean partitioned) {
         try (Connection conn = dataSource.getConnection()) {
-            try (PreparedStatement stmt1 = conn.prepareStatement(CREATE_CACHE_TABLE);
-                 PreparedStatement stmt2 = conn.prepareStatement(CREATE_PARAM_INDEX_TABLE)) {
+            try (PreparedStatement stmt1 = conn.prepareStatement(partitioned ? CREATE_PARTITIONED_CACHE_TABLE : CREATE_CACHE_TABLE);
+                 PreparedStatement stmt2 = conn.prepareStatement(partitioned ? CREATE_PARTITIONED_PARAM_INDEX_TABLE : CREATE_PARAM_INDEX_TABLE)) {
                 stmt1.execute();
                 stmt2.execute();
+                migrateParamPatternColumn(conn);
             }
         } catch (SQLException e) {
             throw new RuntimeException("Failed to initialize database tables", e);
         }
     }
 
-    // ==================== SERIALIZATION METHODS ====================
-
-    private byte[] serializeValue(T value) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-             Output output = new Output(baos)) {
-
-            Kryo kryo = kryoThreadLocal.get();
-            Class<?> valueClass = value.getClass();
-            if (!registeredClasses.containsKey(valueClass)) {
-                kryo.register(valueClass);
-                registeredClasses.put(valueClass, true);
+    private static void migrateParamPatternColumn(Connection conn) throws SQLException {
+        try (CallableStatement stmt = conn.prepareCall(MIGRATE_PARAM_PATTERN_COLUMN)) {
+            stmt.registerOutParameter(1, Types.INTEGER);
+            stmt.execute();
+            if (stmt.getInt(1) == 1) {
+                logger.warn("cache_param_index.param_pattern held string patterns from an older version; "
+                        + "the database cache was emptied and the column changed to NUMBER(19)");
             }
+        }
+    }
 
-            kryo.writeObject(output, value);
-            output.flush();
-            return baos.toByteArray();
+    // ==================== SERIALIZATION METHODS ====================
 
+    private byte[] serializeValue(T value) {
+        try {
+            return codec.encode(value);
         } catch (Exception e) {
-            throw new RuntimeException("Failed to serialize value using Kryo", e);
+            throw new RuntimeException("Failed to serialize value using " + codec.name(), e);
         }
     }
 
     private T deserializeValue(byte[] data, Class<T> valueType) {
-        if (data == null) return null;
-
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(data);
-             Input input = new Input(bais)) {
-
-            Kryo kryo = kryoThreadLocal.get();
-            if (!registeredClasses.containsKey(valueType)) {
-                kryo.register(valueType);
-                registeredClasses.put(valueType, true);
-            }
-
-            return kryo.readObject(input, valueType);
-
+        try {
+            return codec.decode(data, valueType);
         } catch (Exception e) {
-            throw new RuntimeException("Failed to deserialize value using Kryo", e);
+            throw new RuntimeException("Failed to deserialize value using " + codec.name(), e);
         }
     }
 
@@ -217,94 +394,155 @@ public class DatabaseCacheProvider<T> {
             throw new IllegalArgumentException("Key, parameters, and value cannot be null");
         }
 
-        CachedItem<T> cachedItem = new CachedItem<>(key, id, value, parameters, ttlMillis);
-        String uniqueStringId = cachedItem.generateUniqueId();
+        writeItems(Collections.singletonList(new CachedItem<>(key, id, value, parameters, ttlMillis)),
+                "Failed to store item in database");
+    }
+
+    /**
+     * Upserts many items and their parameter patterns in one transaction, using one batched statement per
+     * table. When several items share a uniqueId the last one wins.
+     */
+    public void putAll(Collection<CachedItem<T>> items) {
+        if (items == null) {
+            throw new IllegalArgumentException("Items cannot be null");
+        }
+        if (items.isEmpty()) return;
+
+        Map<String, CachedItem<T>> itemsById = new LinkedHashMap<>();
+        for (CachedItem<T> item : items) {
+            if (item == null || item.getStringKey() == null || item.getParameters() == null || item.getValue() == null) {
+                throw new IllegalArgumentException("Key, parameters, and value cannot be null");
+            }
+            itemsById.put(item.generateUniqueId(), item);
+        }
+
+        writeItems(itemsById.values(), "Failed to store items in database");
+    }
 
+    private void writeItems(Collection<CachedItem<T>> items, String failureMessage) {
         try (Connection conn = dataSource.getConnection()) {
             conn.setAutoCommit(false);
 
             try {
-                // Serialize value and parameters
-                byte[] serializedValue = serializeValue(value);
-                byte[] serializedParameters = serializeParameters(parameters);
-                String parametersBase64 = Base64.getEncoder().encodeToString(serializedParameters);
-
-                // Insert/update main cache item
+                // Insert/update main cache items
                 try (PreparedStatement stmt = conn.prepareStatement(INSERT_CACHE_ITEM)) {
-                    // MERGE parameters
-                    stmt.setString(1, uniqueStringId);   // USING clause
-                    stmt.setString(2, key);              // WHEN MATCHED UPDATE
-                    if (id != null) {
-                        stmt.setLong(3, id);
-                    } else {
-                        stmt.setNull(3, Types.BIGINT);
-                    }
-                    stmt.setBytes(4, serializedValue);
-                    stmt.setString(5, value.getClass().getName());
-                    stmt.setString(6, parametersBase64);
-                    stmt.setLong(7, ttlMillis);
-                    stmt.setLong(8, ttlMillis);
-                    stmt.setLong(9, ttlMillis);
-
-                    // WHEN NOT MATCHED INSERT parameters
-                    stmt.setString(10, uniqueStringId);
-                    stmt.setString(11, key);
-                    if (id != null) {
-                        stmt.setLong(12, id);
-                    } else {
-                        stmt.setNull(12, Types.BIGINT);
+                    int pending = 0;
+                    for (CachedItem<T> item : items) {
+                        bindCacheItem(stmt, item);
+                        stmt.addBatch();
+                        if (++pending == batchSize) {
+                            stmt.executeBatch();
+                            pending = 0;
+                        }
                     }
-                    stmt.setBytes(13, serializedValue);
-                    stmt.setString(14, value.getClass().getName());
-                    stmt.setString(15, parametersBase64);
-                    stmt.setLong(16, ttlMillis);
-                    stmt.setLong(17, ttlMillis);
-                    stmt.setLong(18, ttlMillis);
-
-                    stmt.executeUpdate();
+                    if (pending > 0) stmt.executeBatch();
                 }
 
                 // Clean up old parameter indexes
                 try (PreparedStatement deleteStmt = conn.prepareStatement(DELETE_PARAM_BY_UNIQUE_ID)) {
-                    deleteStmt.setString(1, uniqueStringId);
-                    deleteStmt.executeUpdate();
+                    int pending = 0;
+                    for (CachedItem<T> item : items) {
+                        deleteStmt.setString(1, item.generateUniqueId());
+                        deleteStmt.addBatch();
+                        if (++pending == batchSize) {
+                            deleteStmt.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                    if (pending > 0) deleteStmt.executeBatch();
                 }
 
                 // Insert new parameter indexes
-                Set<String> patterns = generateHierarchicalPatterns(parameters);
-                for (String pattern : patterns) {
-                    try (PreparedStatement stmt = conn.prepareStatement(
-                            "INSERT INTO cache_param_index (param_pattern, unique_string_id) VALUES (?, ?)")) {
-                        stmt.setString(1, pattern);
-                        stmt.setString(2, uniqueStringId);
-                        stmt.executeUpdate();
+                try (PreparedStatement stmt = conn.prepareStatement(INSERT_PARAM_PATTERN)) {
+                    int pending = 0;
+                    for (CachedItem<T> item : items) {
+                        pending = addPatternBatch(stmt, item.generateUniqueId(), item.getParameters(), pending);
                     }
+                    if (pending > 0) stmt.executeBatch();
                 }
 
                 conn.commit();
-                statistics.incrementValues();
-                statistics.incrementKeys();
+                for (int i = 0; i < items.size(); i++) {
+                    statistics.incrementValues();
+                    statistics.incrementKeys();
+                }
 
             } catch (Exception e) {
                 conn.rollback();
                 throw e;
             }
         } catch (Exception e) {
-            throw new RuntimeException("Failed to store item in database", e);
+            throw new RuntimeException(failureMessage, e);
         }
     }
 
-    private byte[] serializeParameters(List<SearchParameter> parameters) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-             Output output = new Output(baos)) {
+    private void bindCacheItem(PreparedStatement stmt, CachedItem<T> item) throws SQLException {
+        String uniqueStringId = item.generateUniqueId();
+        String key = item.getStringKey();
+        Long id = item.getLongKey();
+        T value = item.getValue();
+        long ttlMillis = item.getTtl();
+
+        // Serialize value and parameters
+        byte[] serializedValue = serializeValue(value);
+        byte[] serializedParameters = serializeParameters(item.getParameters());
+        String parametersBase64 = Base64.getEncoder().encodeToString(serializedParameters);
+
+        // MERGE parameters
+        stmt.setString(1, uniqueStringId);   // USING clause
+        stmt.setString(2, key);              // WHEN MATCHED UPDATE
+        if (id != null) {
+            stmt.setLong(3, id);
+        } else {
+            stmt.setNull(3, Types.BIGINT);
+        }
+        stmt.setBytes(4, serializedValue);
+        stmt.setString(5, value.getClass().getName());
+        stmt.setString(6, parametersBase64);
+        stmt.setLong(7, ttlMillis);
+        stmt.setLong(8, ttlMillis);
+        stmt.setLong(9, ttlMillis);
+
+        // WHEN NOT MATCHED INSERT parameters
+        stmt.setString(10, uniqueStringId);
+        stmt.setString(11, key);
+        if (id != null) {
+            stmt.setLong(12, id);
+        } else {
+            stmt.setNull(12, Types.BIGINT);
+        }
+        stmt.setBytes(13, serializedValue);
+        stmt.setString(14, value.getClass().getName());
+        stmt.setString(15, parametersBase64);
+        stmt.setLong(16, ttlMillis);
+        stmt.setLong(17, ttlMillis);
+        stmt.setLong(18, ttlMillis);
+    }
 
-            Kryo kryo = kryoThreadLocal.get();
-            kryo.writeObject(output, parameters);
-            output.flush();
-            return baos.toByteArray();
+    /**
+     * Adds one pattern row per hierarchical pattern to the batch, flushing every {@code batchSize} rows.
+     *
+     * @return rows still pending in the batch
+     */
+    private int addPatternBatch(PreparedStatement stmt, String uniqueStringId, List<SearchParameter> parameters,
+                                int pending) throws SQLException {
+        for (long pattern : patternGenerator.hierarchicalPatterns(parameters)) {
+            stmt.setLong(1, pattern);
+            stmt.setString(2, uniqueStringId);
+            stmt.addBatch();
+            if (++pending == batchSize) {
+                stmt.executeBatch();
+                pending = 0;
+            }
+        }
+        return pending;
+    }
 
+    private byte[] serializeParameters(List<SearchParameter> parameters) {
+        try {
+            return codec.encode(parameters);
         } catch (Exception e) {
-            throw new RuntimeException("Failed to serialize parameters using Kryo", e);
+            throw new RuntimeException("Failed to serialize parameters using " + codec.name(), e);
         }
     }
 
@@ -356,6 +594,67 @@ public class DatabaseCacheProvider<T> {
         return Optional.empty();
     }
 
+    /**
+     * Looks up many string keys with one query per 32767 keys.
+     *
+     * @return values of the keys found; missing and expired keys are left out
+     */
+    public Map<String, T> getAll(Collection<String> keys, Class<T> valueType) {
+        return getAllByKeyColumn(SELECT_ALL_BY_STRING_KEY, STRING_ARRAY_TYPE, "string_key", String.class, keys, valueType);
+    }
+
+    /**
+     * Looks up many long keys with one query per 32767 ids.
+     *
+     * @return values of the ids found; missing and expired ids are left out
+     */
+    public Map<Long, T> getAllByIds(Collection<Long> ids, Class<T> valueType) {
+        return getAllByKeyColumn(SELECT_ALL_BY_LONG_KEY, NUMBER_ARRAY_TYPE, "long_key", Long.class, ids, valueType);
+    }
+
+    private <K> Map<K, T> getAllByKeyColumn(String query, String arrayType, String keyColumn, Class<K> keyType,
+                                            Collection<K> keys, Class<T> valueType) {
+        if (keys == null || keys.isEmpty()) return Collections.emptyMap();
+
+        List<K> distinctKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        distinctKeys.remove(null);
+        Map<K, T> results = new LinkedHashMap<>();
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            OracleConnection oracleConn = conn.unwrap(OracleConnection.class);
+            for (int from = 0; from < distinctKeys.size(); from += MAX_ARRAY_SIZE) {
+                List<K> chunk = distinctKeys.subList(from, Math.min(from + MAX_ARRAY_SIZE, distinctKeys.size()));
+                Array keyArray = oracleConn.createOracleArray(arrayType, chunk.toArray());
+
+                try {
+                    stmt.setArray(1, keyArray);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            K key = rs.getObject(keyColumn, keyType);
+                            // Like get(key), the first live row of a key wins
+                            if (!results.containsKey(key)) {
+                                results.put(key, deserializeValue(rs.getBytes("value_data"), valueType));
+                            }
+                        }
+                    }
+                } finally {
+                    keyArray.free();
+                }
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to get items from database", e);
+        }
+
+        for (int i = 0; i < results.size(); i++) {
+            statistics.incrementHits();
+        }
+        for (int i = results.size(); i < distinctKeys.size(); i++) {
+            statistics.incrementMisses();
+        }
+        return results;
+    }
+
     public Optional<T> get(String key, Long id, Class<T> valueType) {
         if (key == null || id == null) return Optional.empty();
 
@@ -386,61 +685,148 @@ public class DatabaseCacheProvider<T> {
             return Collections.emptyList();
         }
 
-        Set<String> patterns = generateHierarchicalPatterns(parameters);
-        Set<String> uniqueIds = new HashSet<>();
+        long[] patterns = patternGenerator.hierarchicalPatterns(parameters);
+        List<T> results = new ArrayList<>();
 
-        try (Connection conn = dataSource.getConnection()) {
-            // Get unique IDs matching patterns
-            if (!patterns.isEmpty()) {
-                String placeholders = patterns.stream().map(p -> "?").collect(Collectors.joining(","));
-                String query = "SELECT DISTINCT unique_string_id FROM cache_param_index WHERE param_pattern IN (" + placeholders + ")";
-
-                try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                    int paramIndex = 1;
-                    for (String pattern : patterns) {
-                        stmt.setString(paramIndex++, pattern);
-                    }
+        if (patterns.length > 0) {
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(SELECT_BY_PATTERNS)) {
 
+                Array patternArray = conn.unwrap(OracleConnection.class).createOracleArray(NUMBER_ARRAY_TYPE, patterns);
+                try {
+                    stmt.setArray(1, patternArray);
                     try (ResultSet rs = stmt.executeQuery()) {
                         while (rs.next()) {
-                            uniqueIds.add(rs.getString("unique_string_id"));
+                            byte[] valueData = rs.getBytes("value_data");
+                            T value = deserializeValue(valueData, valueType);
+                            results.add(value);
                         }
                     }
+                } finally {
+                    patternArray.free();
                 }
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to search items in database", e);
             }
+        }
 
-            // Fetch actual values
-            List<T> results = new ArrayList<>();
-            if (!uniqueIds.isEmpty()) {
-                String placeholders = uniqueIds.stream().map(id -> "?").collect(Collectors.joining(","));
-                String valueQuery = "SELECT value_data FROM hierarchical_cache WHERE unique_string_id IN (" + placeholders +
-                        ") AND (expires_at IS NULL OR expires_at > CURRENT_TIMESTAMP)";
-
-                try (PreparedStatement stmt = conn.prepareStatement(valueQuery)) {
-                    int paramIndex = 1;
-                    for (String uniqueId : uniqueIds) {
-                        stmt.setString(paramIndex++, uniqueId);
-                    }
+        if (results.isEmpty()) {
+            statistics.incrementMisses();
+        } else {
+            statistics.incrementHits();
+        }
 
-                    try (ResultSet rs = stmt.executeQuery()) {
-                        while (rs.next()) {
-                            byte[] valueData = rs.getBytes("value_data");
-                            T value = deserializeValue(valueData, valueType);
-                            results.add(value);
-                        }
+        return results;
+    }
+
+    /**
+     * Streaming form of {@link #get(List, Class)}: rows are fetched {@value #STREAM_FETCH_SIZE} at a time and
+     * decoded as the stream is consumed, so memory use stays flat however many items match. The stream holds a
+     * pooled connection until it is closed, so consume it in a try-with-resources block.
+     */
+    public Stream<T> stream(List<SearchParameter> parameters, Class<T> valueType) {
+        long[] patterns = parameters == null ? new long[0] : patternGenerator.hierarchicalPatterns(parameters);
+        if (patterns.length == 0) {
+            statistics.incrementMisses();
+            return Stream.empty();
+        }
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        Array patternArray = null;
+        ResultSet rs;
+        try {
+            conn = dataSource.getConnection();
+            stmt = conn.prepareStatement(SELECT_BY_PATTERNS);
+            stmt.setFetchSize(STREAM_FETCH_SIZE);
+            patternArray = conn.unwrap(OracleConnection.class).createOracleArray(NUMBER_ARRAY_TYPE, patterns);
+            stmt.setArray(1, patternArray);
+            rs = stmt.executeQuery();
+        } catch (Exception e) {
+            RuntimeException failure = new RuntimeException("Failed to search items in database", e);
+            try {
+                closeAll(stmt, patternArray != null ? patternArray::free : null, conn);
+            } catch (RuntimeException closeFailure) {
+                failure.addSuppressed(closeFailure);
+            }
+            throw failure;
+        }
+
+        Iterator<T> values = new ResultSetIterator(rs, valueType);
+        AutoCloseable freeArray = patternArray::free;
+        Connection connection = conn;
+        PreparedStatement statement = stmt;
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(values, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> closeAll(rs, statement, freeArray, connection));
+    }
+
+    /**
+     * Decodes one row per {@link #next()} and records the search as a hit or miss once the rows run out.
+     */
+    private class ResultSetIterator implements Iterator<T> {
+        private final ResultSet rs;
+        private final Class<T> valueType;
+        private Boolean hasRow;
+        private boolean found;
+
+        ResultSetIterator(ResultSet rs, Class<T> valueType) {
+            this.rs = rs;
+            this.valueType = valueType;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (hasRow == null) {
+                try {
+                    hasRow = rs.next();
+                } catch (SQLException e) {
+                    throw new RuntimeException("Failed to search items in database", e);
+                }
+                if (!hasRow) {
+                    if (found) {
+                        statistics.incrementHits();
+                    } else {
+                        statistics.incrementMisses();
                     }
                 }
             }
+            return hasRow;
+        }
 
-            if (results.isEmpty()) {
-                statistics.incrementMisses();
-            } else {
-                statistics.incrementHits();
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
             }
+            hasRow = null;
+            found = true;
+            try {
+                return deserializeValue(rs.getBytes("value_data"), valueType);
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to search items in database", e);
+            }
+        }
+    }
 
-            return results;
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to search items in database", e);
+    /**
+     * Closes each non-null resource in order, even when an earlier one fails.
+     */
+    private static void closeAll(AutoCloseable... resources) {
+        RuntimeException failure = null;
+        for (AutoCloseable resource : resources) {
+            if (resource == null) continue;
+            try {
+                resource.close();
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = new RuntimeException("Failed to release database search resources", e);
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
         }
     }
 
@@ -505,11 +891,13 @@ public class DatabaseCacheProvider<T> {
             return cached.get();
         }
 
-        T computed = supplier.get();
-        if (computed != null) {
-            put(key, Collections.emptyList(), computed);
-        }
-        return computed;
+        return coalesce(SingleFlight.flightKey(key, null), () -> get(key, valueType), () -> {
+            T computed = supplier.get();
+            if (computed != null) {
+                put(key, Collections.emptyList(), computed);
+            }
+            return computed;
+        });
     }
 
     public T getOrCompute(String key, Long id, Class<T> valueType, Supplier<T> supplier) {
@@ -518,11 +906,13 @@ public class DatabaseCacheProvider<T> {
             return cached.get();
         }
 
-        T computed = supplier.get();
-        if (computed != null) {
-            put(key, id, Collections.emptyList(), computed);
-        }
-        return computed;
+        return coalesce(SingleFlight.flightKey(key, id), () -> get(key, id, valueType), () -> {
+            T computed = supplier.get();
+            if (computed != null) {
+                put(key, id, Collections.emptyList(), computed);
+            }
+            return computed;
+        });
     }
 
     public T getOrCompute(Long id, Class<T> valueType, Supplier<T> supplier) {
@@ -531,11 +921,13 @@ public class DatabaseCacheProvider<T> {
             return cached.get();
         }
 
-        T computed = supplier.get();
-        if (computed != null) {
-            throw new IllegalStateException("Cannot cache item with only Long ID - string key required");
-        }
-        return computed;
+        return coalesce(SingleFlight.flightKey(null, id), () -> get(id, valueType), () -> {
+            T computed = supplier.get();
+            if (computed != null) {
+                throw new IllegalStateException("Cannot cache item with only Long ID - string key required");
+            }
+            return computed;
+        });
     }
 
     public List<T> getOrCompute(List<SearchParameter> parameters, Class<T> valueType, Supplier<List<T>> supplier) {
@@ -544,10 +936,21 @@ public class DatabaseCacheProvider<T> {
             return cached;
         }
 
-        List<T> computed = supplier.get();
+        List<T> computed = searchFlights.execute(SingleFlight.flightKey(parameters), supplier);
         return computed != null ? computed : Collections.emptyList();
     }
 
+    /**
+     * Runs the loader once per JVM for concurrent misses on the same key. The lookup re-checks the table
+     * first, because the value may have been stored since the caller's miss.
+     */
+    private T coalesce(String flightKey, Supplier<Optional<T>> lookup, Supplier<T> loader) {
+        return flights.execute(flightKey, () -> {
+            Optional<T> cached = lookup.get();
+            return cached.isPresent() ? cached.get() : loader.get();
+        });
+    }
+
     // ==================== INVALIDATION OPERATIONS ====================
 
     public void invalidate(String key) {
@@ -750,64 +1153,72 @@ public class DatabaseCacheProvider<T> {
     }
 
     private void addParameterPatterns(String uniqueStringId, List<SearchParameter> parameters) {
-        Set<String> newPatterns = generateHierarchicalPatterns(parameters);
-
-        try (Connection conn = dataSource.getConnection()) {
-            for (String pattern : newPatterns) {
-                try (PreparedStatement stmt = conn.prepareStatement(
-                        "INSERT INTO cache_param_index (param_pattern, unique_string_id) VALUES (?, ?)")) {
-                    stmt.setString(1, pattern);
-                    stmt.setString(2, uniqueStringId);
-                    try {
-                        stmt.executeUpdate();
-                    } catch (SQLException e) {
-                        // Ignore duplicate key errors - pattern might already exist
-                        if (!e.getMessage().contains("unique constraint")) {
-                            throw e;
-                        }
-                    }
-                }
+        // Patterns the item is already indexed under are skipped by the hint instead of failing the batch
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(INSERT_PARAM_PATTERN_IF_ABSENT)) {
+            if (addPatternBatch(stmt, uniqueStringId, parameters, 0) > 0) {
+                stmt.executeBatch();
             }
         } catch (SQLException e) {
             throw new RuntimeException("Failed to add parameter patterns", e);
         }
     }
 
-    private Set<String> generateHierarchicalPatterns(List<SearchParameter> parameters) {
-        if (parameters == null || parameters.isEmpty()) {
-            return Collections.emptySet();
-        }
-
-        List<SearchParameter> sortedParams = parameters.stream()
-                .sorted(Comparator.comparingInt(SearchParameter::getLevel))
-                .collect(Collectors.toList());
-
-        Set<String> patterns = new HashSet<>();
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
 
-        // Generate all possible combinations maintaining hierarchy
-        for (int i = 0; i < sortedParams.size(); i++) {
-            for (int j = i; j < sortedParams.size(); j++) {
-                List<SearchParameter> subList = sortedParams.subList(i, j + 1);
-                String pattern = subList.stream()
-                        .map(SearchParameter::toKey)
-                        .collect(Collectors.joining(">"));
-                patterns.add(pattern);
-            }
+    // ==================== EXPIRY PURGE ====================
+
+    /**
+     * Starts deleting expired rows in the background every {@code intervalMillis}, {@code chunkSize} rows per
+     * transaction and at most {@code maxChunksPerRun} transactions per run. On partitioned tables expired
+     * partitions are dropped instead.
+     * <p>
+     * The first call adds an index on {@code expires_at} to an unpartitioned table that lacks one, built online
+     * so writes continue meanwhile; it returns once the index is built. Editions without online index builds get
+     * a warning instead, and the index should then be created by hand at a quiet time.
+     */
+    public synchronized void startPurging(long intervalMillis, int chunkSize, int maxChunksPerRun) {
+        if (purger != null) {
+            throw new IllegalStateException("Purging has already been started");
         }
+        createExpiresAtIndex();
+        ExpiredEntryPurger started = new ExpiredEntryPurger(dataSource, chunkSize, maxChunksPerRun, statistics);
+        started.start(intervalMillis);
+        this.purger = started;
+    }
 
-        // Add individual parameter patterns
-        for (SearchParameter param : sortedParams) {
-            patterns.add(param.toKey());
+    private void createExpiresAtIndex() {
+        try (Connection conn = dataSource.getConnection();
+             CallableStatement stmt = conn.prepareCall(CREATE_EXPIRES_AT_INDEX)) {
+            stmt.registerOutParameter(1, Types.INTEGER);
+            stmt.execute();
+            int outcome = stmt.getInt(1);
+            if (outcome == 1) {
+                logger.info("Created index idx_cache_expires_at on hierarchical_cache(expires_at) for the expiry purge");
+            } else if (outcome == 2) {
+                logger.warn("This Oracle edition cannot build indexes online, so the expiry purge scans hierarchical_cache; "
+                        + "create the index at a quiet time with: "
+                        + "CREATE INDEX idx_cache_expires_at ON hierarchical_cache(expires_at)");
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to create the expires_at index", e);
         }
-
-        return patterns;
     }
 
-    public CacheStatistics getStatistics() {
-        return statistics;
+    /**
+     * @return the background purge with its progress and throughput, or null when it was not started
+     */
+    public ExpiredEntryPurger getPurger() {
+        return purger;
     }
 
     public void shutdown() {
+        ExpiredEntryPurger current = purger;
+        if (current != null) {
+            current.shutdown();
+        }
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
         }
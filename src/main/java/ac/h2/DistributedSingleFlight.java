@@ -0,0 +1,75 @@
+package ac.h2;
+
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Cluster-wide request coalescing on top of {@link SingleFlight}: the JVM that wins a per-key Redis lock
+ * computes, the others wait for the lock and then read the value it cached.
+ * <p>
+ * The lock is a lease, so a node that dies mid-computation blocks the key for at most {@code leaseMillis}.
+ * Coalescing is best-effort: a node that cannot get the lock within {@code waitMillis}, or cannot reach Redis,
+ * re-checks the cache and computes itself rather than failing the request.
+ */
+public class DistributedSingleFlight {
+    private static final Logger logger = LoggerFactory.getLogger(DistributedSingleFlight.class);
+
+    public static final String LOCK_PREFIX = "compute:";
+
+    private final RedissonClient redissonClient;
+    private final long waitMillis;
+    private final long leaseMillis;
+
+    public DistributedSingleFlight(RedissonClient redissonClient, long waitMillis, long leaseMillis) {
+        if (waitMillis < 0 || leaseMillis <= 0) {
+            throw new IllegalArgumentException("Wait must not be negative and lease must be positive");
+        }
+        this.redissonClient = redissonClient;
+        this.waitMillis = waitMillis;
+        this.leaseMillis = leaseMillis;
+    }
+
+    /**
+     * @param lookup reads the shared cache; called once the lock is held (or could not be taken)
+     * @param loader computes and caches the value when {@code lookup} finds nothing
+     */
+    public <V> V execute(String key, Supplier<Optional<V>> lookup, Supplier<V> loader) {
+        RLock lock = redissonClient.getLock(LOCK_PREFIX + key);
+        boolean acquired = false;
+        try {
+            acquired = lock.tryLock(waitMillis, leaseMillis, TimeUnit.MILLISECONDS);
+            if (!acquired) {
+                logger.debug("Timed out waiting for cluster computation of key={}, computing locally", key);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for cluster computation of " + key, e);
+        } catch (Exception e) {
+            logger.warn("Cluster lock for key={} unavailable, computing locally: {}", key, e.getMessage());
+        }
+
+        try {
+            Optional<V> cached = lookup.get();
+            return cached.isPresent() ? cached.get() : loader.get();
+        } finally {
+            if (acquired) {
+                unlock(lock, key);
+            }
+        }
+    }
+
+    private void unlock(RLock lock, String key) {
+        try {
+            lock.unlock();
+        } catch (Exception e) {
+            // Lease expired before the computation finished; another node may already hold the lock
+            logger.warn("Failed to release cluster lock for key={}: {}", key, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package ac.h2;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Physically removes expired rows of {@link DatabaseCacheProvider}, which the lookups only filter out. On the
+ * plain schema each chunk deletes up to {@code chunkSize} expired cache rows and their parameter index rows in
+ * one transaction and one round trip; a run stops after {@code maxChunksPerRun} chunks so a large backlog is
+ * worked off over several runs instead of one long burst of redo. On the partitioned schema (see
+ * {@link CacheConfiguration.Builder#databasePartitioned}) whole partitions whose rows have all expired are
+ * dropped instead, together with their parameter index partitions.
+ * <p>
+ * Rows without a TTL are never purged.
+ */
+public class ExpiredEntryPurger {
+    private static final Logger logger = LoggerFactory.getLogger(ExpiredEntryPurger.class);
+
+    public static final long DEFAULT_INTERVAL_MILLIS = 60_000L;
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    public static final int DEFAULT_MAX_CHUNKS_PER_RUN = 100;
+
+    private static final String SELECT_PARTITIONED =
+            "SELECT partitioned FROM user_tables WHERE table_name = 'HIERARCHICAL_CACHE'";
+
+    // Deleting the cache rows first locks them, so a concurrent put of the same item waits for this chunk
+    // and then re-creates both the row and its index rows
+    private static final String PURGE_CHUNK = """
+    DECLARE
+        TYPE id_list IS TABLE OF hierarchical_cache.unique_string_id%TYPE;
+        ids id_list;
+        index_rows NUMBER := 0;
+    BEGIN
+        DELETE FROM hierarchical_cache
+        WHERE expires_at <= CURRENT_TIMESTAMP AND ROWNUM <= ?
+        RETURNING unique_string_id BULK COLLECT INTO ids;
+
+        IF ids.COUNT > 0 THEN
+            FORALL i IN 1 .. ids.COUNT
+                DELETE FROM cache_param_index WHERE unique_string_id = ids(i);
+            index_rows := SQL%ROWCOUNT;
+        END IF;
+
+        ? := ids.COUNT;
+        ? := index_rows;
+    END;
+    """;
+
+    // Only interval partitions are dropped; the initial range partition holds the rows without a TTL
+    private static final String DROP_EXPIRED_PARTITIONS = """
+    DECLARE
+        high_value_text VARCHAR2(4000);
+        upper_bound TIMESTAMP;
+        dropped NUMBER := 0;
+    BEGIN
+        FOR p IN (SELECT partition_name, high_value FROM user_tab_partitions
+                  WHERE table_name = 'HIERARCHICAL_CACHE' AND interval = 'YES'
+                  ORDER BY partition_position) LOOP
+            high_value_text := p.high_value;
+            EXECUTE IMMEDIATE 'SELECT ' || high_value_text || ' FROM dual' INTO upper_bound;
+            EXIT WHEN upper_bound > LOCALTIMESTAMP;
+
+            EXECUTE IMMEDIATE 'ALTER TABLE hierarchical_cache DROP PARTITION ' || p.partition_name
+                || ' UPDATE GLOBAL INDEXES';
+            dropped := dropped + 1;
+        END LOOP;
+
+        ? := dropped;
+    END;
+    """;
+
+    private final DataSource dataSource;
+    private final int chunkSize;
+    private final int maxChunksPerRun;
+    private final CacheStatistics statistics;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-expired-purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Read once, on the first run
+    private volatile Boolean partitioned;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong failedRuns = new AtomicLong();
+    private final AtomicLong purgedEntries = new AtomicLong();
+    private final AtomicLong purgedIndexRows = new AtomicLong();
+    private final AtomicLong droppedPartitions = new AtomicLong();
+    private final AtomicLong purgeNanos = new AtomicLong();
+    private volatile long lastRunEntries;
+    private volatile long lastRunMillis;
+    private volatile boolean backlogged;
+
+    /**
+     * @param chunkSize       expired rows deleted per transaction
+     * @param maxChunksPerRun transactions per run; the rest waits for the next run
+     * @param statistics      key and value counts to decrement for purged rows
+     */
+    public ExpiredEntryPurger(DataSource dataSource, int chunkSize, int maxChunksPerRun, CacheStatistics statistics) {
+        if (dataSource == null || chunkSize <= 0 || maxChunksPerRun <= 0) {
+            throw new IllegalArgumentException("Data source is required and chunk size and chunks per run must be positive");
+        }
+        this.dataSource = dataSource;
+        this.chunkSize = chunkSize;
+        this.maxChunksPerRun = maxChunksPerRun;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Runs {@link #purge()} every {@code intervalMillis} in the background until {@link #shutdown()}.
+     */
+    public void start(long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Purge interval must be positive");
+        }
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                purge();
+            } catch (RuntimeException e) {
+                logger.warn("Purging expired cache rows failed", e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs one purge now.
+     *
+     * @return cache rows deleted; dropped partitions are counted by {@link #getDroppedPartitions()} instead
+     */
+    public synchronized long purge() {
+        long start = System.nanoTime();
+        runs.incrementAndGet();
+
+        try (Connection conn = dataSource.getConnection()) {
+            if (partitioned == null) {
+                partitioned = isPartitioned(conn);
+            }
+            long entries = partitioned ? dropExpiredPartitions(conn) : purgeChunks(conn);
+
+            lastRunEntries = entries;
+            return entries;
+        } catch (SQLException e) {
+            failedRuns.incrementAndGet();
+            throw new RuntimeException("Failed to purge expired items from database", e);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            purgeNanos.addAndGet(elapsed);
+            lastRunMillis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+        }
+    }
+
+    public long getRuns() {
+        return runs.get();
+    }
+
+    public long getFailedRuns() {
+        return failedRuns.get();
+    }
+
+    /**
+     * Cache rows deleted so far, updated after every chunk, so it also shows the progress of a running purge.
+     */
+    public long getPurgedEntries() {
+        return purgedEntries.get();
+    }
+
+    public long getPurgedIndexRows() {
+        return purgedIndexRows.get();
+    }
+
+    public long getDroppedPartitions() {
+        return droppedPartitions.get();
+    }
+
+    public long getLastRunEntries() {
+        return lastRunEntries;
+    }
+
+    public long getLastRunMillis() {
+        return lastRunMillis;
+    }
+
+    /**
+     * @return cache rows deleted per second of purge time, over all runs
+     */
+    public double getEntriesPerSecond() {
+        long nanos = purgeNanos.get();
+        return nanos == 0 ? 0.0 : purgedEntries.get() * 1_000_000_000.0 / nanos;
+    }
+
+    /**
+     * @return whether the last run stopped at {@code maxChunksPerRun} with expired rows possibly left over
+     */
+    public boolean isBacklogged() {
+        return backlogged;
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private long purgeChunks(Connection conn) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        long entries = 0;
+        int chunks = 0;
+        backlogged = false;
+
+        try (CallableStatement stmt = conn.prepareCall(PURGE_CHUNK)) {
+            stmt.setInt(1, chunkSize);
+            stmt.registerOutParameter(2, Types.INTEGER);
+            stmt.registerOutParameter(3, Types.INTEGER);
+
+            while (true) {
+                int chunkEntries;
+                try {
+                    stmt.execute();
+                    chunkEntries = stmt.getInt(2);
+                    int chunkIndexRows = stmt.getInt(3);
+                    conn.commit();
+                    purgedEntries.addAndGet(chunkEntries);
+                    purgedIndexRows.addAndGet(chunkIndexRows);
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+
+                entries += chunkEntries;
+                if (statistics != null) {
+                    for (int i = 0; i < chunkEntries; i++) {
+                        statistics.decrementValues();
+                        statistics.decrementKeys();
+                    }
+                }
+
+                if (chunkEntries < chunkSize) break;
+                if (++chunks == maxChunksPerRun) {
+                    backlogged = true;
+                    logger.info("Stopped purging after {} chunks; remaining expired rows are left for the next run", chunks);
+                    break;
+                }
+                if (Thread.currentThread().isInterrupted()) break;
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+
+        logger.debug("Purged {} expired cache rows", entries);
+        return entries;
+    }
+
+    private long dropExpiredPartitions(Connection conn) throws SQLException {
+        try (CallableStatement stmt = conn.prepareCall(DROP_EXPIRED_PARTITIONS)) {
+            stmt.registerOutParameter(1, Types.INTEGER);
+            stmt.execute();
+            int dropped = stmt.getInt(1);
+            droppedPartitions.addAndGet(dropped);
+            if (dropped > 0) {
+                logger.debug("Dropped {} expired cache partitions", dropped);
+            }
+            return 0;
+        }
+    }
+
+    private static boolean isPartitioned(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT_PARTITIONED);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() && "YES".equals(rs.getString(1));
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package ac.h2;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs the {@link CacheConfiguration.FallbackStrategy#REDIS_THEN_DATABASE_HEDGED} reads of the transparent
+ * services. The primary (Redis) read starts first; if it has not answered within the hedge delay, the backup
+ * (database) read starts alongside it and the first present value wins. The other read is left to finish on its
+ * own thread rather than interrupted: interrupting a JDBC call can close its pooled connection, and an
+ * interrupted Redis call would look like a failure to its circuit breaker. Both reads must therefore be pure
+ * reads; whatever should follow a backup result, such as writing it back to Redis, goes in the
+ * {@code backupResult} callback, which runs once the winner is known.
+ * <p>
+ * The hedge delay tracks the configured percentile of recent primary latencies, so only the slowest reads are
+ * hedged (about 5% at the 95th percentile) and the database sees little extra load while Redis is healthy.
+ * Until enough samples exist the initial delay is used. A primary that answers in time but misses falls back to
+ * the backup sequentially, as {@code REDIS_THEN_DATABASE} does.
+ */
+public class HedgedReader {
+    private static final int SAMPLE_SIZE = 1024;
+    private static final int RECOMPUTE_EVERY = 64;
+
+    private final double percentile;
+    private final ThreadPoolExecutor executor;
+
+    // Ring buffer of recent primary latencies in nanoseconds, guarded by itself
+    private final long[] samples = new long[SAMPLE_SIZE];
+    private long sampleCount;
+    private volatile long hedgeDelayNanos;
+
+    private final AtomicLong hedgedReads = new AtomicLong();
+    private final AtomicLong backupWins = new AtomicLong();
+
+    /**
+     * @param percentile         primary latency percentile, in (0, 100), after which the backup read starts
+     * @param initialDelayMillis hedge delay used until enough primary latencies have been observed
+     * @param threads            maximum concurrent reads; when all are busy, reads run sequentially instead
+     */
+    public HedgedReader(double percentile, long initialDelayMillis, int threads) {
+        if (percentile <= 0 || percentile >= 100 || initialDelayMillis < 0 || threads <= 0) {
+            throw new IllegalArgumentException("Percentile must be in (0, 100), the delay must not be negative and threads must be positive");
+        }
+        this.percentile = percentile;
+        this.hedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(initialDelayMillis);
+
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "cache-hedged-read-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public <V> Optional<V> read(Supplier<Optional<V>> primary, Supplier<Optional<V>> backup) {
+        return read(primary, backup, value -> { });
+    }
+
+    /**
+     * @param backupResult called on the caller's thread with the backup's value when it is the one returned,
+     *                     whether it won the race or the primary missed
+     */
+    public <V> Optional<V> read(Supplier<Optional<V>> primary, Supplier<Optional<V>> backup, Consumer<V> backupResult) {
+        Supplier<Optional<V>> reportedBackup = () -> {
+            Optional<V> result = backup.get();
+            result.ifPresent(backupResult);
+            return result;
+        };
+        CompletionService<Optional<V>> completion = new ExecutorCompletionService<>(executor);
+        long start = System.nanoTime();
+
+        Future<Optional<V>> primaryRead;
+        try {
+            primaryRead = completion.submit(() -> {
+                Optional<V> result = primary.get();
+                recordPrimaryLatency(System.nanoTime() - start);
+                return result;
+            });
+        } catch (RejectedExecutionException e) {
+            return sequential(primary.get(), reportedBackup);
+        }
+
+        Future<Optional<V>> backupRead = null;
+        try {
+            Future<Optional<V>> done = completion.poll(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+            if (done != null) {
+                return sequential(resultOf(done), reportedBackup);
+            }
+
+            try {
+                backupRead = completion.submit(backup::get);
+            } catch (RejectedExecutionException e) {
+                return sequential(resultOf(primaryRead), reportedBackup);
+            }
+            hedgedReads.incrementAndGet();
+
+            for (int pending = 2; pending > 0; pending--) {
+                Future<Optional<V>> next = completion.take();
+                Optional<V> result = resultOf(next);
+                if (result.isPresent()) {
+                    if (next == backupRead) {
+                        backupWins.incrementAndGet();
+                        backupResult.accept(result.get());
+                    }
+                    return result;
+                }
+            }
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } finally {
+            // Stops a loser that has not started yet; one that is running finishes on its own thread
+            primaryRead.cancel(false);
+            if (backupRead != null) {
+                backupRead.cancel(false);
+            }
+        }
+    }
+
+    public long getHedgeDelayMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos);
+    }
+
+    public long getHedgedReads() {
+        return hedgedReads.get();
+    }
+
+    public long getBackupWins() {
+        return backupWins.get();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    void recordPrimaryLatency(long nanos) {
+        long[] snapshot = null;
+        synchronized (samples) {
+            samples[(int) (sampleCount % SAMPLE_SIZE)] = nanos;
+            sampleCount++;
+            if (sampleCount >= RECOMPUTE_EVERY && sampleCount % RECOMPUTE_EVERY == 0) {
+                snapshot = Arrays.copyOf(samples, (int) Math.min(sampleCount, SAMPLE_SIZE));
+            }
+        }
+        // Sorted outside the lock; a concurrent recompute may briefly win with an older snapshot
+        if (snapshot != null) {
+            Arrays.sort(snapshot);
+            int index = (int) Math.ceil(percentile / 100.0 * snapshot.length) - 1;
+            hedgeDelayNanos = snapshot[Math.max(0, index)];
+        }
+    }
+
+    private static <V> Optional<V> sequential(Optional<V> primaryResult, Supplier<Optional<V>> backup) {
+        return primaryResult.isPresent() ? primaryResult : backup.get();
+    }
+
+    private static <V> Optional<V> resultOf(Future<Optional<V>> future) throws InterruptedException {
+        try {
+            Optional<V> result = future.get();
+            return result != null ? result : Optional.empty();
+        } catch (ExecutionException e) {
+            // The suppliers handle their own errors; anything else counts as a miss
+            return Optional.empty();
+        }
+    }
+}
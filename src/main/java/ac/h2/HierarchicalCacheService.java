@@ -1,12 +1,34 @@
 package ac.h2;
+import ac.h2.codec.CacheCodec;
+import ac.h2.codec.KryoCacheCodec;
+import ac.h2.codec.RedissonCacheCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 import org.redisson.Redisson;
 import org.redisson.api.*;
+import org.redisson.api.options.LocalCachedMapOptions;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.client.handler.State;
 import org.redisson.config.Config;
-import org.redisson.codec.Kryo5Codec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class HierarchicalCacheService<T> {
     private static final String PRIMARY_KEY_PREFIX = "primary:";
@@ -14,23 +36,157 @@ public class HierarchicalCacheService<T> {
     private static final String PARAM_PREFIX = "param:";
     private static final String VALUE_PREFIX = "value:";
     private static final String METADATA_PREFIX = "meta:";
+    private static final String LOCAL_VALUE_MAP = "local:value";
+    private static final String LOCAL_PRIMARY_MAP = "local:primary";
+
+    // uniqueIds per SSCAN call and values per MGET in stream()
+    private static final int STREAM_PAGE_SIZE = 500;
+
+    /**
+     * Resolves a parameter search and loads the matching values in a single round trip.
+     * KEYS[1] is the exact pattern set; KEYS[2..n] are the single-parameter sets, intersected when the exact
+     * pattern has no members (hierarchical degradation). Parameter sets hold plain uniqueIds so the script can
+     * derive the {@code value:} keys itself, which limits it to single-node and sentinel deployments.
+     */
+    private static final String SEARCH_SCRIPT = """
+            local ids = redis.call('SMEMBERS', KEYS[1])
+            if #ids == 0 and #KEYS > 1 then
+                ids = redis.call('SINTER', unpack(KEYS, 2))
+            end
+            local values = {}
+            for i = 1, #ids, 500 do
+                local valueKeys = {}
+                for j = i, math.min(i + 499, #ids) do
+                    valueKeys[#valueKeys + 1] = '%s' .. ids[j]
+                end
+                for _, value in ipairs(redis.call('MGET', unpack(valueKeys))) do
+                    values[#values + 1] = value
+                end
+            end
+            return values
+            """.formatted(VALUE_PREFIX);
+
+    /**
+     * Drops every reference recorded in an item's {@code meta:} set: the item is removed from its parameter
+     * sets (Redis deletes a set together with its last member) and key pointers are deleted only while they
+     * still point at the item.
+     */
+    private static final String RELEASE_FUNCTION = """
+            local function release(metaKey, uniqueId, encodedUniqueId)
+                for _, key in ipairs(redis.call('SMEMBERS', metaKey)) do
+                    if string.sub(key, 1, %d) == '%s' then
+                        redis.call('SREM', key, uniqueId)
+                    elseif redis.call('GET', key) == encodedUniqueId then
+                        redis.call('DEL', key)
+                    end
+                end
+                redis.call('DEL', metaKey)
+            end
+            """.formatted(PARAM_PREFIX.length(), PARAM_PREFIX);
+
+    /**
+     * Writes an item and all of its references atomically.
+     * KEYS: value, meta, {@code ARGV[5]} key pointers, {@code ARGV[6]} parameter sets and, when linking to a
+     * new uniqueId, the replaced item's value and meta keys.
+     * ARGV: encoded item, encoded uniqueId, uniqueId, ttl millis (0 = none), pointer count, parameter set
+     * count and optionally the replaced uniqueId, raw and encoded.
+     */
+    private static final String PUT_SCRIPT = RELEASE_FUNCTION + """
+            local ttl, pointerCount, setCount = tonumber(ARGV[4]), tonumber(ARGV[5]), tonumber(ARGV[6])
+            if ARGV[7] then
+                release(KEYS[#KEYS], ARGV[7], ARGV[8])
+                redis.call('DEL', KEYS[#KEYS - 1])
+            end
+            release(KEYS[2], ARGV[3], ARGV[2])
+
+            local function store(key, value)
+                if ttl > 0 then
+                    redis.call('SET', key, value, 'PX', ttl)
+                else
+                    redis.call('SET', key, value)
+                end
+            end
+
+            store(KEYS[1], ARGV[1])
+            for i = 3, 2 + pointerCount do
+                store(KEYS[i], ARGV[2])
+                redis.call('SADD', KEYS[2], KEYS[i])
+            end
+            for i = 3 + pointerCount, 2 + pointerCount + setCount do
+                local existed = redis.call('EXISTS', KEYS[i]) == 1
+                redis.call('SADD', KEYS[i], ARGV[3])
+                redis.call('SADD', KEYS[2], KEYS[i])
+                -- A parameter set lives as long as its longest-lived member
+                if ttl == 0 then
+                    redis.call('PERSIST', KEYS[i])
+                else
+                    local remaining = redis.call('PTTL', KEYS[i])
+                    if not existed or (remaining >= 0 and remaining < ttl) then
+                        redis.call('PEXPIRE', KEYS[i], ttl)
+                    end
+                end
+            end
+            if ttl > 0 then
+                redis.call('PEXPIRE', KEYS[2], ttl)
+            end
+            return 1
+            """;
+
+    /**
+     * Removes an item and all of its references atomically.
+     * KEYS: value, meta. ARGV: uniqueId, encoded uniqueId. Returns the number of values deleted.
+     */
+    private static final String INVALIDATE_SCRIPT = RELEASE_FUNCTION + """
+            release(KEYS[2], ARGV[1], ARGV[2])
+            return redis.call('DEL', KEYS[1])
+            """;
     
     private final RedissonClient redissonClient;
+    private final Codec codec;
     private final long defaultTtlMillis;
     private final CacheStatistics statistics;
+    private final HierarchicalPatternGenerator patternGenerator = HierarchicalPatternGenerator.shared();
+    private final SingleFlight<String> flights = new SingleFlight<>();
+    private final SingleFlight<String> searchFlights = new SingleFlight<>();
+    private volatile DistributedSingleFlight clusterSingleFlight;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private volatile double earlyRefreshBeta;
+    private volatile Executor refreshExecutor = ForkJoinPool.commonPool();
+    // Set only in StorageMode.LOCAL_CACHED_MAP
+    private volatile RLocalCachedMap<String, CachedItem<T>> localValues;
+    private volatile RLocalCachedMap<String, String> localPrimaryKeys;
 
     public HierarchicalCacheService(String redisAddress, long defaultTtlMillis) {
+        this(redisAddress, defaultTtlMillis, new KryoCacheCodec());
+    }
+
+    public HierarchicalCacheService(String redisAddress, CacheConfiguration configuration) {
+        this(redisAddress, configuration.getRemoteCacheTtlMillis(), configuration.getCodec());
+        if (configuration.isClusterSingleFlightEnabled()) {
+            enableClusterSingleFlight(configuration.getClusterLockWaitMillis(), configuration.getClusterLockLeaseMillis());
+        }
+        if (configuration.getStorageMode() == CacheConfiguration.StorageMode.LOCAL_CACHED_MAP) {
+            enableLocalCachedStorage(configuration.getLocalCachedMapSize(), configuration.getLocalCachedMapTtlMillis());
+        }
+        if (configuration.isEarlyRefreshEnabled()) {
+            enableEarlyRefresh(configuration.getEarlyRefreshBeta(), ForkJoinPool.commonPool());
+        }
+    }
+
+    public HierarchicalCacheService(String redisAddress, long defaultTtlMillis, CacheCodec cacheCodec) {
         Config config = new Config();
         config.useSingleServer().setAddress(redisAddress);
-        config.setCodec(new Kryo5Codec());
+        config.setCodec(new RedissonCacheCodec(cacheCodec));
         
         this.redissonClient = Redisson.create(config);
+        this.codec = config.getCodec();
         this.defaultTtlMillis = defaultTtlMillis;
         this.statistics = new CacheStatistics();
     }
 
     public HierarchicalCacheService(RedissonClient redissonClient, long defaultTtlMillis) {
         this.redissonClient = redissonClient;
+        this.codec = redissonClient.getConfig().getCodec();
         this.defaultTtlMillis = defaultTtlMillis;
         this.statistics = new CacheStatistics();
     }
@@ -53,85 +209,112 @@ public class HierarchicalCacheService<T> {
             throw new IllegalArgumentException("Key, parameters, and value cannot be null");
         }
 
-        CachedItem<T> cachedItem = new CachedItem<>(key, id, value, parameters, ttlMillis);
-        String uniqueId = cachedItem.generateUniqueId();
-        
-        RBatch batch = redissonClient.createBatch();
-        
-        // Store the actual value
-        RBucketAsync<Object> valueBucket = batch.getBucket(VALUE_PREFIX + uniqueId);
-        if (ttlMillis > 0) {
-            valueBucket.setAsync(cachedItem, ttlMillis, TimeUnit.MILLISECONDS);
-        } else {
-            valueBucket.setAsync(cachedItem);
+        putItem(new CachedItem<>(key, id, value, parameters, ttlMillis));
+    }
+
+    private void putItem(CachedItem<T> cachedItem) {
+        ScriptInvocation invocation = preparePut(cachedItem, cachedItem.getTtl(), null);
+
+        evalWrite(PUT_SCRIPT, invocation);
+
+        recordPut(invocation);
+    }
+
+    public CompletableFuture<Void> putAsync(String key, List<SearchParameter> parameters, T value) {
+        return putAsync(key, null, parameters, value, defaultTtlMillis);
+    }
+
+    public CompletableFuture<Void> putAsync(String key, Long id, List<SearchParameter> parameters, T value) {
+        return putAsync(key, id, parameters, value, defaultTtlMillis);
+    }
+
+    public CompletableFuture<Void> putAsync(String key, Long id, List<SearchParameter> parameters, T value, long ttlMillis) {
+        if (key == null || parameters == null || value == null) {
+            throw new IllegalArgumentException("Key, parameters, and value cannot be null");
         }
 
-        // Create primary key reference
-        RBucketAsync<Object> primaryBucket = batch.getBucket(PRIMARY_KEY_PREFIX + key);
-        if (ttlMillis > 0) {
-            primaryBucket.setAsync(uniqueId, ttlMillis, TimeUnit.MILLISECONDS);
-        } else {
-            primaryBucket.setAsync(uniqueId);
+        CachedItem<T> cachedItem = new CachedItem<>(key, id, value, parameters, ttlMillis);
+        ScriptInvocation invocation = preparePut(cachedItem, ttlMillis, null);
+
+        return evalWriteAsync(PUT_SCRIPT, invocation).thenRun(() -> recordPut(invocation));
+    }
+
+    /**
+     * Stores many items with one {@link #PUT_SCRIPT} call each, pipelined into a single round trip. Each item
+     * keeps its own TTL.
+     */
+    public void putAll(Collection<CachedItem<T>> items) {
+        if (items == null) {
+            throw new IllegalArgumentException("Items cannot be null");
         }
+        if (items.isEmpty()) return;
 
-        // Create long key reference if provided
-        if (id != null) {
-            RBucketAsync<Object> longKeyBucket = batch.getBucket(LONG_KEY_PREFIX + id);
-            if (ttlMillis > 0) {
-                longKeyBucket.setAsync(uniqueId, ttlMillis, TimeUnit.MILLISECONDS);
-            } else {
-                longKeyBucket.setAsync(uniqueId);
+        List<ScriptInvocation> invocations = new ArrayList<>(items.size());
+        for (CachedItem<T> item : items) {
+            if (item == null || item.getStringKey() == null || item.getParameters() == null || item.getValue() == null) {
+                throw new IllegalArgumentException("Key, parameters, and value cannot be null");
             }
+            invocations.add(preparePut(item, item.getTtl(), null));
         }
 
-        // Create hierarchical parameter references
-        createParameterReferences(batch, parameters, uniqueId, ttlMillis);
-
+        RBatch batch = redissonClient.createBatch();
+        RScriptAsync script = batch.getScript(ByteArrayCodec.INSTANCE);
+        for (ScriptInvocation invocation : invocations) {
+            script.evalAsync(RScript.Mode.READ_WRITE, PUT_SCRIPT, RScript.ReturnType.INTEGER,
+                    invocation.keys, invocation.args.toArray());
+        }
         batch.execute();
-        
-        statistics.incrementValues();
-        statistics.incrementKeys();
+
+        invocations.forEach(this::evictLocalCopies);
+        invocations.forEach(this::recordPut);
     }
 
-    private void createParameterReferences(RBatch batch, List<SearchParameter> parameters, String uniqueId, long ttlMillis) {
-        // Sort parameters by level for consistent ordering
-        List<SearchParameter> sortedParams = parameters.stream()
-                .sorted(Comparator.comparingInt(SearchParameter::getLevel))
-                .collect(Collectors.toList());
+    /**
+     * Builds the {@link #PUT_SCRIPT} invocation for an item.
+     *
+     * @param replacedUniqueId uniqueId the item previously lived under, released in the same script, or null
+     */
+    private ScriptInvocation preparePut(CachedItem<T> cachedItem, long ttlMillis, String replacedUniqueId) {
+        String uniqueId = cachedItem.generateUniqueId();
 
         // Generate all possible combinations for hierarchical search
-        Set<String> patterns = generateHierarchicalPatterns(sortedParams);
-        
-        for (String pattern : patterns) {
-            RSetAsync<Object> paramSet = batch.getSet(PARAM_PREFIX + pattern);
-            paramSet.addAsync(uniqueId);
-            if (ttlMillis > 0) {
-                paramSet.expireAsync(ttlMillis, TimeUnit.MILLISECONDS);
-            }
-            statistics.incrementKeys();
+        long[] patterns = patternGenerator.hierarchicalPatterns(cachedItem.getParameters());
+
+        ScriptInvocation invocation = new ScriptInvocation(patterns.length);
+        invocation.keys.add(VALUE_PREFIX + uniqueId);
+        invocation.keys.add(METADATA_PREFIX + uniqueId);
+        invocation.keys.add(PRIMARY_KEY_PREFIX + cachedItem.getStringKey());
+        if (cachedItem.getLongKey() != null) {
+            invocation.keys.add(LONG_KEY_PREFIX + cachedItem.getLongKey());
+        }
+        int pointerCount = invocation.keys.size() - 2;
+        for (long pattern : patterns) {
+            invocation.keys.add(PARAM_PREFIX + PatternIds.toKey(pattern));
         }
-    }
 
-    private Set<String> generateHierarchicalPatterns(List<SearchParameter> sortedParams) {
-        Set<String> patterns = new HashSet<>();
-        
-        // Generate all possible combinations maintaining hierarchy
-        for (int i = 0; i < sortedParams.size(); i++) {
-            for (int j = i; j < sortedParams.size(); j++) {
-                List<SearchParameter> subList = sortedParams.subList(i, j + 1);
-                String pattern = subList.stream()
-                        .map(SearchParameter::toKey)
-                        .collect(Collectors.joining(">"));
-                patterns.add(pattern);
-            }
+        invocation.args.add(encode(cachedItem));
+        invocation.args.add(encode(uniqueId));
+        invocation.args.add(utf8(uniqueId));
+        invocation.args.add(utf8(Long.toString(Math.max(ttlMillis, 0))));
+        invocation.args.add(utf8(Integer.toString(pointerCount)));
+        invocation.args.add(utf8(Integer.toString(patterns.length)));
+
+        if (replacedUniqueId != null) {
+            invocation.keys.add(VALUE_PREFIX + replacedUniqueId);
+            invocation.keys.add(METADATA_PREFIX + replacedUniqueId);
+            invocation.args.add(utf8(replacedUniqueId));
+            invocation.args.add(encode(replacedUniqueId));
         }
-        
-        // Add individual parameter patterns
-        for (SearchParameter param : sortedParams) {
-            patterns.add(param.toKey());
+
+        return invocation;
+    }
+
+    private void recordPut(ScriptInvocation invocation) {
+        statistics.incrementValues();
+        statistics.incrementKeys();
+        for (int i = 0; i < invocation.patternCount; i++) {
+            statistics.incrementKeys();
         }
-        
-        return patterns;
     }
 
     // LINK OPERATIONS
@@ -148,54 +331,63 @@ public class HierarchicalCacheService<T> {
         }
 
         RBucket<String> longKeyBucket = redissonClient.getBucket(LONG_KEY_PREFIX + id);
-        if (longKeyBucket.get() != null) {
+        checkIdNotLinked(id, longKeyBucket.get());
+
+        RBucket<CachedItem<T>> valueBucket = redissonClient.getBucket(VALUE_PREFIX + existingUniqueId);
+        ScriptInvocation invocation = prepareLinkId(key, id, existingUniqueId, valueBucket.get());
+        if (invocation != null) {
+            evalWrite(PUT_SCRIPT, invocation);
+        }
+    }
+
+    public CompletableFuture<Void> linkAsync(String key, Long id) {
+        if (key == null || id == null) {
+            throw new IllegalArgumentException("Key and id cannot be null");
+        }
+
+        return redissonClient.<String>getBucket(PRIMARY_KEY_PREFIX + key).getAsync().toCompletableFuture()
+                .thenCompose(existingUniqueId -> {
+                    if (existingUniqueId == null) {
+                        throw new IllegalStateException("No cached item found for key: " + key);
+                    }
+
+                    CompletableFuture<String> linkedUniqueId = redissonClient.<String>getBucket(LONG_KEY_PREFIX + id)
+                            .getAsync().toCompletableFuture();
+                    CompletableFuture<CachedItem<T>> cachedItem = redissonClient.<CachedItem<T>>getBucket(VALUE_PREFIX + existingUniqueId)
+                            .getAsync().toCompletableFuture();
+
+                    return linkedUniqueId.thenCombine(cachedItem, (linked, item) -> {
+                        checkIdNotLinked(id, linked);
+                        return prepareLinkId(key, id, existingUniqueId, item);
+                    }).thenCompose(invocation -> evalWriteAsync(PUT_SCRIPT, invocation));
+                });
+    }
+
+    private void checkIdNotLinked(Long id, String linkedUniqueId) {
+        if (linkedUniqueId != null) {
             throw new IllegalStateException("ID " + id + " is already associated with another key");
         }
+    }
 
+    /**
+     * Builds the script invocation that moves an item to its key+id uniqueId, or returns null when the
+     * value has already disappeared.
+     */
+    private ScriptInvocation prepareLinkId(String key, Long id, String existingUniqueId, CachedItem<T> cachedItem) {
         // Check if the cached item already has an ID
-        RBucket<CachedItem<T>> valueBucket = redissonClient.getBucket(VALUE_PREFIX + existingUniqueId);
-        CachedItem<T> cachedItem = valueBucket.get();
-        
         if (cachedItem != null && cachedItem.getLongKey() != null) {
             throw new IllegalStateException("Key " + key + " already has an associated ID");
         }
 
-        // Create new cached item with the ID
-        if (cachedItem != null) {
-            CachedItem<T> newCachedItem = new CachedItem<>(key, id, cachedItem.getValue(), 
-                    cachedItem.getParameters(), cachedItem.getTtl());
-            String newUniqueId = newCachedItem.generateUniqueId();
-            
-            RBatch batch = redissonClient.createBatch();
-            
-            // Store new cached item
-            RBucketAsync<Object> newValueBucket = batch.getBucket(VALUE_PREFIX + newUniqueId);
-            if (cachedItem.getTtl() > 0) {
-                long remainingTtl = cachedItem.getTtl() - (System.currentTimeMillis() - cachedItem.getCreatedAt());
-                if (remainingTtl > 0) {
-                    newValueBucket.setAsync(newCachedItem, remainingTtl, TimeUnit.MILLISECONDS);
-                }
-            } else {
-                newValueBucket.setAsync(newCachedItem);
-            }
-            
-            // Update primary key reference
-            RBucketAsync<Object> primaryBucketBatch = batch.getBucket(PRIMARY_KEY_PREFIX + key);
-            primaryBucketBatch.setAsync(newUniqueId);
-            
-            // Create long key reference
-            RBucketAsync<Object> longKeyBucketBatch = batch.getBucket(LONG_KEY_PREFIX + id);
-            longKeyBucketBatch.setAsync(newUniqueId);
-            
-            // Update parameter references
-            updateParameterReferences(batch, cachedItem.getParameters(), existingUniqueId, newUniqueId, cachedItem.getTtl());
-            
-            // Remove old cached item
-            RBucketAsync<Object> oldValueBucket = batch.getBucket(VALUE_PREFIX + existingUniqueId);
-            oldValueBucket.deleteAsync();
-            
-            batch.execute();
+        if (cachedItem == null) {
+            return null;
         }
+
+        // Re-create the item under the key+id uniqueId, keeping its remaining lifetime
+        long remainingTtl = remainingTtl(cachedItem);
+        CachedItem<T> newCachedItem = new CachedItem<>(key, id, cachedItem.getValue(), 
+                cachedItem.getParameters(), remainingTtl);
+        return preparePut(newCachedItem, remainingTtl, existingUniqueId);
     }
 
     public void link(String key, List<SearchParameter> parameters) {
@@ -211,47 +403,15 @@ public class HierarchicalCacheService<T> {
         }
 
         RBucket<CachedItem<T>> valueBucket = redissonClient.getBucket(VALUE_PREFIX + uniqueId);
-        CachedItem<T> cachedItem = valueBucket.get();
-        
-        if (cachedItem == null) {
-            throw new IllegalStateException("Cached item not found");
-        }
-
-        // Check which parameters are new
-        List<SearchParameter> existingParams = cachedItem.getParameters();
-        List<SearchParameter> newParams = parameters.stream()
-                .filter(param -> !existingParams.contains(param))
-                .collect(Collectors.toList());
-
-        if (newParams.isEmpty()) {
-            throw new IllegalStateException("All parameters are already associated with this key");
-        }
-
-        // Combine existing and new parameters
-        List<SearchParameter> allParams = new ArrayList<>(existingParams);
-        allParams.addAll(newParams);
-
-        // Create new cached item with updated parameters
-        CachedItem<T> newCachedItem = new CachedItem<>(cachedItem.getStringKey(), 
-                cachedItem.getLongKey(), cachedItem.getValue(), allParams, cachedItem.getTtl());
+        evalWrite(PUT_SCRIPT, prepareLinkParameters(valueBucket.get(), parameters, "key"));
+    }
 
-        RBatch batch = redissonClient.createBatch();
-        
-        // Update cached item
-        RBucketAsync<Object> newValueBucket = batch.getBucket(VALUE_PREFIX + uniqueId);
-        if (cachedItem.getTtl() > 0) {
-            long remainingTtl = cachedItem.getTtl() - (System.currentTimeMillis() - cachedItem.getCreatedAt());
-            if (remainingTtl > 0) {
-                newValueBucket.setAsync(newCachedItem, remainingTtl, TimeUnit.MILLISECONDS);
-            }
-        } else {
-            newValueBucket.setAsync(newCachedItem);
+    public CompletableFuture<Void> linkAsync(String key, List<SearchParameter> parameters) {
+        if (key == null || parameters == null || parameters.isEmpty()) {
+            throw new IllegalArgumentException("Key and parameters cannot be null or empty");
         }
 
-        // Add new parameter references
-        createParameterReferences(batch, newParams, uniqueId, cachedItem.getTtl());
-
-        batch.execute();
+        return linkParametersAsync(PRIMARY_KEY_PREFIX + key, "No cached item found for key: " + key, parameters, "key");
     }
 
     public void link(Long id, List<SearchParameter> parameters) {
@@ -267,8 +427,38 @@ public class HierarchicalCacheService<T> {
         }
 
         RBucket<CachedItem<T>> valueBucket = redissonClient.getBucket(VALUE_PREFIX + uniqueId);
-        CachedItem<T> cachedItem = valueBucket.get();
-        
+        evalWrite(PUT_SCRIPT, prepareLinkParameters(valueBucket.get(), parameters, "ID"));
+    }
+
+    public CompletableFuture<Void> linkAsync(Long id, List<SearchParameter> parameters) {
+        if (id == null || parameters == null || parameters.isEmpty()) {
+            throw new IllegalArgumentException("ID and parameters cannot be null or empty");
+        }
+
+        return linkParametersAsync(LONG_KEY_PREFIX + id, "No cached item found for ID: " + id, parameters, "ID");
+    }
+
+    private CompletableFuture<Void> linkParametersAsync(String referenceKey, String notFoundMessage,
+            List<SearchParameter> parameters, String owner) {
+        return redissonClient.<String>getBucket(referenceKey).getAsync().toCompletableFuture()
+                .thenCompose(uniqueId -> {
+                    if (uniqueId == null) {
+                        throw new IllegalStateException(notFoundMessage);
+                    }
+
+                    return redissonClient.<CachedItem<T>>getBucket(VALUE_PREFIX + uniqueId).getAsync().toCompletableFuture()
+                            .thenCompose(cachedItem -> evalWriteAsync(PUT_SCRIPT,
+                                    prepareLinkParameters(cachedItem, parameters, owner)));
+                });
+    }
+
+    /**
+     * Builds the script invocation that rewrites the item with the parameters not yet associated with it.
+     *
+     * @param owner "key" or "ID", used in the error message when nothing is new
+     */
+    private ScriptInvocation prepareLinkParameters(CachedItem<T> cachedItem, List<SearchParameter> parameters,
+            String owner) {
         if (cachedItem == null) {
             throw new IllegalStateException("Cached item not found");
         }
@@ -280,58 +470,32 @@ public class HierarchicalCacheService<T> {
                 .collect(Collectors.toList());
 
         if (newParams.isEmpty()) {
-            throw new IllegalStateException("All parameters are already associated with this ID");
+            throw new IllegalStateException("All parameters are already associated with this " + owner);
         }
 
         // Combine existing and new parameters
         List<SearchParameter> allParams = new ArrayList<>(existingParams);
         allParams.addAll(newParams);
 
-        // Create new cached item with updated parameters
+        // Create new cached item with updated parameters, keeping its remaining lifetime
+        long remainingTtl = remainingTtl(cachedItem);
         CachedItem<T> newCachedItem = new CachedItem<>(cachedItem.getStringKey(), 
-                cachedItem.getLongKey(), cachedItem.getValue(), allParams, cachedItem.getTtl());
-
-        RBatch batch = redissonClient.createBatch();
-        
-        // Update cached item
-        RBucketAsync<Object> newValueBucket = batch.getBucket(VALUE_PREFIX + uniqueId);
-        if (cachedItem.getTtl() > 0) {
-            long remainingTtl = cachedItem.getTtl() - (System.currentTimeMillis() - cachedItem.getCreatedAt());
-            if (remainingTtl > 0) {
-                newValueBucket.setAsync(newCachedItem, remainingTtl, TimeUnit.MILLISECONDS);
-            }
-        } else {
-            newValueBucket.setAsync(newCachedItem);
-        }
-
-        // Add new parameter references
-        createParameterReferences(batch, newParams, uniqueId, cachedItem.getTtl());
-
-        batch.execute();
+                cachedItem.getLongKey(), cachedItem.getValue(), allParams, remainingTtl);
+        return preparePut(newCachedItem, remainingTtl, null);
     }
 
-    private void updateParameterReferences(RBatch batch, List<SearchParameter> parameters, 
-            String oldUniqueId, String newUniqueId, long ttl) {
-        Set<String> patterns = generateHierarchicalPatterns(parameters.stream()
-                .sorted(Comparator.comparingInt(SearchParameter::getLevel))
-                .collect(Collectors.toList()));
-        
-        for (String pattern : patterns) {
-            RSetAsync<Object> paramSet = batch.getSet(PARAM_PREFIX + pattern);
-            paramSet.removeAsync(oldUniqueId);
-            paramSet.addAsync(newUniqueId);
-            if (ttl > 0) {
-                paramSet.expireAsync(ttl, TimeUnit.MILLISECONDS);
-            }
+    private long remainingTtl(CachedItem<T> cachedItem) {
+        if (cachedItem.getTtl() <= 0) {
+            return 0;
         }
+        return Math.max(1, cachedItem.getTtl() - (System.currentTimeMillis() - cachedItem.getCreatedAt()));
     }
 
     // GET OPERATIONS
     public Optional<T> get(String key, Class<T> valueType) {
         if (key == null) return Optional.empty();
         
-        RBucket<String> primaryBucket = redissonClient.getBucket(PRIMARY_KEY_PREFIX + key);
-        String uniqueId = primaryBucket.get();
+        String uniqueId = readPrimaryKey(key);
         
         if (uniqueId == null) {
             statistics.incrementMisses();
@@ -380,45 +544,346 @@ public class HierarchicalCacheService<T> {
         return getByParameters(parameters, valueType);
     }
 
+    /**
+     * Streaming form of {@link #get(List, Class)} for searches with many matches: the matching uniqueIds are
+     * paged through with {@code SSCAN} and their values loaded {@value #STREAM_PAGE_SIZE} at a time as the stream
+     * is consumed, so memory use stays flat however many items match. Unlike the search script the scan is not
+     * atomic: items written or removed meanwhile may or may not be returned, and an item may be returned twice
+     * if its parameter set is resized during the scan.
+     */
+    public Stream<T> stream(List<SearchParameter> parameters, Class<T> valueType) {
+        if (parameters == null || parameters.isEmpty()) {
+            statistics.incrementMisses();
+            return Stream.empty();
+        }
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(searchIdPages(parameters), Spliterator.NONNULL), false)
+                .flatMap(page -> loadSearchPage(page).stream());
+    }
+
+    /**
+     * Looks up many string keys with two MGETs - key pointers, then values - regardless of the number of keys.
+     *
+     * @return values of the keys found; missing and expired keys are left out
+     */
+    public Map<String, T> getAll(Collection<String> keys, Class<T> valueType) {
+        return getAllByReference(keys, PRIMARY_KEY_PREFIX);
+    }
+
+    /**
+     * Looks up many long keys with two MGETs - key pointers, then values - regardless of the number of ids.
+     *
+     * @return values of the ids found; missing and expired ids are left out
+     */
+    public Map<Long, T> getAllByIds(Collection<Long> ids, Class<T> valueType) {
+        return getAllByReference(ids, LONG_KEY_PREFIX);
+    }
+
+    private <K> Map<K, T> getAllByReference(Collection<K> keys, String referencePrefix) {
+        if (keys == null || keys.isEmpty()) return Collections.emptyMap();
+
+        Map<String, K> keysByReference = new LinkedHashMap<>();
+        for (K key : keys) {
+            if (key != null) {
+                keysByReference.put(referencePrefix + key, key);
+            }
+        }
+        if (keysByReference.isEmpty()) return Collections.emptyMap();
+
+        RBuckets buckets = redissonClient.getBuckets();
+        Map<String, String> uniqueIds = buckets.get(keysByReference.keySet().toArray(new String[0]));
+
+        Map<String, List<K>> keysByValueKey = new LinkedHashMap<>();
+        for (Map.Entry<String, K> entry : keysByReference.entrySet()) {
+            String uniqueId = uniqueIds.get(entry.getKey());
+            if (uniqueId == null) {
+                statistics.incrementMisses();
+            } else {
+                keysByValueKey.computeIfAbsent(VALUE_PREFIX + uniqueId, k -> new ArrayList<>(1)).add(entry.getValue());
+            }
+        }
+        if (keysByValueKey.isEmpty()) return Collections.emptyMap();
+
+        Map<String, CachedItem<T>> cachedItems = buckets.get(keysByValueKey.keySet().toArray(new String[0]));
+
+        Map<K, T> results = new LinkedHashMap<>();
+        List<CachedItem<T>> expiredItems = new ArrayList<>();
+        for (Map.Entry<String, List<K>> entry : keysByValueKey.entrySet()) {
+            CachedItem<T> cachedItem = cachedItems.get(entry.getKey());
+            if (cachedItem == null || cachedItem.isExpired()) {
+                if (cachedItem != null) {
+                    expiredItems.add(cachedItem);
+                }
+                statistics.incrementMisses();
+            } else {
+                statistics.incrementHits();
+                for (K key : entry.getValue()) {
+                    results.put(key, cachedItem.getValue());
+                }
+            }
+        }
+
+        if (!expiredItems.isEmpty()) {
+            invalidateExpiredAsync(expiredItems);
+        }
+
+        return results;
+    }
+
+    public CompletableFuture<Optional<T>> getAsync(String key, Class<T> valueType) {
+        if (key == null) return CompletableFuture.completedFuture(Optional.empty());
+
+        return getByReferenceAsync(PRIMARY_KEY_PREFIX + key);
+    }
+
+    public CompletableFuture<Optional<T>> getAsync(String key, Long id, Class<T> valueType) {
+        if (key == null || id == null) return CompletableFuture.completedFuture(Optional.empty());
+
+        return getByUniqueIdAsync(key + ":" + id);
+    }
+
+    public CompletableFuture<Optional<T>> getAsync(Long id, Class<T> valueType) {
+        if (id == null) return CompletableFuture.completedFuture(Optional.empty());
+
+        return getByReferenceAsync(LONG_KEY_PREFIX + id);
+    }
+
+    public CompletableFuture<List<T>> getAsync(String key, List<SearchParameter> parameters, Class<T> valueType) {
+        if (parameters == null || parameters.isEmpty()) {
+            return getAsync(key, valueType)
+                    .thenApply(single -> single.map(Collections::singletonList).orElse(Collections.emptyList()));
+        }
+
+        return getByParametersAsync(parameters);
+    }
+
+    public CompletableFuture<List<T>> getAsync(List<SearchParameter> parameters, Class<T> valueType) {
+        if (parameters == null || parameters.isEmpty()) {
+            statistics.incrementMisses();
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+
+        return getByParametersAsync(parameters);
+    }
+
+    private CompletableFuture<Optional<T>> getByReferenceAsync(String referenceKey) {
+        return redissonClient.<String>getBucket(referenceKey).getAsync().toCompletableFuture()
+                .thenCompose(uniqueId -> {
+                    if (uniqueId == null) {
+                        statistics.incrementMisses();
+                        return CompletableFuture.completedFuture(Optional.<T>empty());
+                    }
+                    return getByUniqueIdAsync(uniqueId);
+                });
+    }
+
+    private CompletableFuture<Optional<T>> getByUniqueIdAsync(String uniqueId) {
+        RLocalCachedMap<String, CachedItem<T>> local = localValues;
+        CachedItem<T> localItem = local != null ? local.get(uniqueId) : null;
+        if (localItem != null) {
+            return CompletableFuture.completedFuture(resolveCachedItem(localItem));
+        }
+        return redissonClient.<CachedItem<T>>getBucket(VALUE_PREFIX + uniqueId).getAsync().toCompletableFuture()
+                .thenApply(this::resolveCachedItem);
+    }
+
     private Optional<T> getByUniqueId(String uniqueId, Class<T> valueType) {
-        RBucket<CachedItem<T>> valueBucket = redissonClient.getBucket(VALUE_PREFIX + uniqueId);
-        CachedItem<T> cachedItem = valueBucket.get();
-        
+        return getItemByUniqueId(uniqueId).map(CachedItem::getValue);
+    }
+
+    private Optional<CachedItem<T>> getItemByUniqueId(String uniqueId) {
+        return resolveItem(readItem(uniqueId));
+    }
+
+    private CachedItem<T> readItem(String uniqueId) {
+        RLocalCachedMap<String, CachedItem<T>> local = localValues;
+        if (local == null) {
+            RBucket<CachedItem<T>> valueBucket = redissonClient.getBucket(VALUE_PREFIX + uniqueId);
+            return valueBucket.get();
+        }
+
+        CachedItem<T> cachedItem = local.get(uniqueId);
+        if (cachedItem == null) {
+            // Read the stored bytes, so the check after sharing can compare them exactly
+            RBucket<byte[]> valueBucket = redissonClient.getBucket(VALUE_PREFIX + uniqueId, ByteArrayCodec.INSTANCE);
+            byte[] encoded = valueBucket.get();
+            cachedItem = encoded != null ? decode(encoded) : null;
+            if (cachedItem != null && !cachedItem.isExpired()) {
+                shareLocally(local, uniqueId, cachedItem, valueBucket, encoded);
+            }
+        }
+        return cachedItem;
+    }
+
+    private String readPrimaryKey(String key) {
+        RLocalCachedMap<String, String> local = localPrimaryKeys;
+        String uniqueId = local != null ? local.get(key) : null;
+        if (uniqueId == null) {
+            RBucket<String> primaryBucket = redissonClient.getBucket(PRIMARY_KEY_PREFIX + key);
+            uniqueId = primaryBucket.get();
+            if (local != null && uniqueId != null) {
+                shareLocally(local, key, uniqueId, primaryBucket, uniqueId);
+            }
+        }
+        return uniqueId;
+    }
+
+    /**
+     * Shares an entry just read from Redis with the local cached maps, then reads it again. A write or
+     * invalidation that reached Redis after the first read has already evicted the local copies, before this one
+     * existed, so the copy would outlive it; when the second read differs the copy is removed again on every
+     * node. The removal is only sent once the shared copy has been published, so no node keeps it.
+     */
+    private <V> void shareLocally(RLocalCachedMap<String, V> local, String key, V value, RBucket<?> bucket,
+            Object read) {
+        local.fastPutAsync(key, value)
+                .thenCompose(added -> bucket.getAsync())
+                .whenComplete((current, e) -> {
+                    if (e != null || !Objects.deepEquals(read, current)) {
+                        local.fastRemoveAsync(key);
+                    }
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private CachedItem<T> decode(byte[] encoded) {
+        ByteBuf buf = Unpooled.wrappedBuffer(encoded);
+        try {
+            return (CachedItem<T>) codec.getValueDecoder().decode(buf, new State());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to decode cache value", e);
+        } finally {
+            buf.release();
+        }
+    }
+
+    private Optional<T> resolveCachedItem(CachedItem<T> cachedItem) {
+        return resolveItem(cachedItem).map(CachedItem::getValue);
+    }
+
+    private Optional<CachedItem<T>> resolveItem(CachedItem<T> cachedItem) {
         if (cachedItem == null || cachedItem.isExpired()) {
             if (cachedItem != null && cachedItem.isExpired()) {
-                invalidateByUniqueId(uniqueId);
+                invalidateExpiredAsync(Collections.singletonList(cachedItem));
             }
             statistics.incrementMisses();
             return Optional.empty();
         }
         
         statistics.incrementHits();
-        return Optional.of(cachedItem.getValue());
+        return Optional.of(cachedItem);
     }
 
     private List<T> getByParameters(List<SearchParameter> parameters, Class<T> valueType) {
-        // Sort parameters by level
-        List<SearchParameter> sortedParams = parameters.stream()
-                .sorted(Comparator.comparingInt(SearchParameter::getLevel))
-                .collect(Collectors.toList());
+        List<CachedItem<T>> cachedItems = redissonClient.getScript()
+                .eval(RScript.Mode.READ_ONLY, SEARCH_SCRIPT, RScript.ReturnType.MULTI, searchSetNames(parameters));
+        return collectSearchResults(cachedItems);
+    }
 
-        // Try exact match first
-        String exactPattern = sortedParams.stream()
-                .map(SearchParameter::toKey)
-                .collect(Collectors.joining(">"));
+    private CompletableFuture<List<T>> getByParametersAsync(List<SearchParameter> parameters) {
+        return redissonClient.getScript()
+                .<List<CachedItem<T>>>evalAsync(RScript.Mode.READ_ONLY, SEARCH_SCRIPT, RScript.ReturnType.MULTI,
+                        searchSetNames(parameters))
+                .toCompletableFuture()
+                .thenApply(this::collectSearchResults);
+    }
 
-        Set<String> uniqueIds = getUniqueIdsByPattern(exactPattern);
-        
-        if (uniqueIds.isEmpty()) {
-            // Try hierarchical degradation - find items with more specific patterns
-            uniqueIds = findItemsWithHierarchicalDegradation(sortedParams);
+    /**
+     * Keys for {@link #SEARCH_SCRIPT}: the exact pattern set first, then hierarchical degradation - an item
+     * is referenced by a composite pattern containing all search parameters exactly when it belongs to each
+     * single-parameter set.
+     */
+    private List<Object> searchSetNames(List<SearchParameter> parameters) {
+        List<Object> setNames = new ArrayList<>(parameters.size() + 1);
+        setNames.add(PARAM_PREFIX + PatternIds.toKey(patternGenerator.exactPattern(parameters)));
+        if (parameters.size() > 1) {
+            for (SearchParameter param : parameters) {
+                String setName = PARAM_PREFIX + PatternIds.toKey(patternGenerator.singlePattern(param));
+                if (!setNames.contains(setName)) {
+                    setNames.add(setName);
+                }
+            }
         }
+        return setNames;
+    }
 
-        List<T> results = new ArrayList<>();
-        for (String uniqueId : uniqueIds) {
-            Optional<T> item = getByUniqueId(uniqueId, valueType);
-            item.ifPresent(results::add);
+    /**
+     * Pages of the uniqueIds {@link #SEARCH_SCRIPT} would return: the exact pattern set or, when it is empty,
+     * the smallest single-parameter set with each page narrowed to the ids every other set contains.
+     */
+    private Iterator<List<String>> searchIdPages(List<SearchParameter> parameters) {
+        List<Object> setNames = searchSetNames(parameters);
+        RSet<String> exactSet = redissonClient.getSet((String) setNames.get(0), StringCodec.INSTANCE);
+        if (setNames.size() == 1 || exactSet.isExists()) {
+            return pages(exactSet.iterator(STREAM_PAGE_SIZE), UnaryOperator.identity());
+        }
+
+        List<RSet<String>> parameterSets = new ArrayList<>(setNames.size() - 1);
+        int smallestIndex = 0;
+        int smallestSize = Integer.MAX_VALUE;
+        for (Object setName : setNames.subList(1, setNames.size())) {
+            RSet<String> set = redissonClient.getSet((String) setName, StringCodec.INSTANCE);
+            int size = set.size();
+            if (size == 0) {
+                return Collections.emptyIterator();
+            }
+            if (size < smallestSize) {
+                smallestIndex = parameterSets.size();
+                smallestSize = size;
+            }
+            parameterSets.add(set);
+        }
+        RSet<String> smallest = parameterSets.remove(smallestIndex);
+
+        return pages(smallest.iterator(STREAM_PAGE_SIZE), page -> {
+            Collection<String> kept = page;
+            for (RSet<String> set : parameterSets) {
+                if (kept.isEmpty()) break;
+                kept = set.containsEach(kept);
+            }
+            return new ArrayList<>(kept);
+        });
+    }
+
+    private static Iterator<List<String>> pages(Iterator<String> uniqueIds, UnaryOperator<List<String>> narrow) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return uniqueIds.hasNext();
+            }
+
+            @Override
+            public List<String> next() {
+                if (!uniqueIds.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                List<String> page = new ArrayList<>(STREAM_PAGE_SIZE);
+                while (page.size() < STREAM_PAGE_SIZE && uniqueIds.hasNext()) {
+                    page.add(uniqueIds.next());
+                }
+                return narrow.apply(page);
+            }
+        };
+    }
+
+    private List<T> loadSearchPage(List<String> uniqueIds) {
+        if (uniqueIds.isEmpty()) return Collections.emptyList();
+
+        String[] valueKeys = new String[uniqueIds.size()];
+        for (int i = 0; i < valueKeys.length; i++) {
+            valueKeys[i] = VALUE_PREFIX + uniqueIds.get(i);
         }
+        Map<String, CachedItem<T>> cachedItems = redissonClient.getBuckets().get(valueKeys);
+
+        List<CachedItem<T>> page = new ArrayList<>(valueKeys.length);
+        for (String valueKey : valueKeys) {
+            page.add(cachedItems.get(valueKey));
+        }
+        return resolveSearchItems(page);
+    }
+
+    private List<T> collectSearchResults(List<CachedItem<T>> cachedItems) {
+        List<T> results = resolveSearchItems(cachedItems);
 
         if (results.isEmpty()) {
             statistics.incrementMisses();
@@ -429,70 +894,51 @@ public class HierarchicalCacheService<T> {
         return results;
     }
 
-    private Set<String> getUniqueIdsByPattern(String pattern) {
-        RSet<String> paramSet = redissonClient.getSet(PARAM_PREFIX + pattern);
-        return new HashSet<>(paramSet.readAll());
-    }
-
-    private Set<String> findItemsWithHierarchicalDegradation(List<SearchParameter> searchParams) {
-        Set<String> allUniqueIds = new HashSet<>();
-        
-        // Get all possible patterns and find matches
-        RKeys keys = redissonClient.getKeys();
-        Iterable<String> paramKeys = keys.getKeysByPattern(PARAM_PREFIX + "*");
-        
-        for (String key : paramKeys) {
-            String pattern = key.substring(PARAM_PREFIX.length());
-            if (patternMatches(pattern, searchParams)) {
-                RSet<String> paramSet = redissonClient.getSet(key);
-                allUniqueIds.addAll(paramSet.readAll());
+    private List<T> resolveSearchItems(List<CachedItem<T>> cachedItems) {
+        List<T> results = new ArrayList<>(cachedItems.size());
+        List<CachedItem<T>> expiredItems = new ArrayList<>();
+        for (CachedItem<T> cachedItem : cachedItems) {
+            if (cachedItem == null) {
+                statistics.incrementMisses();
+            } else if (cachedItem.isExpired()) {
+                expiredItems.add(cachedItem);
+                statistics.incrementMisses();
+            } else {
+                statistics.incrementHits();
+                results.add(cachedItem.getValue());
             }
         }
-        
-        return allUniqueIds;
-    }
 
-    private boolean patternMatches(String pattern, List<SearchParameter> searchParams) {
-        String[] patternParts = pattern.split(">");
-        Set<String> searchParamKeys = searchParams.stream()
-                .map(SearchParameter::toKey)
-                .collect(Collectors.toSet());
-        
-        // Check if all search parameters are contained in the pattern
-        for (String part : patternParts) {
-            if (searchParamKeys.contains(part)) {
-                searchParamKeys.remove(part);
-            }
+        if (!expiredItems.isEmpty()) {
+            invalidateExpiredAsync(expiredItems);
         }
-        
-        return searchParamKeys.isEmpty();
+
+        return results;
     }
 
     // GET OR COMPUTE OPERATIONS
     public T getOrCompute(String key, Class<T> valueType, Supplier<T> supplier) {
-        Optional<T> cached = get(key, valueType);
+        String flightKey = SingleFlight.flightKey(key, null);
+        Optional<CachedItem<T>> cached = getItem(key, null);
         if (cached.isPresent()) {
-            return cached.get();
+            refreshEarlyIfDue(flightKey, cached.get(), supplier);
+            return cached.get().getValue();
         }
-        
-        T computed = supplier.get();
-        if (computed != null) {
-            put(key, Collections.emptyList(), computed);
-        }
-        return computed;
+
+        return coalesce(flightKey, () -> peek(key, null),
+                () -> computeAndPut(key, null, Collections.emptyList(), defaultTtlMillis, supplier));
     }
 
     public T getOrCompute(String key, Long id, Class<T> valueType, Supplier<T> supplier) {
-        Optional<T> cached = get(key, id, valueType);
+        String flightKey = SingleFlight.flightKey(key, id);
+        Optional<CachedItem<T>> cached = getItem(key, id);
         if (cached.isPresent()) {
-            return cached.get();
+            refreshEarlyIfDue(flightKey, cached.get(), supplier);
+            return cached.get().getValue();
         }
-        
-        T computed = supplier.get();
-        if (computed != null) {
-            put(key, id, Collections.emptyList(), computed);
-        }
-        return computed;
+
+        return coalesce(flightKey, () -> peek(key, id),
+                () -> computeAndPut(key, id, Collections.emptyList(), defaultTtlMillis, supplier));
     }
 
     public T getOrCompute(Long id, Class<T> valueType, Supplier<T> supplier) {
@@ -500,13 +946,18 @@ public class HierarchicalCacheService<T> {
         if (cached.isPresent()) {
             return cached.get();
         }
-        
-        T computed = supplier.get();
-        if (computed != null) {
-            // Cannot put with only ID, need at least a string key
-            throw new IllegalStateException("Cannot cache item with only Long ID - string key required");
-        }
-        return computed;
+
+        return coalesce(SingleFlight.flightKey(null, id), () -> {
+            String uniqueId = redissonClient.<String>getBucket(LONG_KEY_PREFIX + id).get();
+            return uniqueId != null ? liveValue(readItem(uniqueId)) : Optional.<T>empty();
+        }, () -> {
+            T computed = supplier.get();
+            if (computed != null) {
+                // Cannot put with only ID, need at least a string key
+                throw new IllegalStateException("Cannot cache item with only Long ID - string key required");
+            }
+            return computed;
+        });
     }
 
     public List<T> getOrCompute(List<SearchParameter> parameters, Class<T> valueType, Supplier<List<T>> supplier) {
@@ -515,28 +966,202 @@ public class HierarchicalCacheService<T> {
             return cached;
         }
         
-        List<T> computed = supplier.get();
-        // Note: Cannot automatically cache computed results without explicit keys
+        // Note: Cannot automatically cache computed results without explicit keys, but concurrent
+        // callers still share a single supplier run
+        List<T> computed = searchFlights.execute(SingleFlight.flightKey(parameters), supplier);
         return computed != null ? computed : Collections.emptyList();
     }
 
+    /**
+     * Lets {@code getOrCompute} hits recompute a value on {@code executor} before it expires, following
+     * {@link CachedItem#shouldRefreshEarly(double)}; the caller still gets the current value. At most one
+     * refresh per key runs in this JVM, and a miss during it waits for it like any other computation.
+     * A {@code beta} of 0 turns early refresh off.
+     */
+    public void enableEarlyRefresh(double beta, Executor executor) {
+        if (beta < 0 || executor == null) {
+            throw new IllegalArgumentException("Beta must not be negative and executor cannot be null");
+        }
+        this.refreshExecutor = executor;
+        this.earlyRefreshBeta = beta;
+    }
+
+    /**
+     * Keeps up to {@code cacheSize} items, and as many primary key pointers, in Redisson local cached maps for at
+     * most {@code timeToLiveMillis}. The maps hold data only in the JVM; Redis carries their sync messages. A local
+     * miss reads the Redis buckets as before and shares the result with the other nodes' maps, withdrawing it
+     * again if Redis changed meanwhile, and each write or invalidation evicts the affected entries on every node
+     * once Redis has applied it. The buckets, scripts and
+     * parameter searches are unchanged, so nodes with and without local storage can share one Redis.
+     */
+    public void enableLocalCachedStorage(int cacheSize, long timeToLiveMillis) {
+        if (cacheSize <= 0 || timeToLiveMillis <= 0) {
+            throw new IllegalArgumentException("Local cache size and time to live must be positive");
+        }
+        this.localPrimaryKeys = redissonClient.getLocalCachedMap(
+                localCachedMapOptions(LOCAL_PRIMARY_MAP, cacheSize, timeToLiveMillis));
+        this.localValues = redissonClient.getLocalCachedMap(
+                localCachedMapOptions(LOCAL_VALUE_MAP, cacheSize, timeToLiveMillis));
+    }
+
+    private static <V> LocalCachedMapOptions<String, V> localCachedMapOptions(String name, int cacheSize,
+            long timeToLiveMillis) {
+        return LocalCachedMapOptions.<String, V>name(name)
+                .storeMode(LocalCachedMapOptions.StoreMode.LOCALCACHE)
+                // Entries loaded by one node are pushed to the others; with INVALIDATE every miss would evict the
+                // other nodes' copies. A pushed entry found stale is removed again (see shareLocally)
+                .syncStrategy(LocalCachedMapOptions.SyncStrategy.UPDATE)
+                // Sync messages missed while disconnected cannot be replayed
+                .reconnectionStrategy(LocalCachedMapOptions.ReconnectionStrategy.CLEAR)
+                .evictionPolicy(LocalCachedMapOptions.EvictionPolicy.LRU)
+                .cacheSize(cacheSize)
+                .timeToLive(Duration.ofMillis(timeToLiveMillis));
+    }
+
+    /**
+     * Drops the local copies of the values and primary key pointers a script invocation has written or removed.
+     */
+    private void evictLocalCopies(ScriptInvocation invocation) {
+        RLocalCachedMap<String, CachedItem<T>> values = localValues;
+        RLocalCachedMap<String, String> primaryKeys = localPrimaryKeys;
+        if (values == null || invocation == null) return;
+
+        for (Object key : invocation.keys) {
+            String name = (String) key;
+            if (name.startsWith(VALUE_PREFIX)) {
+                values.fastRemoveAsync(name.substring(VALUE_PREFIX.length()));
+            } else if (name.startsWith(PRIMARY_KEY_PREFIX)) {
+                primaryKeys.fastRemoveAsync(name.substring(PRIMARY_KEY_PREFIX.length()));
+            }
+        }
+    }
+
+    /**
+     * The client this service talks to Redis through, for components that share its connection.
+     */
+    public RedissonClient getRedissonClient() {
+        return redissonClient;
+    }
+
+    /**
+     * Coalesces cluster-wide computation of a missing value on top of the per-JVM single flight.
+     * Waits at most {@code waitMillis} for another node's computation; a lock is held for at most
+     * {@code leaseMillis}, so a crashed node cannot block a key for longer than that.
+     */
+    public void enableClusterSingleFlight(long waitMillis, long leaseMillis) {
+        this.clusterSingleFlight = new DistributedSingleFlight(redissonClient, waitMillis, leaseMillis);
+    }
+
+    /**
+     * Runs the loader once per JVM for concurrent misses on the same key and, when enabled, once per cluster.
+     * The lookup re-checks Redis first, because the value may have landed since the caller's miss.
+     */
+    private T coalesce(String flightKey, Supplier<Optional<T>> lookup, Supplier<T> loader) {
+        return flights.execute(flightKey, () -> {
+            DistributedSingleFlight cluster = clusterSingleFlight;
+            if (cluster != null) {
+                return cluster.execute(flightKey, lookup, loader);
+            }
+            Optional<T> cached = lookup.get();
+            return cached.isPresent() ? cached.get() : loader.get();
+        });
+    }
+
+    /**
+     * Re-reads a value inside {@link #coalesce} without counting a hit or miss; the caller's first lookup
+     * already counted the miss that led here.
+     */
+    private Optional<T> peek(String key, Long id) {
+        String uniqueId = id != null ? key + ":" + id : readPrimaryKey(key);
+        return uniqueId != null ? liveValue(readItem(uniqueId)) : Optional.empty();
+    }
+
+    private static <V> Optional<V> liveValue(CachedItem<V> cachedItem) {
+        return cachedItem == null || cachedItem.isExpired() ? Optional.empty() : Optional.of(cachedItem.getValue());
+    }
+
+    /**
+     * Looks up the live item for a key, or for a key and id, counting the hit or miss like {@link #get}.
+     */
+    private Optional<CachedItem<T>> getItem(String key, Long id) {
+        if (key == null) return Optional.empty();
+
+        String uniqueId = id != null ? key + ":" + id : readPrimaryKey(key);
+        if (uniqueId == null) {
+            statistics.incrementMisses();
+            return Optional.empty();
+        }
+
+        return getItemByUniqueId(uniqueId);
+    }
+
+    /**
+     * Runs the supplier and caches a non-null result together with how long it took, which
+     * {@link CachedItem#shouldRefreshEarly(double)} uses to decide how early to refresh.
+     */
+    private T computeAndPut(String key, Long id, List<SearchParameter> parameters, long ttlMillis, Supplier<T> supplier) {
+        long start = System.nanoTime();
+        T computed = supplier.get();
+        if (computed != null) {
+            if (key == null) {
+                throw new IllegalArgumentException("Key, parameters, and value cannot be null");
+            }
+            long computeMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            putItem(new CachedItem<>(key, id, computed, parameters, ttlMillis, System.currentTimeMillis(), computeMillis));
+        }
+        return computed;
+    }
+
+    private void refreshEarlyIfDue(String flightKey, CachedItem<T> cachedItem, Supplier<T> supplier) {
+        double beta = earlyRefreshBeta;
+        if (beta <= 0 || !cachedItem.shouldRefreshEarly(beta) || !refreshing.add(flightKey)) {
+            return;
+        }
+
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    // Keeps the item's parameters and full TTL; a miss on the key meanwhile joins this flight
+                    flights.execute(flightKey, () -> computeAndPut(cachedItem.getStringKey(), cachedItem.getLongKey(),
+                            cachedItem.getParameters(), cachedItem.getTtl(), supplier));
+                } catch (RuntimeException e) {
+                    System.err.println("Error during early refresh of '" + flightKey + "': " + e.getMessage());
+                } finally {
+                    refreshing.remove(flightKey);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(flightKey);
+        }
+    }
+
     // INVALIDATION OPERATIONS
     public void invalidate(String key) {
         if (key == null) return;
 
         try {
-            RBucket<String> primaryBucket = redissonClient.getBucket(PRIMARY_KEY_PREFIX + key);
-            String uniqueId = primaryBucket.get();
-
-            if (uniqueId != null) {
-                invalidateByUniqueId(uniqueId);
-            }
+            invalidateOrThrow(key);
         } catch (Exception e) {
             System.err.println("Error during invalidation of key '" + key + "': " + e.getMessage());
             // Don't rethrow - invalidation should be best-effort during cleanup
         }
     }
 
+    /**
+     * Same as {@link #invalidate(String)}, but a Redis failure propagates instead of being logged, for callers
+     * that must know the item is gone.
+     */
+    public void invalidateOrThrow(String key) {
+        if (key == null) return;
+
+        RBucket<String> primaryBucket = redissonClient.getBucket(PRIMARY_KEY_PREFIX + key);
+        String uniqueId = primaryBucket.get();
+
+        if (uniqueId != null) {
+            invalidateByUniqueId(uniqueId);
+        }
+    }
+
     public void invalidate(Long id) {
         if (id == null) return;
 
@@ -555,89 +1180,179 @@ public class HierarchicalCacheService<T> {
     public void invalidate(String key, Long id) {
         if (key == null || id == null) return;
 
-        // First try to find by primary key
+        // The primary key points at key:id only while the item carries this Long ID
         RBucket<String> primaryBucket = redissonClient.getBucket(PRIMARY_KEY_PREFIX + key);
         String uniqueId = primaryBucket.get();
 
-        if (uniqueId != null) {
-            // Verify this item also has the correct Long ID
-            RBucket<CachedItem<T>> valueBucket = redissonClient.getBucket(VALUE_PREFIX + uniqueId);
-            CachedItem<T> cachedItem = valueBucket.get();
-
-            if (cachedItem != null && Objects.equals(cachedItem.getLongKey(), id)) {
-                invalidateByUniqueId(uniqueId);
-            }
+        if (uniqueId != null && uniqueId.equals(key + ":" + id)) {
+            invalidateByUniqueId(uniqueId);
         }
     }
 
+    public CompletableFuture<Void> invalidateAsync(String key) {
+        if (key == null) return CompletableFuture.completedFuture(null);
+
+        return invalidateByReferenceAsync(PRIMARY_KEY_PREFIX + key, "key '" + key + "'");
+    }
+
+    public CompletableFuture<Void> invalidateAsync(Long id) {
+        if (id == null) return CompletableFuture.completedFuture(null);
+
+        return invalidateByReferenceAsync(LONG_KEY_PREFIX + id, "ID '" + id + "'");
+    }
+
+    public CompletableFuture<Void> invalidateAsync(String key, Long id) {
+        if (key == null || id == null) return CompletableFuture.completedFuture(null);
+
+        return redissonClient.<String>getBucket(PRIMARY_KEY_PREFIX + key).getAsync().toCompletableFuture()
+                .thenCompose(uniqueId -> uniqueId != null && uniqueId.equals(key + ":" + id)
+                        ? invalidateByUniqueIdAsync(uniqueId)
+                        : CompletableFuture.<Void>completedFuture(null));
+    }
+
+    private CompletableFuture<Void> invalidateByReferenceAsync(String referenceKey, String description) {
+        return redissonClient.<String>getBucket(referenceKey).getAsync().toCompletableFuture()
+                .thenCompose(uniqueId -> uniqueId == null
+                        ? CompletableFuture.<Void>completedFuture(null)
+                        : invalidateByUniqueIdAsync(uniqueId))
+                .exceptionally(e -> {
+                    // Best-effort, like the blocking variants
+                    System.err.println("Error during invalidation of " + description + ": " + e.getMessage());
+                    return null;
+                });
+    }
+
     public void invalidateByPattern(List<SearchParameter> parameters) {
         if (parameters == null || parameters.isEmpty()) return;
         
-        Set<String> patterns = generateHierarchicalPatterns(parameters.stream()
-                .sorted(Comparator.comparingInt(SearchParameter::getLevel))
-                .collect(Collectors.toList()));
-        
-        Set<String> uniqueIds = new HashSet<>();
-        for (String pattern : patterns) {
-            uniqueIds.addAll(getUniqueIdsByPattern(pattern));
+        long[] patterns = patternGenerator.hierarchicalPatterns(parameters);
+
+        RSet<String> firstSet = redissonClient.getSet(PARAM_PREFIX + PatternIds.toKey(patterns[0]), StringCodec.INSTANCE);
+        String[] otherSets = new String[patterns.length - 1];
+        for (int i = 1; i < patterns.length; i++) {
+            otherSets[i - 1] = PARAM_PREFIX + PatternIds.toKey(patterns[i]);
         }
-        
+        Set<String> uniqueIds = firstSet.readUnion(otherSets);
+
+        if (uniqueIds.isEmpty()) return;
+
+        // One script per item, pipelined into a single round trip
+        RBatch batch = redissonClient.createBatch();
         for (String uniqueId : uniqueIds) {
-            invalidateByUniqueId(uniqueId);
+            queueInvalidation(batch, uniqueId);
         }
+        batch.execute();
     }
 
     private void invalidateByUniqueId(String uniqueId) {
-        RBucket<CachedItem<T>> valueBucket = redissonClient.getBucket(VALUE_PREFIX + uniqueId);
-        CachedItem<T> cachedItem = valueBucket.get();
+        ScriptInvocation invocation = prepareInvalidate(uniqueId);
+        Long removed = redissonClient.getScript(ByteArrayCodec.INSTANCE).eval(RScript.Mode.READ_WRITE,
+                INVALIDATE_SCRIPT, RScript.ReturnType.INTEGER, invocation.keys, invocation.args.toArray());
+        evictLocalCopies(invocation);
+        recordInvalidation(removed);
+    }
 
-        if (cachedItem == null) return;
+    private CompletableFuture<Void> invalidateByUniqueIdAsync(String uniqueId) {
+        ScriptInvocation invocation = prepareInvalidate(uniqueId);
+        return redissonClient.getScript(ByteArrayCodec.INSTANCE)
+                .<Long>evalAsync(RScript.Mode.READ_WRITE, INVALIDATE_SCRIPT, RScript.ReturnType.INTEGER,
+                        invocation.keys, invocation.args.toArray())
+                .toCompletableFuture()
+                .thenAccept(removed -> {
+                    evictLocalCopies(invocation);
+                    recordInvalidation(removed);
+                });
+    }
 
+    /**
+     * Removes expired items found by a search in one pipelined batch without waiting for the reply,
+     * so the read that found them is not charged for the cleanup.
+     */
+    private void invalidateExpiredAsync(List<CachedItem<T>> expiredItems) {
         RBatch batch = redissonClient.createBatch();
+        for (CachedItem<T> cachedItem : expiredItems) {
+            queueInvalidation(batch, cachedItem.generateUniqueId());
+        }
+        batch.executeAsync();
+    }
 
-        // Remove value
-        RBucketAsync<Object> valueBucketBatch = batch.getBucket(VALUE_PREFIX + uniqueId);
-        valueBucketBatch.deleteAsync();
+    private void queueInvalidation(RBatch batch, String uniqueId) {
+        ScriptInvocation invocation = prepareInvalidate(uniqueId);
+        batch.getScript(ByteArrayCodec.INSTANCE).evalAsync(RScript.Mode.READ_WRITE, INVALIDATE_SCRIPT,
+                RScript.ReturnType.INTEGER, invocation.keys, invocation.args.toArray());
+        evictLocalCopies(invocation);
+        statistics.decrementValues();
+        statistics.decrementKeys();
+    }
 
-        // Remove primary key reference
-        if (cachedItem.getStringKey() != null) {
-            RBucketAsync<Object> primaryBucket = batch.getBucket(PRIMARY_KEY_PREFIX + cachedItem.getStringKey());
-            primaryBucket.deleteAsync();
-        }
+    private ScriptInvocation prepareInvalidate(String uniqueId) {
+        ScriptInvocation invocation = new ScriptInvocation(0);
+        invocation.keys.add(VALUE_PREFIX + uniqueId);
+        invocation.keys.add(METADATA_PREFIX + uniqueId);
+        invocation.args.add(utf8(uniqueId));
+        invocation.args.add(encode(uniqueId));
+        return invocation;
+    }
 
-        // Remove long key reference if exists
-        if (cachedItem.getLongKey() != null) {
-            RBucketAsync<Object> longKeyBucket = batch.getBucket(LONG_KEY_PREFIX + cachedItem.getLongKey());
-            longKeyBucket.deleteAsync();
+    private void recordInvalidation(Long removed) {
+        if (removed != null && removed > 0) {
+            statistics.decrementValues();
+            statistics.decrementKeys();
         }
+    }
 
-        // Remove parameter references
-        Set<String> patterns = generateHierarchicalPatterns(cachedItem.getParameters().stream()
-                .sorted(Comparator.comparingInt(SearchParameter::getLevel))
-                .collect(Collectors.toList()));
+    // SCRIPT SUPPORT
+    private void evalWrite(String script, ScriptInvocation invocation) {
+        redissonClient.getScript(ByteArrayCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, script,
+                RScript.ReturnType.INTEGER, invocation.keys, invocation.args.toArray());
+        evictLocalCopies(invocation);
+    }
 
-        for (String pattern : patterns) {
-            RSetAsync<Object> paramSet = batch.getSet(PARAM_PREFIX + pattern);
-            paramSet.removeAsync(uniqueId);
+    private CompletableFuture<Void> evalWriteAsync(String script, ScriptInvocation invocation) {
+        if (invocation == null) {
+            return CompletableFuture.completedFuture(null);
         }
+        return redissonClient.getScript(ByteArrayCodec.INSTANCE)
+                .evalAsync(RScript.Mode.READ_WRITE, script, RScript.ReturnType.INTEGER,
+                        invocation.keys, invocation.args.toArray())
+                .toCompletableFuture()
+                .thenApply(result -> {
+                    evictLocalCopies(invocation);
+                    return null;
+                });
+    }
 
-        // Execute the batch once
-        batch.execute();
-
-        // Clean up empty parameter sets (done separately after the main batch)
-        for (String pattern : patterns) {
-            try {
-                RSet<String> paramSetSync = redissonClient.getSet(PARAM_PREFIX + pattern);
-                if (paramSetSync != null && paramSetSync.size() == 0) {
-                    paramSetSync.delete();
-                }
-            } catch (Exception e) {
-                // Ignore cleanup errors - this is best effort
+    /**
+     * Encodes a value exactly as the client codec stores it, so scripts can write values and compare
+     * key pointers byte for byte.
+     */
+    private byte[] encode(Object value) {
+        ByteBuf encoded = null;
+        try {
+            encoded = codec.getValueEncoder().encode(value);
+            return ByteBufUtil.getBytes(encoded);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode cache value", e);
+        } finally {
+            if (encoded != null) {
+                encoded.release();
             }
         }
+    }
 
-        statistics.decrementValues();
-        statistics.decrementKeys();
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Keys and raw arguments of a script call; scripts run with {@link ByteArrayCodec} so nothing is re-encoded. */
+    private static final class ScriptInvocation {
+        private final List<Object> keys = new ArrayList<>();
+        private final List<Object> args = new ArrayList<>();
+        private final int patternCount;
+
+        private ScriptInvocation(int patternCount) {
+            this.patternCount = patternCount;
+        }
     }
 
     public void invalidateAll() {
@@ -647,6 +1362,12 @@ public class HierarchicalCacheService<T> {
         keys.deleteByPattern(PARAM_PREFIX + "*");
         keys.deleteByPattern(VALUE_PREFIX + "*");
         keys.deleteByPattern(METADATA_PREFIX + "*");
+
+        // Clears the local copies on every node
+        if (localValues != null) {
+            localValues.clearLocalCache();
+            localPrimaryKeys.clearLocalCache();
+        }
         
         // Reset statistics
         statistics.getTotalKeys();
@@ -660,6 +1381,10 @@ public class HierarchicalCacheService<T> {
 
     // CLEANUP
     public void shutdown() {
+        if (localValues != null) {
+            localValues.destroy();
+            localPrimaryKeys.destroy();
+        }
         redissonClient.shutdown();
     }
 }
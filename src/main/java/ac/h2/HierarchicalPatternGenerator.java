@@ -0,0 +1,111 @@
+package ac.h2;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Single source of hierarchical search patterns for every cache tier.
+ * <p>
+ * Parameter lists repeat heavily (the same filters are put, searched and invalidated over and over), so the
+ * pattern ids of each canonical - level-sorted - parameter tuple are memoized in a bounded Caffeine cache. The
+ * returned arrays are shared between callers and must not be modified.
+ */
+public final class HierarchicalPatternGenerator {
+    public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private static final HierarchicalPatternGenerator SHARED = new HierarchicalPatternGenerator(DEFAULT_MAXIMUM_SIZE);
+    private static final long[] NO_PATTERNS = new long[0];
+
+    private final Cache<ParameterTuple, long[]> patternCache;
+
+    public HierarchicalPatternGenerator(long maximumSize) {
+        this.patternCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * The generator shared by all cache services of this JVM.
+     */
+    public static HierarchicalPatternGenerator shared() {
+        return SHARED;
+    }
+
+    /**
+     * Ids of every contiguous run of the level-sorted parameters, sorted and without duplicates.
+     */
+    public long[] hierarchicalPatterns(List<SearchParameter> parameters) {
+        if (parameters == null || parameters.isEmpty()) {
+            return NO_PATTERNS;
+        }
+        return patternCache.get(ParameterTuple.of(parameters), tuple -> PatternIds.hierarchicalPatterns(tuple.parameters));
+    }
+
+    public long exactPattern(List<SearchParameter> parameters) {
+        return PatternIds.exactPattern(parameters);
+    }
+
+    public long singlePattern(SearchParameter parameter) {
+        return PatternIds.singlePattern(parameter);
+    }
+
+    public CacheStats stats() {
+        return patternCache.stats();
+    }
+
+    public void clear() {
+        patternCache.invalidateAll();
+    }
+
+    /**
+     * Level-sorted parameters; hashes over the cached parameter ids so lookups don't rehash names and values.
+     */
+    private static final class ParameterTuple {
+        private final SearchParameter[] sorted;
+        private final List<SearchParameter> parameters;
+        private final int hash;
+
+        private ParameterTuple(SearchParameter[] sorted) {
+            this.sorted = sorted;
+            this.parameters = Arrays.asList(sorted);
+            long state = 1;
+            for (SearchParameter parameter : sorted) {
+                state = 31 * state + parameter.patternId();
+            }
+            this.hash = Long.hashCode(state);
+        }
+
+        static ParameterTuple of(List<SearchParameter> parameters) {
+            SearchParameter[] sorted = parameters.toArray(new SearchParameter[0]);
+            // Insertion sort: lists are short and usually already in level order
+            for (int i = 1; i < sorted.length; i++) {
+                SearchParameter current = sorted[i];
+                int j = i - 1;
+                while (j >= 0 && sorted[j].getLevel() > current.getLevel()) {
+                    sorted[j + 1] = sorted[j];
+                    j--;
+                }
+                sorted[j + 1] = current;
+            }
+            return new ParameterTuple(sorted);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ParameterTuple)) return false;
+            ParameterTuple other = (ParameterTuple) o;
+            return hash == other.hash && Arrays.equals(sorted, other.sorted);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package ac.h2;
+
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Broadcasts local (L1) cache invalidations to the other nodes over a Redis pub/sub topic, so a write or
+ * invalidation on one node evicts the stale local copies everywhere instead of waiting for their TTL.
+ * <p>
+ * Invalidations are buffered for {@code batchWindowMillis} and sent as one message per window; repeated
+ * invalidations of the same entry within a window are sent once, and an invalidate-all supersedes everything
+ * else in its window. Delivery is best-effort (pub/sub has no replay), so local TTLs remain the upper bound on
+ * staleness when Redis is unreachable. A node ignores its own messages, since it already evicted locally.
+ */
+public class InvalidationBus {
+    private static final Logger logger = LoggerFactory.getLogger(InvalidationBus.class);
+
+    public static final String DEFAULT_TOPIC = "cache:invalidations";
+    public static final long DEFAULT_BATCH_WINDOW_MILLIS = 10L;
+
+    private static final int MAX_ENTRIES_PER_MESSAGE = 512;
+    private static final String ALL = "*";
+
+    /**
+     * Receives invalidations published by other nodes. Called on a Redisson event thread, so implementations
+     * should only evict local entries.
+     */
+    public interface Listener {
+        /**
+         * @param key string key of the entry, or null when only the id is known
+         * @param id  id of the entry, or null when only the key is known
+         */
+        void invalidated(String key, Long id);
+
+        void invalidatedAll();
+    }
+
+    private final RTopic topic;
+    private final long batchWindowMillis;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final List<Integer> listenerIds = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-invalidation-bus");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public InvalidationBus(RedissonClient redissonClient) {
+        this(redissonClient, DEFAULT_TOPIC, DEFAULT_BATCH_WINDOW_MILLIS);
+    }
+
+    public InvalidationBus(RedissonClient redissonClient, String topicName, long batchWindowMillis) {
+        if (redissonClient == null || topicName == null || batchWindowMillis < 0) {
+            throw new IllegalArgumentException("Redisson client and topic are required and the batch window must not be negative");
+        }
+        this.topic = redissonClient.getTopic(topicName, StringCodec.INSTANCE);
+        this.batchWindowMillis = batchWindowMillis;
+    }
+
+    /**
+     * Queues an invalidation of the entry with this key and/or id on every other node.
+     */
+    public void publish(String key, Long id) {
+        if (key == null && id == null) return;
+        enqueue(encodeEntry(key, id));
+    }
+
+    /**
+     * Queues a full local clear on every other node.
+     */
+    public void publishAll() {
+        enqueue(ALL);
+    }
+
+    public void subscribe(Listener listener) {
+        int listenerId = topic.addListener(String.class, (channel, message) -> dispatch(message, listener));
+        listenerIds.add(listenerId);
+    }
+
+    /**
+     * Sends anything still buffered and stops listening.
+     */
+    public void close() {
+        flusher.shutdown();
+        flush();
+        if (!listenerIds.isEmpty()) {
+            topic.removeListener(listenerIds.toArray(new Integer[0]));
+            listenerIds.clear();
+        }
+    }
+
+    private void enqueue(String entry) {
+        pending.add(entry);
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                flusher.schedule(this::flush, batchWindowMillis, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                // Closed: send inline rather than drop the invalidation
+                flushScheduled.set(false);
+                flush();
+            }
+        }
+    }
+
+    void flush() {
+        // Cleared before draining, so an entry queued during the drain schedules the next flush
+        flushScheduled.set(false);
+
+        Set<String> entries = new LinkedHashSet<>();
+        for (String entry = pending.poll(); entry != null; entry = pending.poll()) {
+            entries.add(entry);
+        }
+        if (entries.isEmpty()) return;
+
+        List<String> batch = entries.contains(ALL) ? List.of(ALL) : new ArrayList<>(entries);
+        for (int from = 0; from < batch.size(); from += MAX_ENTRIES_PER_MESSAGE) {
+            List<String> chunk = batch.subList(from, Math.min(batch.size(), from + MAX_ENTRIES_PER_MESSAGE));
+            try {
+                topic.publish(encodeMessage(nodeId, chunk));
+            } catch (Exception e) {
+                logger.warn("Failed to broadcast {} cache invalidations: {}", chunk.size(), e.getMessage());
+            }
+        }
+    }
+
+    void dispatch(String message, Listener listener) {
+        String[] lines = message.split("\n");
+        if (lines.length == 0 || nodeId.equals(lines[0])) return;
+
+        for (int i = 1; i < lines.length; i++) {
+            String entry = lines[i];
+            try {
+                if (ALL.equals(entry)) {
+                    listener.invalidatedAll();
+                } else if (entry.startsWith("k")) {
+                    listener.invalidated(entry.substring(1), null);
+                } else if (entry.startsWith("i")) {
+                    listener.invalidated(null, Long.parseLong(entry.substring(1)));
+                } else if (entry.startsWith("p")) {
+                    int separator = entry.indexOf(':');
+                    listener.invalidated(entry.substring(separator + 1), Long.parseLong(entry.substring(1, separator)));
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Failed to apply cache invalidation '{}': {}", entry, e.getMessage());
+            }
+        }
+    }
+
+    // Entries are one per line: "*", "k<key>", "i<id>" or "p<id>:<key>"; the id comes first because keys may
+    // contain ':'
+    private static String encodeEntry(String key, Long id) {
+        if (key == null) return "i" + id;
+        if (id == null) return "k" + key;
+        return "p" + id + ":" + key;
+    }
+
+    private static String encodeMessage(String nodeId, Collection<String> entries) {
+        return nodeId + "\n" + String.join("\n", entries);
+    }
+}
@@ -0,0 +1,135 @@
+package ac.h2;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
+import com.esotericsoftware.kryo.util.Pool;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Kryo serialization backed by shared pools of {@link Kryo} instances and I/O buffers.
+ * <p>
+ * Unlike a {@code ThreadLocal<Kryo>}, pooled instances are not tied to a thread: a bounded number of them is
+ * shared by any number of platform or virtual threads, and nothing is left behind when pool threads die.
+ * Output buffers grow to fit the largest value written and are then reused, so a call allocates only the
+ * returned array; buffers that grew beyond {@link #MAX_POOLED_BUFFER_SIZE} are dropped instead of pooled.
+ */
+public class KryoSerializer {
+    public static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Pool<Kryo> kryoPool;
+    private final Pool<Output> outputPool;
+    private final Pool<Input> inputPool;
+
+    public KryoSerializer() {
+        this(Math.max(8, Runtime.getRuntime().availableProcessors() * 2));
+    }
+
+    /**
+     * @param poolSize maximum number of idle Kryo instances and buffers kept per pool
+     */
+    public KryoSerializer(int poolSize) {
+        this.kryoPool = new Pool<>(true, false, poolSize) {
+            @Override
+            protected Kryo create() {
+                return createKryo();
+            }
+        };
+        this.outputPool = new Pool<>(true, false, poolSize) {
+            @Override
+            protected Output create() {
+                return new Output(INITIAL_BUFFER_SIZE, -1);
+            }
+        };
+        this.inputPool = new Pool<>(true, false, poolSize) {
+            @Override
+            protected Input create() {
+                return new Input();
+            }
+        };
+    }
+
+    private static Kryo createKryo() {
+        Kryo kryo = new Kryo();
+        kryo.setReferences(true);
+        kryo.setRegistrationRequired(false);
+        // Cached types such as CachedItem and SearchParameter have no no-arg constructor
+        kryo.setInstantiatorStrategy(new DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        // Only these fixed registrations get numeric ids. Anything else is written by class name, so
+        // every pooled instance, and every node sharing Redis, reads what the others wrote
+        kryo.register(String.class);
+        kryo.register(ArrayList.class);
+        kryo.register(HashMap.class);
+        kryo.register(SearchParameter.class);
+        kryo.register(CachedItem.class);
+        return kryo;
+    }
+
+    public byte[] serialize(Object value) {
+        return write(value, false);
+    }
+
+    /**
+     * Like {@link #serialize}, but prefixes the class so {@link #deserializeWithClass} needs no type.
+     */
+    public byte[] serializeWithClass(Object value) {
+        return write(value, true);
+    }
+
+    private byte[] write(Object value, boolean withClass) {
+        Kryo kryo = kryoPool.obtain();
+        Output output = outputPool.obtain();
+        try {
+            output.reset();
+            if (withClass) {
+                kryo.writeClassAndObject(output, value);
+            } else {
+                kryo.writeObject(output, value);
+            }
+            return output.toBytes();
+        } finally {
+            kryoPool.free(kryo);
+            if (output.getBuffer().length <= MAX_POOLED_BUFFER_SIZE) {
+                outputPool.free(output);
+            }
+        }
+    }
+
+    public <V> V deserialize(byte[] data, Class<V> type) {
+        if (data == null) return null;
+
+        Kryo kryo = kryoPool.obtain();
+        Input input = inputPool.obtain();
+        try {
+            input.setBuffer(data);
+            return kryo.readObject(input, type);
+        } finally {
+            // Don't keep the caller's array reachable from the pool
+            input.setBuffer(EMPTY);
+            kryoPool.free(kryo);
+            inputPool.free(input);
+        }
+    }
+
+    public Object deserializeWithClass(byte[] data) {
+        if (data == null) return null;
+
+        Kryo kryo = kryoPool.obtain();
+        Input input = inputPool.obtain();
+        try {
+            input.setBuffer(data);
+            return kryo.readClassAndObject(input);
+        } finally {
+            input.setBuffer(EMPTY);
+            kryoPool.free(kryo);
+            inputPool.free(input);
+        }
+    }
+}
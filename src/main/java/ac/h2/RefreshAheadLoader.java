@@ -0,0 +1,58 @@
+package ac.h2;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+
+import java.util.Optional;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Caffeine loader behind the refresh-ahead mode of the transparent services' local primary caches. Once an
+ * entry is older than {@code refreshAfterWrite}, the next read returns it immediately and Caffeine reloads it
+ * here, on the refresh executor, from the remote tiers. Entries are only ever created by the services' own
+ * puts, so there is no initial load; a reload that finds nothing remotely drops the local entry.
+ */
+public class RefreshAheadLoader<T> implements CacheLoader<String, CachedItem<T>> {
+    private static final int QUEUE_CAPACITY = 10_000;
+
+    private final Function<CachedItem<T>, Optional<T>> remoteLookup;
+
+    /**
+     * @param remoteLookup reads the current value of an item from Redis and/or the database
+     */
+    public RefreshAheadLoader(Function<CachedItem<T>, Optional<T>> remoteLookup) {
+        this.remoteLookup = remoteLookup;
+    }
+
+    @Override
+    public CachedItem<T> load(String uniqueId) {
+        return null;
+    }
+
+    @Override
+    public CachedItem<T> reload(String uniqueId, CachedItem<T> oldItem) {
+        return remoteLookup.apply(oldItem)
+                .map(value -> new CachedItem<>(oldItem.getStringKey(), oldItem.getLongKey(), value,
+                        oldItem.getParameters(), oldItem.getTtl()))
+                .orElse(null);
+    }
+
+    /**
+     * Bounded pool for reloads. When it is saturated Caffeine skips the refresh, and the entry is retried on a
+     * later read or simply expires.
+     */
+    public static ThreadPoolExecutor newRefreshExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "cache-refresh-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(QUEUE_CAPACITY), threadFactory);
+    }
+}
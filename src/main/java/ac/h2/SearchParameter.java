@@ -11,6 +11,7 @@ public class SearchParameter implements Serializable, Comparable<SearchParameter
     private final String name;
     private final String value;
     private final int level;
+    private transient long patternId;
 
     @JsonCreator
     public SearchParameter(
@@ -38,6 +39,19 @@ public class SearchParameter implements Serializable, Comparable<SearchParameter
         return "L" + level + ":" + name + "=" + value;
     }
 
+    /**
+     * Stable 64-bit id of this parameter, the building block of {@link PatternIds}. Computed lazily and cached,
+     * like {@link String#hashCode()}.
+     */
+    public long patternId() {
+        long id = patternId;
+        if (id == 0) {
+            id = PatternIds.parameterId(level, name, value);
+            patternId = id;
+        }
+        return id;
+    }
+
     @Override
     public int compareTo(SearchParameter other) {
         return Integer.compare(this.level, other.level);
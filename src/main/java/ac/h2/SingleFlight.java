@@ -0,0 +1,80 @@
+package ac.h2;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * In-process request coalescing: while a load for a key is running, concurrent callers for the same key wait
+ * for its result instead of starting their own. Used by the {@code getOrCompute} methods so an expired hot key
+ * runs its supplier once per JVM, not once per request.
+ * <p>
+ * Only the flight is shared, nothing is retained: once the leader finishes, the next caller starts a new load,
+ * which normally finds the value the leader cached. A failed load fails every caller waiting on it.
+ */
+public class SingleFlight<K> {
+    private final ConcurrentHashMap<K, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Runs {@code loader} for {@code key}, or waits for the load another thread is already running for it.
+     * The loader should re-check the cache first, since a caller can arrive just after a flight has landed.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(K key, Supplier<V> loader) {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            return (V) await(leader);
+        }
+
+        try {
+            V value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Flight key for a lookup by string key and/or id, matching {@link CachedItem#generateUniqueId()}.
+     */
+    public static String flightKey(String key, Long id) {
+        if (key == null) return "#" + id;
+        return id != null ? key + ":" + id : key;
+    }
+
+    /**
+     * Flight key for a parameter search; order-insensitive like the search itself.
+     */
+    public static String flightKey(List<SearchParameter> parameters) {
+        return "params:" + PatternIds.toKey(PatternIds.exactPattern(parameters));
+    }
+
+    /**
+     * Number of loads currently running.
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private static Object await(CompletableFuture<Object> leader) {
+        try {
+            return leader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for in-flight computation", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+            if (cause instanceof Error error) throw error;
+            throw new CompletionException(cause);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package ac.h2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Keys whose write to a tier was skipped or failed, typically while its {@link CircuitBreaker} was open. The
+ * tier may still hold the value those writes replaced, so it must not serve them again until they have been
+ * invalidated there: callers {@link #repair} the recorded keys before their next call to the tier.
+ * <p>
+ * At most {@code capacity} keys are remembered; past that the whole tier has to be cleared instead.
+ */
+public class SkippedWrites<K> {
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private final int capacity;
+    private final Set<K> keys = ConcurrentHashMap.newKeySet();
+    private volatile boolean overflowed;
+
+    public SkippedWrites(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    public void record(K key) {
+        if (overflowed) return;
+        // The size check races with other writers, so the set can exceed capacity by a few keys
+        if (keys.size() >= capacity) {
+            overflowed = true;
+            keys.clear();
+        } else {
+            keys.add(key);
+        }
+    }
+
+    public boolean isEmpty() {
+        return !overflowed && keys.isEmpty();
+    }
+
+    /**
+     * Invalidates the recorded keys, or the whole tier after an overflow. If an invalidation throws, its key
+     * and the keys not reached yet stay recorded and the exception propagates.
+     * Concurrent callers wait for a running repair, so none of them reads a key before it is fixed.
+     *
+     * @return keys invalidated, or -1 when the whole tier was cleared
+     */
+    public synchronized int repair(Consumer<K> invalidateKey, Runnable invalidateAll) {
+        // Keys are forgotten before their invalidation, so a write skipped meanwhile is recorded again
+        if (overflowed) {
+            overflowed = false;
+            keys.clear();
+            try {
+                invalidateAll.run();
+            } catch (RuntimeException e) {
+                overflowed = true;
+                throw e;
+            }
+            return -1;
+        }
+
+        List<K> pending = new ArrayList<>(keys);
+        for (K key : pending) {
+            keys.remove(key);
+            try {
+                invalidateKey.accept(key);
+            } catch (RuntimeException e) {
+                keys.add(key);
+                throw e;
+            }
+        }
+        return pending.size();
+    }
+
+    public int size() {
+        return keys.size();
+    }
+}
@@ -8,6 +8,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.function.Supplier;
@@ -18,26 +19,35 @@ public class TransparentCacheService<T> {
 
     private final Class<T> valueType;
 
-    // Thread safety components
+    // Thread safety: per-key striped locks only. Local index updates are atomic Caffeine computes and
+    // statistics are atomic counters, so writers to different keys never contend on a shared monitor.
     private final Striped<ReadWriteLock> locks = Striped.lazyWeakReadWriteLock(64);
-    private final Object localCacheLock = new Object();
-    private final Object statisticsLock = new Object();
 
     // Local caches
     private final Cache<String, CachedItem<T>> localPrimaryCache;
     private final Cache<Long, String> localLongKeyCache;
-    private final Cache<String, Set<String>> localParamCache;
+    private final Cache<Long, Set<String>> localParamCache;
+    private final ThreadPoolExecutor refreshExecutor;
+    private volatile InvalidationBus invalidationBus;
 
     // Remote providers
     private final HierarchicalCacheService<T> redisCache;
     private final DatabaseCacheProvider<T> databaseCache;
+    private volatile HedgedReader hedgedReader;
+    private final CircuitBreaker redisBreaker;
+    private final CircuitBreaker databaseBreaker;
 
     // Configuration
     private final CacheConfiguration config;
     private final CacheStatistics statistics;
+    private final HierarchicalPatternGenerator patternGenerator = HierarchicalPatternGenerator.shared();
+    private final SingleFlight<String> flights = new SingleFlight<>();
+    private final SingleFlight<String> searchFlights = new SingleFlight<>();
+    private final DistributedSingleFlight clusterSingleFlight;
+    private final SkippedWrites<String> skippedRedisWrites = new SkippedWrites<>(SkippedWrites.DEFAULT_CAPACITY);
 
     // Internal state
-    private final Map<String, Set<String>> parameterPatterns = new ConcurrentHashMap<>();
+    private final Map<String, long[]> parameterPatterns = new ConcurrentHashMap<>();
 
     public TransparentCacheService(
             Class<T> valueType,
@@ -49,13 +59,28 @@ public class TransparentCacheService<T> {
         this.databaseCache = databaseCache;
         this.config = config;
         this.statistics = new CacheStatistics();
+        this.redisBreaker = CircuitBreaker.forTier("redis", config, statistics::setL2CircuitState);
+        this.databaseBreaker = CircuitBreaker.forTier("database", config, statistics::setL3CircuitState);
+        this.clusterSingleFlight = config.isClusterSingleFlightEnabled() && redisCache != null
+                ? new DistributedSingleFlight(redisCache.getRedissonClient(),
+                        config.getClusterLockWaitMillis(), config.getClusterLockLeaseMillis())
+                : null;
 
         // Initialize local caches if enabled
         if (config.isLocalCacheEnabled()) {
-            this.localPrimaryCache = Caffeine.newBuilder()
+            Caffeine<Object, Object> primaryBuilder = Caffeine.newBuilder()
                     .maximumSize(config.getMaxLocalCacheSize())
-                    .expireAfterWrite(config.getLocalCacheTtlMillis(), TimeUnit.MILLISECONDS)
-                    .build();
+                    .expireAfterWrite(config.getLocalCacheTtlMillis(), TimeUnit.MILLISECONDS);
+            if (config.isLocalRefreshAheadEnabled()) {
+                this.refreshExecutor = RefreshAheadLoader.newRefreshExecutor(config.getLocalRefreshThreads());
+                this.localPrimaryCache = primaryBuilder
+                        .refreshAfterWrite(config.getLocalRefreshAfterWriteMillis(), TimeUnit.MILLISECONDS)
+                        .executor(refreshExecutor)
+                        .build(new RefreshAheadLoader<>(this::reloadFromRemote));
+            } else {
+                this.refreshExecutor = null;
+                this.localPrimaryCache = primaryBuilder.build();
+            }
 
             this.localLongKeyCache = Caffeine.newBuilder()
                     .maximumSize(config.getMaxLocalCacheSize())
@@ -67,14 +92,66 @@ public class TransparentCacheService<T> {
                     .expireAfterWrite(config.getRemoteCacheTtlMillis(), TimeUnit.MILLISECONDS)
                     .build();
         } else {
+            this.refreshExecutor = null;
             this.localPrimaryCache = null;
             this.localLongKeyCache = null;
             this.localParamCache = null;
         }
+
+        if (config.isInvalidationBusEnabled() && config.isLocalCacheEnabled() && redisCache != null) {
+            enableInvalidationBus(new InvalidationBus(redisCache.getRedissonClient(),
+                    config.getInvalidationTopic(), config.getInvalidationBatchWindowMillis()));
+        }
+    }
+
+    /**
+     * Broadcasts this node's writes and invalidations to the local caches of other nodes, and applies theirs
+     * here. The bus is closed on {@link #shutdown()}.
+     */
+    public void enableInvalidationBus(InvalidationBus bus) {
+        bus.subscribe(new InvalidationBus.Listener() {
+            @Override
+            public void invalidated(String key, Long id) {
+                ReadWriteLock lock = getLockForKey(key, id);
+                lock.writeLock().lock();
+                try {
+                    invalidateLocalEntriesForKey(key, id);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+
+            @Override
+            public void invalidatedAll() {
+                ReadWriteLock globalLock = locks.get("__GLOBAL__");
+                globalLock.writeLock().lock();
+                try {
+                    clearLocalCaches();
+                } finally {
+                    globalLock.writeLock().unlock();
+                }
+            }
+        });
+        this.invalidationBus = bus;
     }
 
     // ==================== THREAD SAFETY HELPER METHODS ====================
 
+    /**
+     * Runs the loader once per JVM for concurrent misses on the same key and, when
+     * {@link CacheConfiguration.Builder#clusterSingleFlight} is set, once per cluster. The lookup re-checks the
+     * cache first, because the value may have landed since the caller's miss.
+     */
+    private T coalesce(String flightKey, Supplier<Optional<T>> lookup, Supplier<T> loader) {
+        return flights.execute(flightKey, () -> {
+            if (clusterSingleFlight != null) {
+                return clusterSingleFlight.execute(flightKey, lookup, loader);
+            }
+            Optional<T> cached = lookup.get();
+            return cached.isPresent() ? cached.get() : loader.get();
+        });
+    }
+
     /**
      * Get read-write lock for a specific key combination.
      */
@@ -109,6 +186,8 @@ public class TransparentCacheService<T> {
 
         // Then update remote caches
         writeToRemote(key, id, parameters, value, ttlMillis);
+
+        broadcastInvalidation(key, id);
     }
 
     /**
@@ -117,25 +196,21 @@ public class TransparentCacheService<T> {
     private void updateLocalCacheAtomically(String key, Long id, List<SearchParameter> parameters, T value) {
         if (!config.isLocalCacheEnabled()) return;
 
-        synchronized (localCacheLock) {
-            // Remove old entries to prevent stale parameter mappings
-            invalidateLocalEntriesForKey(key, id);
+        // Remove old entries to prevent stale parameter mappings
+        invalidateLocalEntriesForKey(key, id);
 
-            // Add new entry
-            cacheLocallyIfEnabled(key, id, parameters, value);
-        }
+        // Add new entry
+        cacheLocallyIfEnabled(key, id, parameters, value);
     }
 
     /**
      * Thread-safe statistics update for put operations.
      */
     private void updateStatisticsForPut(T previousValue) {
-        synchronized (statisticsLock) {
-            if (previousValue == null) {
-                statistics.incrementValues(); // New value
-            }
-            // If previousValue != null, we're replacing, no change in count
+        if (previousValue == null) {
+            statistics.incrementValues(); // New value
         }
+        // If previousValue != null, we're replacing, no change in count
     }
 
     /**
@@ -262,9 +337,7 @@ public class TransparentCacheService<T> {
             // No existing value, perform put
             performAtomicPut(key, id, normalizedParams, value, ttlMillis);
 
-            synchronized (statisticsLock) {
-                statistics.incrementValues();
-            }
+            statistics.incrementValues();
 
             return null;
 
@@ -479,9 +552,7 @@ public class TransparentCacheService<T> {
 
             // Update statistics
             if (previousValue != null) {
-                synchronized (statisticsLock) {
-                    statistics.decrementValues();
-                }
+                statistics.decrementValues();
             }
 
             return (T) previousValue;
@@ -520,9 +591,7 @@ public class TransparentCacheService<T> {
             // Remove the value
             performAtomicRemove(key, id);
 
-            synchronized (statisticsLock) {
-                statistics.decrementValues();
-            }
+            statistics.decrementValues();
 
             return true;
 
@@ -552,28 +621,28 @@ public class TransparentCacheService<T> {
             lock.readLock().unlock();
         }
 
-        // Upgrade to write lock for computation
-        lock.writeLock().lock();
-        try {
-            // Double-check after acquiring write lock
-            Optional<T> cached = performAtomicGet(key, null, Collections.emptyList(), valueType);
-            if (cached.isPresent()) {
-                return cached.get();
+        // Concurrent misses share one computation; only its leader takes the write lock
+        return coalesce(SingleFlight.flightKey(key, null), () -> {
+            lock.readLock().lock();
+            try {
+                return performAtomicGet(key, null, Collections.emptyList(), valueType);
+            } finally {
+                lock.readLock().unlock();
             }
-
-            // Compute and cache the value
-            T computed = supplier.get();
-            if (computed != null) {
-                performAtomicPut(key, null, Collections.emptyList(), computed, config.getRemoteCacheTtlMillis());
-                synchronized (statisticsLock) {
+        }, () -> {
+            lock.writeLock().lock();
+            try {
+                // Compute and cache the value
+                T computed = supplier.get();
+                if (computed != null) {
+                    performAtomicPut(key, null, Collections.emptyList(), computed, config.getRemoteCacheTtlMillis());
                     statistics.incrementValues();
                 }
+                return computed;
+            } finally {
+                lock.writeLock().unlock();
             }
-            return computed;
-
-        } finally {
-            lock.writeLock().unlock();
-        }
+        });
     }
 
     /**
@@ -595,28 +664,28 @@ public class TransparentCacheService<T> {
             lock.readLock().unlock();
         }
 
-        // Upgrade to write lock for computation
-        lock.writeLock().lock();
-        try {
-            // Double-check after acquiring write lock
-            Optional<T> cached = performAtomicGet(key, id, Collections.emptyList(), valueType);
-            if (cached.isPresent()) {
-                return cached.get();
+        // Concurrent misses share one computation; only its leader takes the write lock
+        return coalesce(SingleFlight.flightKey(key, id), () -> {
+            lock.readLock().lock();
+            try {
+                return performAtomicGet(key, id, Collections.emptyList(), valueType);
+            } finally {
+                lock.readLock().unlock();
             }
-
-            // Compute and cache the value
-            T computed = supplier.get();
-            if (computed != null) {
-                performAtomicPut(key, id, Collections.emptyList(), computed, config.getRemoteCacheTtlMillis());
-                synchronized (statisticsLock) {
+        }, () -> {
+            lock.writeLock().lock();
+            try {
+                // Compute and cache the value
+                T computed = supplier.get();
+                if (computed != null) {
+                    performAtomicPut(key, id, Collections.emptyList(), computed, config.getRemoteCacheTtlMillis());
                     statistics.incrementValues();
                 }
+                return computed;
+            } finally {
+                lock.writeLock().unlock();
             }
-            return computed;
-
-        } finally {
-            lock.writeLock().unlock();
-        }
+        });
     }
 
     /**
@@ -638,24 +707,24 @@ public class TransparentCacheService<T> {
             lock.readLock().unlock();
         }
 
-        // For ID-only computation, we can't cache without a string key
-        T computed = supplier.get();
-        if (computed != null) {
-            // We'd need a way to determine the key from the computed value
-            // For now, we'll store it with a generated key based on the ID
-            String generatedKey = "id:" + id;
+        return coalesce(SingleFlight.flightKey(null, id), () -> get(id, valueType), () -> {
+            // For ID-only computation, we can't cache without a string key
+            T computed = supplier.get();
+            if (computed != null) {
+                // We'd need a way to determine the key from the computed value
+                // For now, we'll store it with a generated key based on the ID
+                String generatedKey = "id:" + id;
 
-            lock.writeLock().lock();
-            try {
-                performAtomicPut(generatedKey, id, Collections.emptyList(), computed, config.getRemoteCacheTtlMillis());
-                synchronized (statisticsLock) {
+                lock.writeLock().lock();
+                try {
+                    performAtomicPut(generatedKey, id, Collections.emptyList(), computed, config.getRemoteCacheTtlMillis());
                     statistics.incrementValues();
+                } finally {
+                    lock.writeLock().unlock();
                 }
-            } finally {
-                lock.writeLock().unlock();
             }
-        }
-        return computed;
+            return computed;
+        });
     }
 
     /**
@@ -681,7 +750,7 @@ public class TransparentCacheService<T> {
         }
 
         // Compute the values (can't easily cache these results since we don't have keys)
-        List<T> computed = supplier.get();
+        List<T> computed = searchFlights.execute(SingleFlight.flightKey(parameters), supplier);
         return computed != null ? computed : Collections.emptyList();
     }
 
@@ -717,9 +786,7 @@ public class TransparentCacheService<T> {
                 }
 
                 // Update local cache mapping
-                synchronized (localCacheLock) {
-                    updateLocalLinkMapping(key, id);
-                }
+                updateLocalLinkMapping(key, id);
 
             } finally {
                 secondLock.writeLock().unlock();
@@ -751,9 +818,7 @@ public class TransparentCacheService<T> {
             }
 
             // Update local cache parameter mapping
-            synchronized (localCacheLock) {
-                updateLocalParameterLinking(key, null, parameters);
-            }
+            updateLocalParameterLinking(key, null, parameters);
 
         } finally {
             lock.writeLock().unlock();
@@ -782,9 +847,7 @@ public class TransparentCacheService<T> {
             }
 
             // Update local cache parameter mapping
-            synchronized (localCacheLock) {
-                updateLocalParameterLinking(null, id, parameters);
-            }
+            updateLocalParameterLinking(null, id, parameters);
 
         } finally {
             lock.writeLock().unlock();
@@ -852,12 +915,10 @@ public class TransparentCacheService<T> {
         globalLock.writeLock().lock();
         try {
             // Clear local caches
-            synchronized (localCacheLock) {
-                if (config.isLocalCacheEnabled()) {
-                    if (localPrimaryCache != null) localPrimaryCache.invalidateAll();
-                    if (localLongKeyCache != null) localLongKeyCache.invalidateAll();
-                    if (localParamCache != null) localParamCache.invalidateAll();
-                }
+            clearLocalCaches();
+            InvalidationBus bus = invalidationBus;
+            if (bus != null) {
+                bus.publishAll();
             }
 
             // Clear remote caches
@@ -870,9 +931,7 @@ public class TransparentCacheService<T> {
             }
 
             // Reset statistics
-            synchronized (statisticsLock) {
-                statistics.reset();
-            }
+            statistics.reset();
 
         } finally {
             globalLock.writeLock().unlock();
@@ -899,9 +958,7 @@ public class TransparentCacheService<T> {
      * Returns the number of cached items (approximate).
      */
     public long size() {
-        synchronized (statisticsLock) {
-            return statistics.getTotalValues();
-        }
+        return statistics.getTotalValues();
     }
 
     /**
@@ -914,9 +971,7 @@ public class TransparentCacheService<T> {
     // ==================== STATISTICS AND MANAGEMENT ====================
 
     public CacheStatistics getStatistics() {
-        synchronized (statisticsLock) {
-            return statistics;
-        }
+        return statistics;
     }
 
     public void shutdown() {
@@ -926,6 +981,10 @@ public class TransparentCacheService<T> {
         try {
             invalidateAll();
 
+            if (invalidationBus != null) {
+                invalidationBus.close();
+            }
+
             if (config.isRemoteCacheEnabled() && redisCache != null) {
                 redisCache.shutdown();
             }
@@ -933,6 +992,13 @@ public class TransparentCacheService<T> {
             if (config.isDatabaseCacheEnabled() && databaseCache != null) {
                 databaseCache.shutdown();
             }
+
+            if (refreshExecutor != null) {
+                refreshExecutor.shutdownNow();
+            }
+            if (hedgedReader != null) {
+                hedgedReader.shutdown();
+            }
         } finally {
             globalLock.writeLock().unlock();
         }
@@ -952,14 +1018,10 @@ public class TransparentCacheService<T> {
         if (!skipLocalCache && !forceRefresh && config.isLocalCacheEnabled()) {
             CachedItem<T> cachedItem = findInLocalCache(key, id);
             if (cachedItem != null && !cachedItem.isExpired()) {
-                synchronized (statisticsLock) {
-                    statistics.incrementL1Hits();
-                }
+                statistics.incrementL1Hits();
                 return Optional.of(cachedItem.getValue());
             }
-            synchronized (statisticsLock) {
-                statistics.incrementL1Misses();
-            }
+            statistics.incrementL1Misses();
         }
 
         // Check remote caches
@@ -967,9 +1029,7 @@ public class TransparentCacheService<T> {
 
         // Update local cache if found remotely
         if (remoteResult.isPresent() && config.isLocalCacheEnabled() && !skipLocalCache) {
-            synchronized (localCacheLock) {
-                cacheLocallyIfEnabled(key, id, parameters, remoteResult.get());
-            }
+            cacheLocallyIfEnabled(key, id, parameters, remoteResult.get());
         }
 
         return remoteResult;
@@ -988,14 +1048,10 @@ public class TransparentCacheService<T> {
         if (!skipLocalCache && !forceRefresh && config.isLocalCacheEnabled()) {
             localResults = searchInLocalCache(parameters);
             if (!localResults.isEmpty()) {
-                synchronized (statisticsLock) {
-                    statistics.incrementL1Hits();
-                }
+                statistics.incrementL1Hits();
                 return localResults;
             } else {
-                synchronized (statisticsLock) {
-                    statistics.incrementL1Misses();
-                }
+                statistics.incrementL1Misses();
             }
         }
 
@@ -1004,9 +1060,7 @@ public class TransparentCacheService<T> {
 
         // If found in remote, update local cache
         if (!remoteResults.isEmpty() && config.isLocalCacheEnabled() && !skipLocalCache) {
-            synchronized (localCacheLock) {
-                cacheSearchResultsLocally(parameters, remoteResults);
-            }
+            cacheSearchResultsLocally(parameters, remoteResults);
         }
 
         return remoteResults;
@@ -1030,20 +1084,34 @@ public class TransparentCacheService<T> {
         }
 
         // Remove from all local caches
-        synchronized (localCacheLock) {
-            invalidateLocalCaches(uniqueId, key, id, parameters);
-        }
+        invalidateLocalCaches(uniqueId, key, id, parameters);
 
         // Invalidate remote caches
         invalidateRemoteCaches(key, id);
 
-        synchronized (statisticsLock) {
-            statistics.decrementValues();
+        broadcastInvalidation(key, id);
+
+        statistics.decrementValues();
+    }
+
+    private void broadcastInvalidation(String key, Long id) {
+        InvalidationBus bus = invalidationBus;
+        if (bus != null) {
+            bus.publish(key, id);
         }
     }
 
+    private void clearLocalCaches() {
+        if (!config.isLocalCacheEnabled()) return;
+
+        if (localPrimaryCache != null) localPrimaryCache.invalidateAll();
+        if (localLongKeyCache != null) localLongKeyCache.invalidateAll();
+        if (localParamCache != null) localParamCache.invalidateAll();
+        parameterPatterns.clear();
+    }
+
     /**
-     * Update local link mapping (assumes localCacheLock is held).
+     * Update local link mapping (assumes the key's write lock is held).
      */
     private void updateLocalLinkMapping(String key, Long id) {
         if (!config.isLocalCacheEnabled()) return;
@@ -1070,7 +1138,7 @@ public class TransparentCacheService<T> {
     }
 
     /**
-     * Update local parameter linking (assumes localCacheLock is held).
+     * Update local parameter linking (assumes the key's write lock is held).
      */
     private void updateLocalParameterLinking(String key, Long id, List<SearchParameter> parameters) {
         if (!config.isLocalCacheEnabled()) return;
@@ -1135,11 +1203,27 @@ public class TransparentCacheService<T> {
         return cachedItem;
     }
 
+    /**
+     * Refresh-ahead reload of a local entry, run on the refresh executor.
+     */
+    private Optional<T> reloadFromRemote(CachedItem<T> cachedItem) {
+        return getFromRemote(cachedItem.getStringKey(), cachedItem.getLongKey(), cachedItem.getParameters(), valueType);
+    }
+
     private Optional<T> getFromRemote(String key, Long id, List<SearchParameter> parameters, Class<T> valueType) {
         CacheContext context = CacheContext.get();
         CacheConfiguration.FallbackStrategy strategy = getFallbackStrategy();
 
         switch (strategy) {
+            case REDIS_THEN_DATABASE_HEDGED:
+                // Start the database read too if Redis is slow
+                if (config.isRemoteCacheEnabled() && config.isDatabaseCacheEnabled()) {
+                    return hedgedReader().read(
+                            () -> getFromRedis(key, id, parameters, valueType),
+                            () -> readFromDatabase(key, id, parameters, valueType),
+                            value -> writeBackToRedis(key, id, parameters, value));
+                }
+                // Otherwise same as REDIS_THEN_DATABASE
             case REDIS_THEN_DATABASE:
                 // Try Redis first, then database
                 if (config.isRemoteCacheEnabled()) {
@@ -1189,6 +1273,8 @@ public class TransparentCacheService<T> {
     }
 
     private Optional<T> getFromRedis(String key, Long id, List<SearchParameter> parameters, Class<T> valueType) {
+        if (!allowRedis()) return Optional.empty();
+        long start = System.nanoTime();
         try {
             Optional<T> result;
 
@@ -1202,25 +1288,31 @@ public class TransparentCacheService<T> {
                 result = Optional.empty();
             }
 
-            synchronized (statisticsLock) {
-                if (result.isPresent()) {
-                    statistics.incrementL2Hits();
-                } else {
-                    statistics.incrementL2Misses();
-                }
+            redisBreaker.recordSuccess(System.nanoTime() - start);
+            if (result.isPresent()) {
+                statistics.incrementL2Hits();
+            } else {
+                statistics.incrementL2Misses();
             }
 
             return result;
         } catch (Exception e) {
+            redisBreaker.recordFailure();
             logger.warn("Error accessing Redis cache: {}", e.getMessage());
-            synchronized (statisticsLock) {
-                statistics.incrementL2Errors();
-            }
+            statistics.incrementL2Errors();
             return Optional.empty();
         }
     }
 
     private Optional<T> getFromDatabase(String key, Long id, List<SearchParameter> parameters, Class<T> valueType) {
+        Optional<T> result = readFromDatabase(key, id, parameters, valueType);
+        result.ifPresent(value -> writeBackToRedis(key, id, parameters, value));
+        return result;
+    }
+
+    private Optional<T> readFromDatabase(String key, Long id, List<SearchParameter> parameters, Class<T> valueType) {
+        if (!allowDatabase()) return Optional.empty();
+        long start = System.nanoTime();
         try {
             Optional<T> result;
 
@@ -1234,47 +1326,47 @@ public class TransparentCacheService<T> {
                 result = Optional.empty();
             }
 
-            synchronized (statisticsLock) {
-                if (result.isPresent()) {
-                    statistics.incrementL3Hits();
-
-                    // Write back to Redis for future cache hits if enabled
-                    if (config.isRemoteCacheEnabled() && result.isPresent()) {
-                        try {
-                            if (key != null && id != null) {
-                                redisCache.put(key, id, parameters, result.get());
-                            } else if (key != null) {
-                                redisCache.put(key, parameters, result.get());
-                            }
-                            // Note: can't write back with just an ID
-                        } catch (Exception e) {
-                            logger.warn("Error writing back to Redis: {}", e.getMessage());
-                        }
-                    }
-                } else {
-                    statistics.incrementL3Misses();
-                }
+            databaseBreaker.recordSuccess(System.nanoTime() - start);
+            if (result.isPresent()) {
+                statistics.incrementL3Hits();
+            } else {
+                statistics.incrementL3Misses();
             }
 
             return result;
         } catch (Exception e) {
+            databaseBreaker.recordFailure();
             logger.warn("Error accessing database cache: {}", e.getMessage());
-            synchronized (statisticsLock) {
-                statistics.incrementL3Errors();
-            }
+            statistics.incrementL3Errors();
             return Optional.empty();
         }
     }
 
+    /**
+     * Copies a database hit to Redis for future hits, without waiting for Redis to answer.
+     */
+    private void writeBackToRedis(String key, Long id, List<SearchParameter> parameters, T value) {
+        // Can't write back with just an ID
+        if (!config.isRemoteCacheEnabled() || key == null) return;
+        try {
+            redisCache.putAsync(key, id, parameters, value).exceptionally(e -> {
+                logger.warn("Error writing back to Redis: {}", e.getMessage());
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn("Error writing back to Redis: {}", e.getMessage());
+        }
+    }
+
     private List<T> searchInLocalCache(List<SearchParameter> parameters) {
         if (!config.isLocalCacheEnabled() || localParamCache == null) {
             return Collections.emptyList();
         }
 
-        Set<String> patterns = generateHierarchicalPatterns(parameters);
+        long[] patterns = patternGenerator.hierarchicalPatterns(parameters);
         Set<String> uniqueIds = new HashSet<>();
 
-        for (String pattern : patterns) {
+        for (long pattern : patterns) {
             Set<String> patternIds = localParamCache.getIfPresent(pattern);
             if (patternIds != null) {
                 uniqueIds.addAll(patternIds);
@@ -1297,6 +1389,7 @@ public class TransparentCacheService<T> {
 
         switch (strategy) {
             case REDIS_THEN_DATABASE:
+            case REDIS_THEN_DATABASE_HEDGED:
                 // Try Redis first, then database
                 if (config.isRemoteCacheEnabled()) {
                     List<T> redisResults = searchInRedis(parameters, valueType);
@@ -1345,51 +1438,51 @@ public class TransparentCacheService<T> {
     }
 
     private List<T> searchInRedis(List<SearchParameter> parameters, Class<T> valueType) {
+        if (!allowRedis()) return Collections.emptyList();
+        long start = System.nanoTime();
         try {
             List<T> results = redisCache.get(parameters, valueType);
 
-            synchronized (statisticsLock) {
-                if (!results.isEmpty()) {
-                    statistics.incrementL2Hits();
-                } else {
-                    statistics.incrementL2Misses();
-                }
+            redisBreaker.recordSuccess(System.nanoTime() - start);
+            if (!results.isEmpty()) {
+                statistics.incrementL2Hits();
+            } else {
+                statistics.incrementL2Misses();
             }
 
             return results;
         } catch (Exception e) {
+            redisBreaker.recordFailure();
             logger.warn("Error searching Redis cache: {}", e.getMessage());
-            synchronized (statisticsLock) {
-                statistics.incrementL2Errors();
-            }
+            statistics.incrementL2Errors();
             return Collections.emptyList();
         }
     }
 
     private List<T> searchInDatabase(List<SearchParameter> parameters, Class<T> valueType) {
+        if (!allowDatabase()) return Collections.emptyList();
+        long start = System.nanoTime();
         try {
             List<T> results = databaseCache.get(parameters, valueType);
 
-            synchronized (statisticsLock) {
-                if (!results.isEmpty()) {
-                    statistics.incrementL3Hits();
+            databaseBreaker.recordSuccess(System.nanoTime() - start);
+            if (!results.isEmpty()) {
+                statistics.incrementL3Hits();
 
-                    // Write back to Redis for future cache hits if enabled
-                    if (config.isRemoteCacheEnabled()) {
-                        // This is tricky because we don't have keys for these results
-                        // For now, we skip write-back for parameter searches
-                    }
-                } else {
-                    statistics.incrementL3Misses();
+                // Write back to Redis for future cache hits if enabled
+                if (config.isRemoteCacheEnabled()) {
+                    // This is tricky because we don't have keys for these results
+                    // For now, we skip write-back for parameter searches
                 }
+            } else {
+                statistics.incrementL3Misses();
             }
 
             return results;
         } catch (Exception e) {
+            databaseBreaker.recordFailure();
             logger.warn("Error searching database cache: {}", e.getMessage());
-            synchronized (statisticsLock) {
-                statistics.incrementL3Errors();
-            }
+            statistics.incrementL3Errors();
             return Collections.emptyList();
         }
     }
@@ -1397,39 +1490,42 @@ public class TransparentCacheService<T> {
     private void writeToRemote(String key, Long id, List<SearchParameter> parameters, T value, long ttlMillis) {
         // Write to Redis if enabled
         if (config.isRemoteCacheEnabled()) {
-            try {
-                if (id != null) {
-                    redisCache.put(key, id, parameters, value, ttlMillis);
-                } else {
-                    redisCache.put(key, parameters, value, ttlMillis);
-                }
-                synchronized (statisticsLock) {
+            if (!allowRedis()) {
+                skippedRedisWrites.record(key);
+            } else {
+                long start = System.nanoTime();
+                try {
+                    if (id != null) {
+                        redisCache.put(key, id, parameters, value, ttlMillis);
+                    } else {
+                        redisCache.put(key, parameters, value, ttlMillis);
+                    }
+                    redisBreaker.recordSuccess(System.nanoTime() - start);
                     statistics.incrementL2Puts();
-                }
-            } catch (Exception e) {
-                logger.warn("Error writing to Redis cache: {}", e.getMessage());
-                synchronized (statisticsLock) {
+                } catch (Exception e) {
+                    redisBreaker.recordFailure();
+                    skippedRedisWrites.record(key);
+                    logger.warn("Error writing to Redis cache: {}", e.getMessage());
                     statistics.incrementL2Errors();
                 }
             }
         }
 
         // Write to database if enabled
-        if (config.isDatabaseCacheEnabled()) {
+        if (config.isDatabaseCacheEnabled() && allowDatabase()) {
+            long start = System.nanoTime();
             try {
                 if (id != null) {
                     databaseCache.put(key, id, parameters, value, ttlMillis);
                 } else {
                     databaseCache.put(key, parameters, value, ttlMillis);
                 }
-                synchronized (statisticsLock) {
-                    statistics.incrementL3Puts();
-                }
+                databaseBreaker.recordSuccess(System.nanoTime() - start);
+                statistics.incrementL3Puts();
             } catch (Exception e) {
+                databaseBreaker.recordFailure();
                 logger.warn("Error writing to database cache: {}", e.getMessage());
-                synchronized (statisticsLock) {
-                    statistics.incrementL3Errors();
-                }
+                statistics.incrementL3Errors();
             }
         }
     }
@@ -1439,17 +1535,13 @@ public class TransparentCacheService<T> {
             return;
         }
 
-        // This method assumes localCacheLock is already held by caller
-
         // Create cached item
         CachedItem<T> cachedItem = new CachedItem<>(key, id, value, parameters, config.getLocalCacheTtlMillis());
         String uniqueId = cachedItem.generateUniqueId();
 
         // Store in primary cache
         localPrimaryCache.put(uniqueId, cachedItem);
-        synchronized (statisticsLock) {
-            statistics.incrementL1Puts();
-        }
+        statistics.incrementL1Puts();
 
         // If we have a key but no ID, also store it by key for direct lookups
         if (key != null && id == null) {
@@ -1476,22 +1568,23 @@ public class TransparentCacheService<T> {
             return;
         }
 
-        Set<String> patterns = generateHierarchicalPatterns(parameters);
+        long[] patterns = patternGenerator.hierarchicalPatterns(parameters);
 
-        for (String pattern : patterns) {
-            Set<String> ids = localParamCache.getIfPresent(pattern);
-            if (ids == null) {
-                ids = new HashSet<>();
-            } else {
-                // Make a copy since the cached set might be immutable
-                ids = new HashSet<>(ids);
-            }
-            ids.add(uniqueId);
-            localParamCache.put(pattern, ids);
+        // Sets are copied on write so concurrent searches can iterate the published set without locking;
+        // compute makes each pattern's read-modify-write atomic against other writers
+        for (long pattern : patterns) {
+            localParamCache.asMap().compute(pattern, (p, ids) -> {
+                if (ids != null && ids.contains(uniqueId)) {
+                    return ids;
+                }
+                Set<String> updatedIds = ids != null ? new HashSet<>(ids) : new HashSet<>();
+                updatedIds.add(uniqueId);
+                return updatedIds;
+            });
         }
 
         // Store pattern mapping for cleanup
-        parameterPatterns.computeIfAbsent(uniqueId, k -> new HashSet<>()).addAll(patterns);
+        parameterPatterns.merge(uniqueId, patterns, PatternIds::union);
     }
 
     private void removeFromParameterIndexes(List<SearchParameter> parameters, String uniqueId) {
@@ -1500,63 +1593,78 @@ public class TransparentCacheService<T> {
         }
 
         // Get patterns associated with this unique ID
-        Set<String> patterns = parameterPatterns.get(uniqueId);
+        long[] patterns = parameterPatterns.get(uniqueId);
         if (patterns == null) {
             // If we don't have a record, generate them from parameters
-            patterns = generateHierarchicalPatterns(parameters);
+            patterns = patternGenerator.hierarchicalPatterns(parameters);
         }
 
-        // Remove uniqueId from all pattern indexes
-        for (String pattern : patterns) {
-            Set<String> ids = localParamCache.getIfPresent(pattern);
-            if (ids != null) {
-                // Make a copy since the cached set might be immutable
+        // Remove uniqueId from all pattern indexes; returning null drops a pattern with no more IDs
+        for (long pattern : patterns) {
+            localParamCache.asMap().computeIfPresent(pattern, (p, ids) -> {
+                if (!ids.contains(uniqueId)) {
+                    return ids;
+                }
                 Set<String> updatedIds = new HashSet<>(ids);
                 updatedIds.remove(uniqueId);
-
-                if (updatedIds.isEmpty()) {
-                    // If no more IDs, remove the pattern entirely
-                    localParamCache.invalidate(pattern);
-                } else {
-                    // Otherwise update with the remaining IDs
-                    localParamCache.put(pattern, updatedIds);
-                }
-            }
+                return updatedIds.isEmpty() ? null : updatedIds;
+            });
         }
 
         // Remove pattern mapping
         parameterPatterns.remove(uniqueId);
     }
 
-    private Set<String> generateHierarchicalPatterns(List<SearchParameter> parameters) {
-        if (parameters == null || parameters.isEmpty()) {
-            return Collections.emptySet();
+    /**
+     * Whether Redis may be called now; false while its circuit breaker is open, so callers move on to the next
+     * tier instead of waiting for the client timeout.
+     */
+    private boolean allowRedis() {
+        if (!redisBreaker.allowRequest()) {
+            statistics.incrementL2ShortCircuits();
+            return false;
         }
+        return repairSkippedRedisWrites();
+    }
 
-        // Sort parameters by level
-        List<SearchParameter> sortedParams = parameters.stream()
-                .sorted(Comparator.comparingInt(SearchParameter::getLevel))
-                .collect(Collectors.toList());
-
-        Set<String> patterns = new HashSet<>();
-
-        // Generate all possible combinations maintaining hierarchy
-        for (int i = 0; i < sortedParams.size(); i++) {
-            for (int j = i; j < sortedParams.size(); j++) {
-                List<SearchParameter> subList = sortedParams.subList(i, j + 1);
-                String pattern = subList.stream()
-                        .map(SearchParameter::toKey)
-                        .collect(Collectors.joining(">"));
-                patterns.add(pattern);
-            }
+    /**
+     * Invalidates in Redis the keys whose writes were skipped or failed, using the permit just granted, so the
+     * values those writes replaced are not served once the breaker closes. A failure counts against the breaker
+     * and keeps the keys recorded for the next permitted call.
+     */
+    private boolean repairSkippedRedisWrites() {
+        if (skippedRedisWrites.isEmpty()) return true;
+        try {
+            int repaired = skippedRedisWrites.repair(redisCache::invalidateOrThrow, redisCache::invalidateAll);
+            logger.info("Invalidated {} Redis keys whose writes were skipped", repaired < 0 ? "all" : repaired);
+            return true;
+        } catch (Exception e) {
+            redisBreaker.recordFailure();
+            logger.warn("Error invalidating Redis keys whose writes were skipped: {}", e.getMessage());
+            statistics.incrementL2Errors();
+            return false;
         }
+    }
 
-        // Add individual parameter patterns
-        for (SearchParameter param : sortedParams) {
-            patterns.add(param.toKey());
-        }
+    private boolean allowDatabase() {
+        if (databaseBreaker.allowRequest()) return true;
+        statistics.incrementL3ShortCircuits();
+        return false;
+    }
 
-        return patterns;
+    private HedgedReader hedgedReader() {
+        HedgedReader reader = hedgedReader;
+        if (reader == null) {
+            synchronized (this) {
+                reader = hedgedReader;
+                if (reader == null) {
+                    reader = new HedgedReader(config.getHedgePercentile(), config.getHedgeInitialDelayMillis(),
+                            config.getHedgeThreads());
+                    hedgedReader = reader;
+                }
+            }
+        }
+        return reader;
     }
 
     private CacheConfiguration.FallbackStrategy getFallbackStrategy() {
@@ -2,13 +2,16 @@ package ac.h2;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.util.concurrent.Striped;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Supplier;
@@ -16,17 +19,20 @@ import java.util.stream.Collectors;
 
 /**
  * Thread-safe transparent hierarchical cache service with L1 (local) and L2/L3 (remote) caching layers.
- * Provides fine-grained locking for optimal performance under concurrent access.
+ * <p>
+ * Reads take no locks: the Caffeine caches are concurrent and parameter index sets are replaced copy-on-write
+ * through atomic computes. Writes lock only the stripes of the key and ID of the item they modify, so a write to
+ * one key never stalls reads, or writes, of unrelated keys. {@link #invalidateAll()} and {@link #shutdown()} are the
+ * only operations that exclude all writers.
  *
  * @param <T> The type of objects stored in the cache
  */
 public class TransparentHCacheService<T> {
     private static final Logger logger = LoggerFactory.getLogger(TransparentHCacheService.class);
 
-    // Thread safety locks
-    private final ReadWriteLock cacheLock = new ReentrantReadWriteLock();
-    private final ReadWriteLock parameterPatternLock = new ReentrantReadWriteLock();
-    private final ReadWriteLock statisticsLock = new ReentrantReadWriteLock();
+    // Thread safety: per-key write stripes, plus a lock that keyed writes share and a full clear holds exclusively
+    private final Striped<Lock> keyLocks = Striped.lazyWeakLock(64);
+    private final ReadWriteLock clearLock = new ReentrantReadWriteLock();
 
     // Shutdown state
     private final AtomicBoolean isShutdown = new AtomicBoolean(false);
@@ -34,18 +40,28 @@ public class TransparentHCacheService<T> {
     // Local caches (thread-safe by design)
     private final Cache<String, CachedItem<T>> localPrimaryCache;
     private final Cache<Long, String> localLongKeyCache;
-    private final Cache<String, Set<String>> localParamCache;
+    private final Cache<Long, Set<String>> localParamCache;
+    private final ThreadPoolExecutor refreshExecutor;
+    private volatile InvalidationBus invalidationBus;
 
     // Remote providers (assumed thread-safe)
     private final HierarchicalCacheService<T> redisCache;
     private final DatabaseCacheProvider<T> databaseCache;
+    private volatile HedgedReader hedgedReader;
+    private final CircuitBreaker redisBreaker;
+    private final CircuitBreaker databaseBreaker;
 
     // Configuration (immutable after construction)
     private final CacheConfiguration config;
     private final CacheStatistics statistics;
+    private final HierarchicalPatternGenerator patternGenerator = HierarchicalPatternGenerator.shared();
+    private final SingleFlight<String> flights = new SingleFlight<>();
+    private final SingleFlight<String> searchFlights = new SingleFlight<>();
+    private final DistributedSingleFlight clusterSingleFlight;
+    private final SkippedWrites<String> skippedRedisWrites = new SkippedWrites<>(SkippedWrites.DEFAULT_CAPACITY);
 
     // Internal state (thread-safe collections)
-    private final Map<String, Set<String>> parameterPatterns = new ConcurrentHashMap<>();
+    private final Map<String, long[]> parameterPatterns = new ConcurrentHashMap<>();
 
     /**
      * Creates a new TransparentHierarchicalCacheService instance.
@@ -68,22 +84,70 @@ public class TransparentHCacheService<T> {
         this.databaseCache = databaseCache;
         this.config = config;
         this.statistics = new CacheStatistics();
+        this.redisBreaker = CircuitBreaker.forTier("redis", config, statistics::setL2CircuitState);
+        this.databaseBreaker = CircuitBreaker.forTier("database", config, statistics::setL3CircuitState);
+        this.clusterSingleFlight = config.isClusterSingleFlightEnabled() && redisCache != null
+                ? new DistributedSingleFlight(redisCache.getRedissonClient(),
+                        config.getClusterLockWaitMillis(), config.getClusterLockLeaseMillis())
+                : null;
 
         // Initialize local caches if enabled
         if (config.isLocalCacheEnabled()) {
+            this.refreshExecutor = config.isLocalRefreshAheadEnabled()
+                    ? RefreshAheadLoader.newRefreshExecutor(config.getLocalRefreshThreads())
+                    : null;
             this.localPrimaryCache = createLocalPrimaryCache();
             this.localLongKeyCache = createLocalLongKeyCache();
             this.localParamCache = createLocalParamCache();
         } else {
+            this.refreshExecutor = null;
             this.localPrimaryCache = null;
             this.localLongKeyCache = null;
             this.localParamCache = null;
         }
 
+        if (config.isInvalidationBusEnabled() && config.isLocalCacheEnabled() && redisCache != null) {
+            enableInvalidationBus(new InvalidationBus(redisCache.getRedissonClient(),
+                    config.getInvalidationTopic(), config.getInvalidationBatchWindowMillis()));
+        }
+
         logger.info("TransparentHierarchicalCacheService initialized with local={}, remote={}, database={}",
                 config.isLocalCacheEnabled(), config.isRemoteCacheEnabled(), config.isDatabaseCacheEnabled());
     }
 
+    /**
+     * Broadcasts this node's writes and invalidations to the local caches of other nodes, and applies theirs
+     * here. The bus is closed on {@link #shutdown()}.
+     */
+    public void enableInvalidationBus(InvalidationBus bus) {
+        bus.subscribe(new InvalidationBus.Listener() {
+            @Override
+            public void invalidated(String key, Long id) {
+                List<Lock> locks = lockItem(key, id);
+                try {
+                    CachedItemInfo itemInfo = key == null ? findCachedItemInfoById(id)
+                            : id == null ? findCachedItemInfoByKey(key)
+                            : findCachedItemInfo(key, id);
+                    invalidateLocalCachesThreadSafe(itemInfo.uniqueId, itemInfo.associatedKey, itemInfo.associatedId,
+                            itemInfo.parameters);
+                } finally {
+                    unlockKeys(locks);
+                }
+            }
+
+            @Override
+            public void invalidatedAll() {
+                clearLock.writeLock().lock();
+                try {
+                    clearLocalCaches();
+                } finally {
+                    clearLock.writeLock().unlock();
+                }
+            }
+        });
+        this.invalidationBus = bus;
+    }
+
     // ==================== VALIDATION METHODS ====================
 
     private void validateConstructorInputs(HierarchicalCacheService<T> redisCache,
@@ -121,11 +185,18 @@ public class TransparentHCacheService<T> {
     }
 
     private Cache<String, CachedItem<T>> createLocalPrimaryCache() {
-        return Caffeine.newBuilder()
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
                 .maximumSize(config.getMaxLocalCacheSize())
                 .expireAfterWrite(config.getLocalCacheTtlMillis(), TimeUnit.MILLISECONDS)
-                .recordStats()
-                .build();
+                .recordStats();
+        if (refreshExecutor == null) {
+            return builder.build();
+        }
+        // Stale entries are served while a reload from the remote tiers runs in the background
+        return builder
+                .refreshAfterWrite(config.getLocalRefreshAfterWriteMillis(), TimeUnit.MILLISECONDS)
+                .executor(refreshExecutor)
+                .build(new RefreshAheadLoader<>(this::reloadFromRemote));
     }
 
     private Cache<Long, String> createLocalLongKeyCache() {
@@ -136,7 +207,7 @@ public class TransparentHCacheService<T> {
                 .build();
     }
 
-    private Cache<String, Set<String>> createLocalParamCache() {
+    private Cache<Long, Set<String>> createLocalParamCache() {
         return Caffeine.newBuilder()
                 .maximumSize(Math.min(config.getMaxLocalCacheSize() * 2, 100000L)) // Bounded parameter cache
                 .expireAfterWrite(config.getRemoteCacheTtlMillis(), TimeUnit.MILLISECONDS)
@@ -184,6 +255,7 @@ public class TransparentHCacheService<T> {
 
             // Write to remote caches (async, thread-safe)
             writeToRemoteCachesWithErrorHandling(key, id, normalizedParams, value, ttlMillis);
+            broadcastInvalidation(key, id);
 
             // Update statistics atomically
             statistics.incrementValues();
@@ -369,11 +441,13 @@ public class TransparentHCacheService<T> {
             return cached.get();
         }
 
-        T computed = supplier.get();
-        if (computed != null) {
-            put(key, Collections.emptyList(), computed);
-        }
-        return computed;
+        return coalesce(SingleFlight.flightKey(key, null), () -> get(key, valueType), () -> {
+            T computed = supplier.get();
+            if (computed != null) {
+                put(key, Collections.emptyList(), computed);
+            }
+            return computed;
+        });
     }
 
     public T getOrCompute(String key, Long id, Class<T> valueType, Supplier<T> supplier) {
@@ -386,11 +460,13 @@ public class TransparentHCacheService<T> {
             return cached.get();
         }
 
-        T computed = supplier.get();
-        if (computed != null) {
-            put(key, id, Collections.emptyList(), computed);
-        }
-        return computed;
+        return coalesce(SingleFlight.flightKey(key, id), () -> get(key, id, valueType), () -> {
+            T computed = supplier.get();
+            if (computed != null) {
+                put(key, id, Collections.emptyList(), computed);
+            }
+            return computed;
+        });
     }
 
     public T getOrCompute(Long id, Class<T> valueType, Supplier<T> supplier) {
@@ -403,12 +479,14 @@ public class TransparentHCacheService<T> {
             return cached.get();
         }
 
-        T computed = supplier.get();
-        if (computed != null) {
-            // Generate a key based on ID for storage
-            put("id:" + id, id, Collections.emptyList(), computed);
-        }
-        return computed;
+        return coalesce(SingleFlight.flightKey(null, id), () -> get(id, valueType), () -> {
+            T computed = supplier.get();
+            if (computed != null) {
+                // Generate a key based on ID for storage
+                put("id:" + id, id, Collections.emptyList(), computed);
+            }
+            return computed;
+        });
     }
 
     public List<T> getOrCompute(List<SearchParameter> parameters, Class<T> valueType, Supplier<List<T>> supplier) {
@@ -421,10 +499,25 @@ public class TransparentHCacheService<T> {
             return cached;
         }
 
-        List<T> computed = supplier.get();
+        List<T> computed = searchFlights.execute(SingleFlight.flightKey(parameters), supplier);
         return computed != null ? computed : Collections.emptyList();
     }
 
+    /**
+     * Runs the loader once per JVM for concurrent misses on the same key and, when
+     * {@link CacheConfiguration.Builder#clusterSingleFlight} is set, once per cluster. The lookup re-checks the
+     * cache first, because the value may have landed since the caller's miss.
+     */
+    private T coalesce(String flightKey, Supplier<Optional<T>> lookup, Supplier<T> loader) {
+        return flights.execute(flightKey, () -> {
+            if (clusterSingleFlight != null) {
+                return clusterSingleFlight.execute(flightKey, lookup, loader);
+            }
+            Optional<T> cached = lookup.get();
+            return cached.isPresent() ? cached.get() : loader.get();
+        });
+    }
+
     // ==================== LINK OPERATIONS ====================
 
     public void link(String key, Long id) {
@@ -434,7 +527,7 @@ public class TransparentHCacheService<T> {
 
         checkNotShutdown();
 
-        cacheLock.writeLock().lock();
+        List<Lock> locks = lockKeys(key, id);
         try {
             // Link in remote caches first
             linkInRemoteCaches(key, id);
@@ -450,7 +543,7 @@ public class TransparentHCacheService<T> {
             logger.error("Error linking key={} with id={}: {}", key, id, e.getMessage(), e);
             throw new RuntimeException("Failed to link key with ID", e);
         } finally {
-            cacheLock.writeLock().unlock();
+            unlockKeys(locks);
         }
     }
 
@@ -461,7 +554,7 @@ public class TransparentHCacheService<T> {
 
         checkNotShutdown();
 
-        parameterPatternLock.writeLock().lock();
+        List<Lock> locks = lockItem(key, null);
         try {
             // Link in remote caches
             linkInRemoteCaches(key, parameters);
@@ -477,7 +570,7 @@ public class TransparentHCacheService<T> {
             logger.error("Error linking key={} with parameters: {}", key, e.getMessage(), e);
             throw new RuntimeException("Failed to link key with parameters", e);
         } finally {
-            parameterPatternLock.writeLock().unlock();
+            unlockKeys(locks);
         }
     }
 
@@ -488,7 +581,7 @@ public class TransparentHCacheService<T> {
 
         checkNotShutdown();
 
-        parameterPatternLock.writeLock().lock();
+        List<Lock> locks = lockItem(null, id);
         try {
             // Link in remote caches
             linkInRemoteCaches(id, parameters);
@@ -504,7 +597,7 @@ public class TransparentHCacheService<T> {
             logger.error("Error linking id={} with parameters: {}", id, e.getMessage(), e);
             throw new RuntimeException("Failed to link ID with parameters", e);
         } finally {
-            parameterPatternLock.writeLock().unlock();
+            unlockKeys(locks);
         }
     }
 
@@ -517,7 +610,7 @@ public class TransparentHCacheService<T> {
 
         checkNotShutdown();
 
-        cacheLock.writeLock().lock();
+        List<Lock> locks = lockItem(key, id);
         try {
             // Find cached item info first
             CachedItemInfo itemInfo = findCachedItemInfo(key, id);
@@ -529,6 +622,7 @@ public class TransparentHCacheService<T> {
 
             // Invalidate remote caches
             invalidateRemoteCachesWithErrorHandling(key, id);
+            broadcastInvalidation(key, id);
 
             statistics.decrementValues();
 
@@ -537,7 +631,7 @@ public class TransparentHCacheService<T> {
         } catch (Exception e) {
             logger.warn("Error during invalidation of key={}, id={}: {}", key, id, e.getMessage());
         } finally {
-            cacheLock.writeLock().unlock();
+            unlockKeys(locks);
         }
     }
 
@@ -546,7 +640,7 @@ public class TransparentHCacheService<T> {
             return;
         }
 
-        cacheLock.writeLock().lock();
+        List<Lock> locks = lockItem(key, null);
         try {
             // Find associated information
             CachedItemInfo itemInfo = findCachedItemInfoByKey(key);
@@ -558,6 +652,7 @@ public class TransparentHCacheService<T> {
 
             // Invalidate remote caches
             invalidateRemoteCachesWithErrorHandling(key, itemInfo.associatedId);
+            broadcastInvalidation(key, itemInfo.associatedId);
 
             statistics.decrementValues();
 
@@ -566,7 +661,7 @@ public class TransparentHCacheService<T> {
         } catch (Exception e) {
             logger.warn("Error during invalidation of key={}: {}", key, e.getMessage());
         } finally {
-            cacheLock.writeLock().unlock();
+            unlockKeys(locks);
         }
     }
 
@@ -575,7 +670,7 @@ public class TransparentHCacheService<T> {
             return;
         }
 
-        cacheLock.writeLock().lock();
+        List<Lock> locks = lockItem(null, id);
         try {
             // Find associated information
             CachedItemInfo itemInfo = findCachedItemInfoById(id);
@@ -587,6 +682,7 @@ public class TransparentHCacheService<T> {
 
             // Invalidate remote caches
             invalidateRemoteCachesWithErrorHandling(itemInfo.associatedKey, id);
+            broadcastInvalidation(itemInfo.associatedKey, id);
 
             statistics.decrementValues();
 
@@ -595,15 +691,14 @@ public class TransparentHCacheService<T> {
         } catch (Exception e) {
             logger.warn("Error during invalidation of id={}: {}", id, e.getMessage());
         } finally {
-            cacheLock.writeLock().unlock();
+            unlockKeys(locks);
         }
     }
 
     public void invalidateAll() {
         checkNotShutdown();
 
-        cacheLock.writeLock().lock();
-        parameterPatternLock.writeLock().lock();
+        clearLock.writeLock().lock();
         try {
             // Clear local caches
             if (config.isLocalCacheEnabled()) {
@@ -612,6 +707,10 @@ public class TransparentHCacheService<T> {
 
             // Clear remote caches
             clearRemoteCaches();
+            InvalidationBus bus = invalidationBus;
+            if (bus != null) {
+                bus.publishAll();
+            }
 
             // Reset statistics
             statistics.reset();
@@ -621,8 +720,7 @@ public class TransparentHCacheService<T> {
         } catch (Exception e) {
             logger.error("Error during invalidate all operation: {}", e.getMessage(), e);
         } finally {
-            parameterPatternLock.writeLock().unlock();
-            cacheLock.writeLock().unlock();
+            clearLock.writeLock().unlock();
         }
     }
 
@@ -636,15 +734,27 @@ public class TransparentHCacheService<T> {
         if (isShutdown.compareAndSet(false, true)) {
             logger.info("Shutting down TransparentHierarchicalCacheService...");
 
-            cacheLock.writeLock().lock();
-            parameterPatternLock.writeLock().lock();
+            clearLock.writeLock().lock();
             try {
                 // Clear all caches
                 invalidateAll();
 
+                // Stop broadcasting before the Redis client goes away
+                if (invalidationBus != null) {
+                    invalidationBus.close();
+                }
+
                 // Shutdown remote services
                 shutdownRemoteServices();
 
+                // Stop background reloads of local entries
+                if (refreshExecutor != null) {
+                    refreshExecutor.shutdownNow();
+                }
+                if (hedgedReader != null) {
+                    hedgedReader.shutdown();
+                }
+
                 // Clean up ThreadLocal variables
                 cleanupThreadLocalVariables();
 
@@ -656,14 +766,72 @@ public class TransparentHCacheService<T> {
             } catch (Exception e) {
                 logger.error("Error during shutdown: {}", e.getMessage(), e);
             } finally {
-                parameterPatternLock.writeLock().unlock();
-                cacheLock.writeLock().unlock();
+                clearLock.writeLock().unlock();
             }
         }
     }
 
     // ==================== PRIVATE HELPER METHODS ====================
 
+    /**
+     * Locks the stripes of the given keys or IDs for a write; null entries are skipped. Stripes are acquired in
+     * a fixed order, so writes touching several keys cannot deadlock, and the shared side of {@code clearLock}
+     * keeps them from interleaving with a full clear.
+     */
+    private List<Lock> lockKeys(Object... lockKeys) {
+        List<Object> present = new ArrayList<>(lockKeys.length);
+        for (Object lockKey : lockKeys) {
+            if (lockKey != null) {
+                present.add(lockKey);
+            }
+        }
+        List<Lock> locks = new ArrayList<>();
+        keyLocks.bulkGet(present).forEach(locks::add);
+
+        clearLock.readLock().lock();
+        for (Lock lock : locks) {
+            lock.lock();
+        }
+        return locks;
+    }
+
+    /**
+     * Locks both stripes of an item known by only its key or only its ID. The missing half is looked up in the
+     * local caches and checked again once the stripes are held: a concurrent put may have linked the item to
+     * another key or ID in between, in which case the locks are released and taken again.
+     */
+    private List<Lock> lockItem(String key, Long id) {
+        if ((key == null) == (id == null)) {
+            return lockKeys(key, id);
+        }
+        while (true) {
+            String lockKey = key != null ? key : findCachedItemInfoById(id).associatedKey;
+            Long lockId = id != null ? id : findCachedItemInfoByKey(key).associatedId;
+            List<Lock> locks = lockKeys(lockKey, lockId);
+
+            boolean keyUnchanged = key != null || Objects.equals(lockKey, findCachedItemInfoById(id).associatedKey);
+            boolean idUnchanged = id != null || Objects.equals(lockId, findCachedItemInfoByKey(key).associatedId);
+            if (keyUnchanged && idUnchanged) {
+                return locks;
+            }
+            unlockKeys(locks);
+        }
+    }
+
+    private void unlockKeys(List<Lock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+        clearLock.readLock().unlock();
+    }
+
+    private void broadcastInvalidation(String key, Long id) {
+        InvalidationBus bus = invalidationBus;
+        if (bus != null) {
+            bus.publish(key, id);
+        }
+    }
+
     private void checkNotShutdown() {
         if (isShutdown.get()) {
             throw new IllegalStateException("Cache service has been shut down");
@@ -671,32 +839,22 @@ public class TransparentHCacheService<T> {
     }
 
     private Optional<T> getFromLocalCache(String key, Long id) {
-        cacheLock.readLock().lock();
-        try {
-            CachedItem<T> cachedItem = findInLocalCacheThreadSafe(key, id);
-            if (cachedItem != null && !cachedItem.isExpired()) {
-                return Optional.of(cachedItem.getValue());
-            }
-        } finally {
-            cacheLock.readLock().unlock();
+        CachedItem<T> cachedItem = findInLocalCacheThreadSafe(key, id);
+        if (cachedItem != null && !cachedItem.isExpired()) {
+            return Optional.of(cachedItem.getValue());
         }
         return Optional.empty();
     }
 
     private Optional<T> getFromLocalCacheById(Long id) {
-        cacheLock.readLock().lock();
-        try {
-            if (localLongKeyCache != null) {
-                String uniqueId = localLongKeyCache.getIfPresent(id);
-                if (uniqueId != null && localPrimaryCache != null) {
-                    CachedItem<T> cachedItem = localPrimaryCache.getIfPresent(uniqueId);
-                    if (cachedItem != null && !cachedItem.isExpired()) {
-                        return Optional.of(cachedItem.getValue());
-                    }
+        if (localLongKeyCache != null) {
+            String uniqueId = localLongKeyCache.getIfPresent(id);
+            if (uniqueId != null && localPrimaryCache != null) {
+                CachedItem<T> cachedItem = localPrimaryCache.getIfPresent(uniqueId);
+                if (cachedItem != null && !cachedItem.isExpired()) {
+                    return Optional.of(cachedItem.getValue());
                 }
             }
-        } finally {
-            cacheLock.readLock().unlock();
         }
         return Optional.empty();
     }
@@ -742,43 +900,53 @@ public class TransparentHCacheService<T> {
     }
 
     private List<T> searchInLocalCacheThreadSafe(List<SearchParameter> parameters) {
-        cacheLock.readLock().lock();
-        parameterPatternLock.readLock().lock();
-        try {
-            if (!config.isLocalCacheEnabled() || localParamCache == null) {
-                return Collections.emptyList();
-            }
+        if (!config.isLocalCacheEnabled() || localParamCache == null) {
+            return Collections.emptyList();
+        }
 
-            Set<String> patterns = generateHierarchicalPatterns(parameters);
-            Set<String> uniqueIds = new HashSet<>();
+        long[] patterns = patternGenerator.hierarchicalPatterns(parameters);
+        Set<String> uniqueIds = new HashSet<>();
 
-            for (String pattern : patterns) {
-                Set<String> patternIds = localParamCache.getIfPresent(pattern);
-                if (patternIds != null) {
-                    uniqueIds.addAll(patternIds);
-                }
+        // Index sets are never mutated once published, so they can be read without locking
+        for (long pattern : patterns) {
+            Set<String> patternIds = localParamCache.getIfPresent(pattern);
+            if (patternIds != null) {
+                uniqueIds.addAll(patternIds);
             }
+        }
 
-            List<T> results = new ArrayList<>();
-            for (String uniqueId : uniqueIds) {
-                CachedItem<T> cachedItem = localPrimaryCache.getIfPresent(uniqueId);
-                if (cachedItem != null && !cachedItem.isExpired()) {
-                    results.add(cachedItem.getValue());
-                }
+        List<T> results = new ArrayList<>();
+        for (String uniqueId : uniqueIds) {
+            CachedItem<T> cachedItem = localPrimaryCache.getIfPresent(uniqueId);
+            if (cachedItem != null && !cachedItem.isExpired()) {
+                results.add(cachedItem.getValue());
             }
+        }
 
-            return results;
+        return results;
+    }
 
-        } finally {
-            parameterPatternLock.readLock().unlock();
-            cacheLock.readLock().unlock();
-        }
+    /**
+     * Refresh-ahead reload of a local entry, run on the refresh executor.
+     */
+    @SuppressWarnings("unchecked")
+    private Optional<T> reloadFromRemote(CachedItem<T> cachedItem) {
+        Class<T> valueType = (Class<T>) cachedItem.getValue().getClass();
+        return getFromRemoteCachesWithFallback(cachedItem.getStringKey(), cachedItem.getLongKey(),
+                cachedItem.getParameters(), valueType);
     }
 
     private Optional<T> getFromRemoteCachesWithFallback(String key, Long id, List<SearchParameter> parameters, Class<T> valueType) {
         CacheConfiguration.FallbackStrategy strategy = getFallbackStrategy();
 
         switch (strategy) {
+            case REDIS_THEN_DATABASE_HEDGED:
+                if (config.isRemoteCacheEnabled() && config.isDatabaseCacheEnabled()) {
+                    return hedgedReader().read(
+                            () -> getFromRedisWithErrorHandling(key, id, parameters, valueType),
+                            () -> getFromDatabaseWithErrorHandling(key, id, parameters, valueType));
+                }
+                return getFromRemoteWithRedisFirst(key, id, parameters, valueType);
             case REDIS_THEN_DATABASE:
                 return getFromRemoteWithRedisFirst(key, id, parameters, valueType);
             case DATABASE_THEN_REDIS:
@@ -841,6 +1009,8 @@ public class TransparentHCacheService<T> {
     }
 
     private Optional<T> getFromRedisWithErrorHandling(String key, Long id, List<SearchParameter> parameters, Class<T> valueType) {
+        if (!allowRedis()) return Optional.empty();
+        long start = System.nanoTime();
         try {
             Optional<T> result;
             if (key != null && id != null) {
@@ -853,6 +1023,7 @@ public class TransparentHCacheService<T> {
                 result = Optional.empty();
             }
 
+            redisBreaker.recordSuccess(System.nanoTime() - start);
             if (result.isPresent()) {
                 statistics.incrementL2Hits();
             } else {
@@ -862,6 +1033,7 @@ public class TransparentHCacheService<T> {
             return result;
 
         } catch (Exception e) {
+            redisBreaker.recordFailure();
             logger.warn("Error accessing Redis cache for key={}, id={}: {}", key, id, e.getMessage());
             statistics.incrementL2Errors();
             return Optional.empty();
@@ -869,6 +1041,8 @@ public class TransparentHCacheService<T> {
     }
 
     private Optional<T> getFromDatabaseWithErrorHandling(String key, Long id, List<SearchParameter> parameters, Class<T> valueType) {
+        if (!allowDatabase()) return Optional.empty();
+        long start = System.nanoTime();
         try {
             Optional<T> result;
             if (key != null && id != null) {
@@ -881,6 +1055,7 @@ public class TransparentHCacheService<T> {
                 result = Optional.empty();
             }
 
+            databaseBreaker.recordSuccess(System.nanoTime() - start);
             if (result.isPresent()) {
                 statistics.incrementL3Hits();
             } else {
@@ -890,6 +1065,7 @@ public class TransparentHCacheService<T> {
             return result;
 
         } catch (Exception e) {
+            databaseBreaker.recordFailure();
             logger.warn("Error accessing database cache for key={}, id={}: {}", key, id, e.getMessage());
             statistics.incrementL3Errors();
             return Optional.empty();
@@ -901,6 +1077,7 @@ public class TransparentHCacheService<T> {
 
         switch (strategy) {
             case REDIS_THEN_DATABASE:
+            case REDIS_THEN_DATABASE_HEDGED:
                 return searchInRemoteWithRedisFirst(parameters, valueType);
             case DATABASE_THEN_REDIS:
                 return searchInRemoteWithDatabaseFirst(parameters, valueType);
@@ -958,8 +1135,11 @@ public class TransparentHCacheService<T> {
     }
 
     private List<T> searchInRedisWithErrorHandling(List<SearchParameter> parameters, Class<T> valueType) {
+        if (!allowRedis()) return Collections.emptyList();
+        long start = System.nanoTime();
         try {
             List<T> results = redisCache.get(parameters, valueType);
+            redisBreaker.recordSuccess(System.nanoTime() - start);
             if (!results.isEmpty()) {
                 statistics.incrementL2Hits();
             } else {
@@ -968,6 +1148,7 @@ public class TransparentHCacheService<T> {
             return results;
 
         } catch (Exception e) {
+            redisBreaker.recordFailure();
             logger.warn("Error searching Redis cache with parameters: {}", e.getMessage());
             statistics.incrementL2Errors();
             return Collections.emptyList();
@@ -975,8 +1156,11 @@ public class TransparentHCacheService<T> {
     }
 
     private List<T> searchInDatabaseWithErrorHandling(List<SearchParameter> parameters, Class<T> valueType) {
+        if (!allowDatabase()) return Collections.emptyList();
+        long start = System.nanoTime();
         try {
             List<T> results = databaseCache.get(parameters, valueType);
+            databaseBreaker.recordSuccess(System.nanoTime() - start);
             if (!results.isEmpty()) {
                 statistics.incrementL3Hits();
             } else {
@@ -985,6 +1169,7 @@ public class TransparentHCacheService<T> {
             return results;
 
         } catch (Exception e) {
+            databaseBreaker.recordFailure();
             logger.warn("Error searching database cache with parameters: {}", e.getMessage());
             statistics.incrementL3Errors();
             return Collections.emptyList();
@@ -1004,30 +1189,42 @@ public class TransparentHCacheService<T> {
     }
 
     private void writeToRedisWithErrorHandling(String key, Long id, List<SearchParameter> parameters, T value, long ttlMillis) {
+        if (!allowRedis()) {
+            skippedRedisWrites.record(key);
+            return;
+        }
+        long start = System.nanoTime();
         try {
             if (id != null) {
                 redisCache.put(key, id, parameters, value, ttlMillis);
             } else {
                 redisCache.put(key, parameters, value, ttlMillis);
             }
+            redisBreaker.recordSuccess(System.nanoTime() - start);
             statistics.incrementL2Puts();
 
         } catch (Exception e) {
+            redisBreaker.recordFailure();
+            skippedRedisWrites.record(key);
             logger.warn("Error writing to Redis cache for key={}, id={}: {}", key, id, e.getMessage());
             statistics.incrementL2Errors();
         }
     }
 
     private void writeToDatabaseWithErrorHandling(String key, Long id, List<SearchParameter> parameters, T value, long ttlMillis) {
+        if (!allowDatabase()) return;
+        long start = System.nanoTime();
         try {
             if (id != null) {
                 databaseCache.put(key, id, parameters, value, ttlMillis);
             } else {
                 databaseCache.put(key, parameters, value, ttlMillis);
             }
+            databaseBreaker.recordSuccess(System.nanoTime() - start);
             statistics.incrementL3Puts();
 
         } catch (Exception e) {
+            databaseBreaker.recordFailure();
             logger.warn("Error writing to database cache for key={}, id={}: {}", key, id, e.getMessage());
             statistics.incrementL3Errors();
         }
@@ -1038,7 +1235,7 @@ public class TransparentHCacheService<T> {
             return;
         }
 
-        cacheLock.writeLock().lock();
+        List<Lock> locks = lockKeys(key, id);
         try {
             // Create cached item
             CachedItem<T> cachedItem = new CachedItem<>(key, id, value, parameters, ttlMillis);
@@ -1062,7 +1259,7 @@ public class TransparentHCacheService<T> {
             updateLocalParameterIndexesThreadSafe(parameters, uniqueId);
 
         } finally {
-            cacheLock.writeLock().unlock();
+            unlockKeys(locks);
         }
     }
 
@@ -1071,27 +1268,22 @@ public class TransparentHCacheService<T> {
             return;
         }
 
-        parameterPatternLock.writeLock().lock();
-        try {
-            Set<String> patterns = generateHierarchicalPatterns(parameters);
-
-            for (String pattern : patterns) {
-                Set<String> ids = localParamCache.getIfPresent(pattern);
-                if (ids == null) {
-                    ids = new HashSet<>();
-                } else {
-                    ids = new HashSet<>(ids); // Create mutable copy
-                }
-                ids.add(uniqueId);
-                localParamCache.put(pattern, ids);
-            }
-
-            // Store pattern mapping for cleanup (thread-safe map)
-            parameterPatterns.computeIfAbsent(uniqueId, k -> ConcurrentHashMap.newKeySet()).addAll(patterns);
+        long[] patterns = patternGenerator.hierarchicalPatterns(parameters);
 
-        } finally {
-            parameterPatternLock.writeLock().unlock();
+        // Copy-on-write inside an atomic compute: concurrent writers to the same pattern cannot lose updates
+        for (long pattern : patterns) {
+            localParamCache.asMap().compute(pattern, (p, ids) -> {
+                if (ids != null && ids.contains(uniqueId)) {
+                    return ids;
+                }
+                Set<String> updatedIds = ids != null ? new HashSet<>(ids) : new HashSet<>();
+                updatedIds.add(uniqueId);
+                return updatedIds;
+            });
         }
+
+        // Store pattern mapping for cleanup (thread-safe map)
+        parameterPatterns.merge(uniqueId, patterns, PatternIds::union);
     }
 
     private void linkInRemoteCaches(String key, Long id) {
@@ -1284,32 +1476,24 @@ public class TransparentHCacheService<T> {
     }
 
     private void removeFromParameterIndexesThreadSafe(List<SearchParameter> parameters, String uniqueId) {
-        parameterPatternLock.writeLock().lock();
-        try {
-            Set<String> patterns = parameterPatterns.get(uniqueId);
-            if (patterns == null) {
-                patterns = generateHierarchicalPatterns(parameters);
-            }
-
-            for (String pattern : patterns) {
-                Set<String> ids = localParamCache.getIfPresent(pattern);
-                if (ids != null) {
-                    Set<String> updatedIds = new HashSet<>(ids);
-                    updatedIds.remove(uniqueId);
+        long[] patterns = parameterPatterns.get(uniqueId);
+        if (patterns == null) {
+            patterns = patternGenerator.hierarchicalPatterns(parameters);
+        }
 
-                    if (updatedIds.isEmpty()) {
-                        localParamCache.invalidate(pattern);
-                    } else {
-                        localParamCache.put(pattern, updatedIds);
-                    }
+        // Returning null from the compute drops a pattern that has no IDs left
+        for (long pattern : patterns) {
+            localParamCache.asMap().computeIfPresent(pattern, (p, ids) -> {
+                if (!ids.contains(uniqueId)) {
+                    return ids;
                 }
-            }
-
-            parameterPatterns.remove(uniqueId);
-
-        } finally {
-            parameterPatternLock.writeLock().unlock();
+                Set<String> updatedIds = new HashSet<>(ids);
+                updatedIds.remove(uniqueId);
+                return updatedIds.isEmpty() ? null : updatedIds;
+            });
         }
+
+        parameterPatterns.remove(uniqueId);
     }
 
     private void invalidateRemoteCachesWithErrorHandling(String key, Long id) {
@@ -1405,34 +1589,56 @@ public class TransparentHCacheService<T> {
         }
     }
 
-    private Set<String> generateHierarchicalPatterns(List<SearchParameter> parameters) {
-        if (parameters == null || parameters.isEmpty()) {
-            return Collections.emptySet();
+    /**
+     * Whether Redis may be called now; false while its circuit breaker is open, so callers move on to the next
+     * tier instead of waiting for the client timeout.
+     */
+    private boolean allowRedis() {
+        if (!redisBreaker.allowRequest()) {
+            statistics.incrementL2ShortCircuits();
+            return false;
         }
+        return repairSkippedRedisWrites();
+    }
 
-        List<SearchParameter> sortedParams = parameters.stream()
-                .sorted(Comparator.comparingInt(SearchParameter::getLevel))
-                .collect(Collectors.toList());
+    /**
+     * Invalidates in Redis the keys whose writes were skipped or failed, using the permit just granted, so the
+     * values those writes replaced are not served once the breaker closes. A failure counts against the breaker
+     * and keeps the keys recorded for the next permitted call.
+     */
+    private boolean repairSkippedRedisWrites() {
+        if (skippedRedisWrites.isEmpty()) return true;
+        try {
+            int repaired = skippedRedisWrites.repair(redisCache::invalidateOrThrow, redisCache::invalidateAll);
+            logger.info("Invalidated {} Redis keys whose writes were skipped", repaired < 0 ? "all" : repaired);
+            return true;
+        } catch (Exception e) {
+            redisBreaker.recordFailure();
+            logger.warn("Error invalidating Redis keys whose writes were skipped: {}", e.getMessage());
+            statistics.incrementL2Errors();
+            return false;
+        }
+    }
 
-        Set<String> patterns = new HashSet<>();
+    private boolean allowDatabase() {
+        if (databaseBreaker.allowRequest()) return true;
+        statistics.incrementL3ShortCircuits();
+        return false;
+    }
 
-        // Generate all possible combinations maintaining hierarchy
-        for (int i = 0; i < sortedParams.size(); i++) {
-            for (int j = i; j < sortedParams.size(); j++) {
-                List<SearchParameter> subList = sortedParams.subList(i, j + 1);
-                String pattern = subList.stream()
-                        .map(SearchParameter::toKey)
-                        .collect(Collectors.joining(">"));
-                patterns.add(pattern);
+    private HedgedReader hedgedReader() {
+        HedgedReader reader = hedgedReader;
+        if (reader == null) {
+            synchronized (this) {
+                reader = hedgedReader;
+                if (reader == null) {
+                    reader = new HedgedReader(config.getHedgePercentile(), config.getHedgeInitialDelayMillis(),
+                            config.getHedgeThreads());
+                    hedgedReader = reader;
+                }
             }
         }
-
-        // Add individual parameter patterns
-        for (SearchParameter param : sortedParams) {
-            patterns.add(param.toKey());
-        }
-
-        return patterns;
+        return reader;
     }
 
     private CacheConfiguration.FallbackStrategy getFallbackStrategy() {
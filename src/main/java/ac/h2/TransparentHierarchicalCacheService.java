@@ -7,6 +7,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -17,18 +18,29 @@ public class TransparentHierarchicalCacheService<T> {
     // Local caches
     private final Cache<String, CachedItem<T>> localPrimaryCache;
     private final Cache<Long, String> localLongKeyCache;
-    private final Cache<String, Set<String>> localParamCache;
+    private final Cache<Long, Set<String>> localParamCache;
+    private final ThreadPoolExecutor refreshExecutor;
+    private volatile InvalidationBus invalidationBus;
 
     // Remote providers
     private final HierarchicalCacheService<T> redisCache;
     private final DatabaseCacheProvider<T> databaseCache;
+    private volatile HedgedReader hedgedReader;
+    private final CircuitBreaker redisBreaker;
+    private final CircuitBreaker databaseBreaker;
+    private final WriteBehindQueue<CachedItem<T>> writeBehind;
 
     // Configuration
     private final CacheConfiguration config;
     private final CacheStatistics statistics;
+    private final HierarchicalPatternGenerator patternGenerator = HierarchicalPatternGenerator.shared();
+    private final SingleFlight<String> flights = new SingleFlight<>();
+    private final SingleFlight<String> searchFlights = new SingleFlight<>();
+    private final DistributedSingleFlight clusterSingleFlight;
+    private final SkippedWrites<String> skippedRedisWrites = new SkippedWrites<>(SkippedWrites.DEFAULT_CAPACITY);
 
     // Internal state
-    private final Map<String, Set<String>> parameterPatterns = new ConcurrentHashMap<>();
+    private final Map<String, long[]> parameterPatterns = new ConcurrentHashMap<>();
 
     public TransparentHierarchicalCacheService(
             HierarchicalCacheService<T> redisCache,
@@ -38,13 +50,28 @@ public class TransparentHierarchicalCacheService<T> {
         this.databaseCache = databaseCache;
         this.config = config;
         this.statistics = new CacheStatistics();
+        this.redisBreaker = CircuitBreaker.forTier("redis", config, statistics::setL2CircuitState);
+        this.databaseBreaker = CircuitBreaker.forTier("database", config, statistics::setL3CircuitState);
+        this.clusterSingleFlight = config.isClusterSingleFlightEnabled() && redisCache != null
+                ? new DistributedSingleFlight(redisCache.getRedissonClient(),
+                        config.getClusterLockWaitMillis(), config.getClusterLockLeaseMillis())
+                : null;
 
         // Initialize local caches if enabled
         if (config.isLocalCacheEnabled()) {
-            this.localPrimaryCache = Caffeine.newBuilder()
+            Caffeine<Object, Object> primaryBuilder = Caffeine.newBuilder()
                     .maximumSize(config.getMaxLocalCacheSize())
-                    .expireAfterWrite(config.getLocalCacheTtlMillis(), TimeUnit.MILLISECONDS)
-                    .build();
+                    .expireAfterWrite(config.getLocalCacheTtlMillis(), TimeUnit.MILLISECONDS);
+            if (config.isLocalRefreshAheadEnabled()) {
+                this.refreshExecutor = RefreshAheadLoader.newRefreshExecutor(config.getLocalRefreshThreads());
+                this.localPrimaryCache = primaryBuilder
+                        .refreshAfterWrite(config.getLocalRefreshAfterWriteMillis(), TimeUnit.MILLISECONDS)
+                        .executor(refreshExecutor)
+                        .build(new RefreshAheadLoader<>(this::reloadFromRemote));
+            } else {
+                this.refreshExecutor = null;
+                this.localPrimaryCache = primaryBuilder.build();
+            }
 
             this.localLongKeyCache = Caffeine.newBuilder()
                     .maximumSize(config.getMaxLocalCacheSize())
@@ -56,10 +83,46 @@ public class TransparentHierarchicalCacheService<T> {
                     .expireAfterWrite(config.getRemoteCacheTtlMillis(), TimeUnit.MILLISECONDS)
                     .build();
         } else {
+            this.refreshExecutor = null;
             this.localPrimaryCache = null;
             this.localLongKeyCache = null;
             this.localParamCache = null;
         }
+
+        this.writeBehind = config.isWriteBehindEnabled()
+                ? new WriteBehindQueue<>(config.getWriteBehindCapacity(), config.getWriteBehindBatchSize(),
+                        config.getWriteBehindFlushIntervalMillis(), this::writeBatchToRemote)
+                : null;
+
+        if (config.isInvalidationBusEnabled() && config.isLocalCacheEnabled() && redisCache != null) {
+            enableInvalidationBus(new InvalidationBus(redisCache.getRedissonClient(),
+                    config.getInvalidationTopic(), config.getInvalidationBatchWindowMillis()));
+        }
+    }
+
+    /**
+     * Broadcasts this node's writes and invalidations to the local caches of other nodes, and applies theirs
+     * here. The bus is closed on {@link #shutdown()}.
+     */
+    public void enableInvalidationBus(InvalidationBus bus) {
+        bus.subscribe(new InvalidationBus.Listener() {
+            @Override
+            public void invalidated(String key, Long id) {
+                CachedItem<T> cachedItem = findInLocalCache(key, id);
+                if (cachedItem != null) {
+                    invalidateLocalCaches(cachedItem.generateUniqueId(), cachedItem.getStringKey(),
+                            cachedItem.getLongKey(), cachedItem.getParameters());
+                } else {
+                    invalidateLocalCaches(null, key, id, null);
+                }
+            }
+
+            @Override
+            public void invalidatedAll() {
+                clearLocalCaches();
+            }
+        });
+        this.invalidationBus = bus;
     }
 
     // ==================== PUT OPERATIONS ====================
@@ -92,8 +155,14 @@ public class TransparentHierarchicalCacheService<T> {
         // Cache locally if enabled
         cacheLocallyIfEnabled(key, id, normalizedParams, value);
 
-        // Write to remote cache asynchronously if enabled
-        writeToRemote(key, id, normalizedParams, value, ttlMillis);
+        // Write to remote caches, in the background when write-behind is enabled; other nodes are then told
+        // once the batch has been flushed, so they do not reload the value it replaces
+        if (writeBehind != null) {
+            writeToRemoteAsync(new CachedItem<>(key, id, value, normalizedParams, ttlMillis));
+        } else {
+            writeToRemote(key, id, normalizedParams, value, ttlMillis);
+            broadcastInvalidation(key, id);
+        }
 
         // Update statistics
         statistics.incrementValues();
@@ -258,11 +327,13 @@ public class TransparentHierarchicalCacheService<T> {
             return cached.get();
         }
 
-        T computed = supplier.get();
-        if (computed != null) {
-            put(key, Collections.emptyList(), computed);
-        }
-        return computed;
+        return coalesce(SingleFlight.flightKey(key, null), () -> get(key, valueType), () -> {
+            T computed = supplier.get();
+            if (computed != null) {
+                put(key, Collections.emptyList(), computed);
+            }
+            return computed;
+        });
     }
 
     public T getOrCompute(String key, Long id, Class<T> valueType, Supplier<T> supplier) {
@@ -271,11 +342,13 @@ public class TransparentHierarchicalCacheService<T> {
             return cached.get();
         }
 
-        T computed = supplier.get();
-        if (computed != null) {
-            put(key, id, Collections.emptyList(), computed);
-        }
-        return computed;
+        return coalesce(SingleFlight.flightKey(key, id), () -> get(key, id, valueType), () -> {
+            T computed = supplier.get();
+            if (computed != null) {
+                put(key, id, Collections.emptyList(), computed);
+            }
+            return computed;
+        });
     }
 
     public T getOrCompute(Long id, Class<T> valueType, Supplier<T> supplier) {
@@ -284,14 +357,16 @@ public class TransparentHierarchicalCacheService<T> {
             return cached.get();
         }
 
-        T computed = supplier.get();
-        if (computed != null) {
-            // This is tricky since we only have an ID but no key
-            // We'd need a way to determine the key from the computed value
-            // For now, we'll store it with a generated key based on the ID
-            put("id:" + id, id, Collections.emptyList(), computed);
-        }
-        return computed;
+        return coalesce(SingleFlight.flightKey(null, id), () -> get(id, valueType), () -> {
+            T computed = supplier.get();
+            if (computed != null) {
+                // This is tricky since we only have an ID but no key
+                // We'd need a way to determine the key from the computed value
+                // For now, we'll store it with a generated key based on the ID
+                put("id:" + id, id, Collections.emptyList(), computed);
+            }
+            return computed;
+        });
     }
 
     public List<T> getOrCompute(List<SearchParameter> parameters, Class<T> valueType, Supplier<List<T>> supplier) {
@@ -300,11 +375,26 @@ public class TransparentHierarchicalCacheService<T> {
             return cached;
         }
 
-        List<T> computed = supplier.get();
+        List<T> computed = searchFlights.execute(SingleFlight.flightKey(parameters), supplier);
         // Can't easily cache these results since we don't have keys
         return computed != null ? computed : Collections.emptyList();
     }
 
+    /**
+     * Runs the loader once per JVM for concurrent misses on the same key and, when
+     * {@link CacheConfiguration.Builder#clusterSingleFlight} is set, once per cluster. The lookup re-checks the
+     * cache first, because the value may have landed since the caller's miss.
+     */
+    private T coalesce(String flightKey, Supplier<Optional<T>> lookup, Supplier<T> loader) {
+        return flights.execute(flightKey, () -> {
+            if (clusterSingleFlight != null) {
+                return clusterSingleFlight.execute(flightKey, lookup, loader);
+            }
+            Optional<T> cached = lookup.get();
+            return cached.isPresent() ? cached.get() : loader.get();
+        });
+    }
+
     // ==================== LINK OPERATIONS ====================
 
     public void link(String key, Long id) {
@@ -410,7 +500,9 @@ public class TransparentHierarchicalCacheService<T> {
         invalidateLocalCaches(uniqueId, key, id, parameters);
 
         // Invalidate remote caches with cascading
+        discardPendingWrites(key, id);
         invalidateRemoteCaches(key, id);
+        broadcastInvalidation(key, id);
 
         statistics.decrementValues();
     }
@@ -457,6 +549,7 @@ public class TransparentHierarchicalCacheService<T> {
             }
 
             // Invalidate in remote caches
+            discardPendingWrites(key, associatedId);
             redisCache.invalidate(key);
             if (associatedId != null) {
                 redisCache.invalidate(associatedId);
@@ -468,6 +561,8 @@ public class TransparentHierarchicalCacheService<T> {
                 databaseCache.invalidate(associatedId);
             }
 
+            broadcastInvalidation(key, associatedId);
+
             statistics.decrementValues();
         } catch (Exception e) {
             logger.warn("Error during invalidation of key: {}", key, e);
@@ -498,6 +593,7 @@ public class TransparentHierarchicalCacheService<T> {
             invalidateLocalCaches(uniqueId, key, id, parameters);
 
             // Invalidate remote caches
+            discardPendingWrites(key, id);
             redisCache.invalidate(id);
             if (key != null) {
                 redisCache.invalidate(key);
@@ -509,6 +605,8 @@ public class TransparentHierarchicalCacheService<T> {
                 databaseCache.invalidate(key);
             }
 
+            broadcastInvalidation(key, id);
+
             statistics.decrementValues();
         } catch (Exception e) {
             logger.warn("Error during invalidation of ID: {}", id, e);
@@ -569,13 +667,16 @@ public class TransparentHierarchicalCacheService<T> {
 
     public void invalidateAll() {
         // Clear local caches
-        if (config.isLocalCacheEnabled()) {
-            if (localPrimaryCache != null) localPrimaryCache.invalidateAll();
-            if (localLongKeyCache != null) localLongKeyCache.invalidateAll();
-            if (localParamCache != null) localParamCache.invalidateAll();
+        clearLocalCaches();
+        InvalidationBus bus = invalidationBus;
+        if (bus != null) {
+            bus.publishAll();
         }
 
         // Clear remote caches
+        if (writeBehind != null) {
+            writeBehind.discardAll();
+        }
         if (config.isRemoteCacheEnabled()) {
             redisCache.invalidateAll();
         }
@@ -595,7 +696,18 @@ public class TransparentHierarchicalCacheService<T> {
     }
 
     public void shutdown() {
-        invalidateAll();
+        // Flushed first, while the remote providers and the bus are still open. The flushed values stay in the
+        // remote tiers, so only this node's local caches are dropped
+        if (writeBehind != null) {
+            writeBehind.close();
+            clearLocalCaches();
+        } else {
+            invalidateAll();
+        }
+
+        if (invalidationBus != null) {
+            invalidationBus.close();
+        }
 
         if (config.isRemoteCacheEnabled() && redisCache != null) {
             redisCache.shutdown();
@@ -604,10 +716,32 @@ public class TransparentHierarchicalCacheService<T> {
         if (config.isDatabaseCacheEnabled() && databaseCache != null) {
             databaseCache.shutdown();
         }
+
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+        if (hedgedReader != null) {
+            hedgedReader.shutdown();
+        }
     }
 
     // ==================== PRIVATE HELPER METHODS ====================
 
+    private void broadcastInvalidation(String key, Long id) {
+        InvalidationBus bus = invalidationBus;
+        if (bus != null) {
+            bus.publish(key, id);
+        }
+    }
+
+    private void clearLocalCaches() {
+        if (!config.isLocalCacheEnabled()) return;
+
+        if (localPrimaryCache != null) localPrimaryCache.invalidateAll();
+        if (localLongKeyCache != null) localLongKeyCache.invalidateAll();
+        if (localParamCache != null) localParamCache.invalidateAll();
+    }
+
     private CachedItem<T> findInLocalCache(String key, Long id) {
         if (!config.isLocalCacheEnabled() || localPrimaryCache == null) {
             return null;
@@ -648,11 +782,29 @@ public class TransparentHierarchicalCacheService<T> {
         return cachedItem;
     }
 
+    /**
+     * Refresh-ahead reload of a local entry, run on the refresh executor.
+     */
+    @SuppressWarnings("unchecked")
+    private Optional<T> reloadFromRemote(CachedItem<T> cachedItem) {
+        Class<T> valueType = (Class<T>) cachedItem.getValue().getClass();
+        return getFromRemote(cachedItem.getStringKey(), cachedItem.getLongKey(), cachedItem.getParameters(), valueType);
+    }
+
     private Optional<T> getFromRemote(String key, Long id, List<SearchParameter> parameters, Class<T> valueType) {
         CacheContext context = CacheContext.get();
         CacheConfiguration.FallbackStrategy strategy = getFallbackStrategy();
 
         switch (strategy) {
+            case REDIS_THEN_DATABASE_HEDGED:
+                // Start the database read too if Redis is slow
+                if (config.isRemoteCacheEnabled() && config.isDatabaseCacheEnabled()) {
+                    return hedgedReader().read(
+                            () -> getFromRedis(key, id, parameters, valueType),
+                            () -> readFromDatabase(key, id, parameters, valueType),
+                            value -> writeBackToRedis(key, id, parameters, value));
+                }
+                // Otherwise same as REDIS_THEN_DATABASE
             case REDIS_THEN_DATABASE:
                 // Try Redis first, then database
                 if (config.isRemoteCacheEnabled()) {
@@ -702,6 +854,8 @@ public class TransparentHierarchicalCacheService<T> {
     }
 
     private Optional<T> getFromRedis(String key, Long id, List<SearchParameter> parameters, Class<T> valueType) {
+        if (!allowRedis()) return Optional.empty();
+        long start = System.nanoTime();
         try {
             Optional<T> result;
 
@@ -715,6 +869,7 @@ public class TransparentHierarchicalCacheService<T> {
                 result = Optional.empty();
             }
 
+            redisBreaker.recordSuccess(System.nanoTime() - start);
             if (result.isPresent()) {
                 statistics.incrementL2Hits();
             } else {
@@ -723,6 +878,7 @@ public class TransparentHierarchicalCacheService<T> {
 
             return result;
         } catch (Exception e) {
+            redisBreaker.recordFailure();
             logger.warn("Error accessing Redis cache: {}", e.getMessage());
             statistics.incrementL2Errors();
             return Optional.empty();
@@ -730,6 +886,14 @@ public class TransparentHierarchicalCacheService<T> {
     }
 
     private Optional<T> getFromDatabase(String key, Long id, List<SearchParameter> parameters, Class<T> valueType) {
+        Optional<T> result = readFromDatabase(key, id, parameters, valueType);
+        result.ifPresent(value -> writeBackToRedis(key, id, parameters, value));
+        return result;
+    }
+
+    private Optional<T> readFromDatabase(String key, Long id, List<SearchParameter> parameters, Class<T> valueType) {
+        if (!allowDatabase()) return Optional.empty();
+        long start = System.nanoTime();
         try {
             Optional<T> result;
 
@@ -743,39 +907,47 @@ public class TransparentHierarchicalCacheService<T> {
                 result = Optional.empty();
             }
 
+            databaseBreaker.recordSuccess(System.nanoTime() - start);
             if (result.isPresent()) {
                 statistics.incrementL3Hits();
-
-                // Write back to Redis for future cache hits if enabled
-                if (config.isRemoteCacheEnabled() && result.isPresent()) {
-                    if (key != null && id != null) {
-                        redisCache.put(key, id, parameters, result.get());
-                    } else if (key != null) {
-                        redisCache.put(key, parameters, result.get());
-                    }
-                    // Note: can't write back with just an ID
-                }
             } else {
                 statistics.incrementL3Misses();
             }
 
             return result;
         } catch (Exception e) {
+            databaseBreaker.recordFailure();
             logger.warn("Error accessing database cache: {}", e.getMessage());
             statistics.incrementL3Errors();
             return Optional.empty();
         }
     }
 
+    /**
+     * Copies a database hit to Redis for future hits, without waiting for Redis to answer.
+     */
+    private void writeBackToRedis(String key, Long id, List<SearchParameter> parameters, T value) {
+        // Can't write back with just an ID
+        if (!config.isRemoteCacheEnabled() || key == null) return;
+        try {
+            redisCache.putAsync(key, id, parameters, value).exceptionally(e -> {
+                logger.warn("Error writing back to Redis: {}", e.getMessage());
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn("Error writing back to Redis: {}", e.getMessage());
+        }
+    }
+
     private List<T> searchInLocalCache(List<SearchParameter> parameters) {
         if (!config.isLocalCacheEnabled() || localParamCache == null) {
             return Collections.emptyList();
         }
 
-        Set<String> patterns = generateHierarchicalPatterns(parameters);
+        long[] patterns = patternGenerator.hierarchicalPatterns(parameters);
         Set<String> uniqueIds = new HashSet<>();
 
-        for (String pattern : patterns) {
+        for (long pattern : patterns) {
             Set<String> patternIds = localParamCache.getIfPresent(pattern);
             if (patternIds != null) {
                 uniqueIds.addAll(patternIds);
@@ -798,6 +970,7 @@ public class TransparentHierarchicalCacheService<T> {
 
         switch (strategy) {
             case REDIS_THEN_DATABASE:
+            case REDIS_THEN_DATABASE_HEDGED:
                 // Try Redis first, then database
                 if (config.isRemoteCacheEnabled()) {
                     List<T> redisResults = searchInRedis(parameters, valueType);
@@ -846,9 +1019,12 @@ public class TransparentHierarchicalCacheService<T> {
     }
 
     private List<T> searchInRedis(List<SearchParameter> parameters, Class<T> valueType) {
+        if (!allowRedis()) return Collections.emptyList();
+        long start = System.nanoTime();
         try {
             List<T> results = redisCache.get(parameters, valueType);
 
+            redisBreaker.recordSuccess(System.nanoTime() - start);
             if (!results.isEmpty()) {
                 statistics.incrementL2Hits();
             } else {
@@ -857,6 +1033,7 @@ public class TransparentHierarchicalCacheService<T> {
 
             return results;
         } catch (Exception e) {
+            redisBreaker.recordFailure();
             logger.warn("Error searching Redis cache: {}", e.getMessage());
             statistics.incrementL2Errors();
             return Collections.emptyList();
@@ -864,9 +1041,12 @@ public class TransparentHierarchicalCacheService<T> {
     }
 
     private List<T> searchInDatabase(List<SearchParameter> parameters, Class<T> valueType) {
+        if (!allowDatabase()) return Collections.emptyList();
+        long start = System.nanoTime();
         try {
             List<T> results = databaseCache.get(parameters, valueType);
 
+            databaseBreaker.recordSuccess(System.nanoTime() - start);
             if (!results.isEmpty()) {
                 statistics.incrementL3Hits();
 
@@ -881,6 +1061,7 @@ public class TransparentHierarchicalCacheService<T> {
 
             return results;
         } catch (Exception e) {
+            databaseBreaker.recordFailure();
             logger.warn("Error searching database cache: {}", e.getMessage());
             statistics.incrementL3Errors();
             return Collections.emptyList();
@@ -890,29 +1071,40 @@ public class TransparentHierarchicalCacheService<T> {
     private void writeToRemote(String key, Long id, List<SearchParameter> parameters, T value, long ttlMillis) {
         // Write to Redis if enabled
         if (config.isRemoteCacheEnabled()) {
-            try {
-                if (id != null) {
-                    redisCache.put(key, id, parameters, value, ttlMillis);
-                } else {
-                    redisCache.put(key, parameters, value, ttlMillis);
+            if (!allowRedis()) {
+                skippedRedisWrites.record(key);
+            } else {
+                long start = System.nanoTime();
+                try {
+                    if (id != null) {
+                        redisCache.put(key, id, parameters, value, ttlMillis);
+                    } else {
+                        redisCache.put(key, parameters, value, ttlMillis);
+                    }
+                    redisBreaker.recordSuccess(System.nanoTime() - start);
+                    statistics.incrementL2Puts();
+                } catch (Exception e) {
+                    redisBreaker.recordFailure();
+                    skippedRedisWrites.record(key);
+                    logger.warn("Error writing to Redis cache: {}", e.getMessage());
+                    statistics.incrementL2Errors();
                 }
-                statistics.incrementL2Puts();
-            } catch (Exception e) {
-                logger.warn("Error writing to Redis cache: {}", e.getMessage());
-                statistics.incrementL2Errors();
             }
         }
 
         // Write to database if enabled
-        if (config.isDatabaseCacheEnabled()) {
+        if (config.isDatabaseCacheEnabled() && allowDatabase()) {
+            long start = System.nanoTime();
             try {
                 if (id != null) {
                     databaseCache.put(key, id, parameters, value, ttlMillis);
                 } else {
                     databaseCache.put(key, parameters, value, ttlMillis);
                 }
+                databaseBreaker.recordSuccess(System.nanoTime() - start);
                 statistics.incrementL3Puts();
             } catch (Exception e) {
+                databaseBreaker.recordFailure();
                 logger.warn("Error writing to database cache: {}", e.getMessage());
                 statistics.incrementL3Errors();
             }
@@ -920,14 +1112,55 @@ public class TransparentHierarchicalCacheService<T> {
     }
 
     private void writeToRemoteAsync(CachedItem<T> cachedItem) {
-        // Could use CompletableFuture.runAsync() here for truly async behavior
-        writeToRemote(
-                cachedItem.getStringKey(),
-                cachedItem.getLongKey(),
-                cachedItem.getParameters(),
-                cachedItem.getValue(),
-                cachedItem.getTtl()
-        );
+        writeBehind.enqueue(cachedItem.generateUniqueId(), cachedItem);
+    }
+
+    private void writeBatchToRemote(List<CachedItem<T>> items) {
+        boolean writtenToRedis = !config.isRemoteCacheEnabled();
+
+        // Pipelined into one Redis round trip
+        if (config.isRemoteCacheEnabled()) {
+            if (!allowRedis()) {
+                items.forEach(item -> skippedRedisWrites.record(item.getStringKey()));
+            } else {
+                try {
+                    redisCache.putAll(items);
+                    redisBreaker.recordSuccess();
+                    writtenToRedis = true;
+                    items.forEach(item -> statistics.incrementL2Puts());
+                } catch (Exception e) {
+                    redisBreaker.recordFailure();
+                    items.forEach(item -> skippedRedisWrites.record(item.getStringKey()));
+                    logger.warn("Error writing {} queued items to Redis cache: {}", items.size(), e.getMessage());
+                    statistics.incrementL2Errors();
+                }
+            }
+        }
+
+        // One JDBC batch per table, in one transaction
+        if (config.isDatabaseCacheEnabled() && allowDatabase()) {
+            try {
+                databaseCache.putAll(items);
+                databaseBreaker.recordSuccess();
+                items.forEach(item -> statistics.incrementL3Puts());
+            } catch (Exception e) {
+                databaseBreaker.recordFailure();
+                logger.warn("Error writing {} queued items to database cache: {}", items.size(), e.getMessage());
+                statistics.incrementL3Errors();
+            }
+        }
+
+        // Other nodes drop their local copies only now that the batch can be read remotely; items whose Redis
+        // write was skipped are announced when repairSkippedRedisWrites invalidates them
+        if (writtenToRedis) {
+            items.forEach(item -> broadcastInvalidation(item.getStringKey(), item.getLongKey()));
+        }
+    }
+
+    private void discardPendingWrites(String key, Long id) {
+        if (writeBehind == null) return;
+        writeBehind.discard(item -> (key != null && key.equals(item.getStringKey()))
+                || (id != null && id.equals(item.getLongKey())));
     }
 
     private void cacheLocallyIfEnabled(String key, Long id, List<SearchParameter> parameters, T value) {
@@ -968,9 +1201,9 @@ public class TransparentHierarchicalCacheService<T> {
             return;
         }
 
-        Set<String> patterns = generateHierarchicalPatterns(parameters);
+        long[] patterns = patternGenerator.hierarchicalPatterns(parameters);
 
-        for (String pattern : patterns) {
+        for (long pattern : patterns) {
             Set<String> ids = localParamCache.getIfPresent(pattern);
             if (ids == null) {
                 ids = new HashSet<>();
@@ -983,7 +1216,7 @@ public class TransparentHierarchicalCacheService<T> {
         }
 
         // Store pattern mapping for cleanup
-        parameterPatterns.computeIfAbsent(uniqueId, k -> new HashSet<>()).addAll(patterns);
+        parameterPatterns.merge(uniqueId, patterns, PatternIds::union);
     }
 
     private void removeFromParameterIndexes(List<SearchParameter> parameters, String uniqueId) {
@@ -992,14 +1225,14 @@ public class TransparentHierarchicalCacheService<T> {
         }
 
         // Get patterns associated with this unique ID
-        Set<String> patterns = parameterPatterns.get(uniqueId);
+        long[] patterns = parameterPatterns.get(uniqueId);
         if (patterns == null) {
             // If we don't have a record, generate them from parameters
-            patterns = generateHierarchicalPatterns(parameters);
+            patterns = patternGenerator.hierarchicalPatterns(parameters);
         }
 
         // Remove uniqueId from all pattern indexes
-        for (String pattern : patterns) {
+        for (long pattern : patterns) {
             Set<String> ids = localParamCache.getIfPresent(pattern);
             if (ids != null) {
                 // Make a copy since the cached set might be immutable
@@ -1020,35 +1253,66 @@ public class TransparentHierarchicalCacheService<T> {
         parameterPatterns.remove(uniqueId);
     }
 
-    private Set<String> generateHierarchicalPatterns(List<SearchParameter> parameters) {
-        if (parameters == null || parameters.isEmpty()) {
-            return Collections.emptySet();
+    /**
+     * Whether Redis may be called now; false while its circuit breaker is open, so callers move on to the next
+     * tier instead of waiting for the client timeout.
+     */
+    private boolean allowRedis() {
+        if (!redisBreaker.allowRequest()) {
+            statistics.incrementL2ShortCircuits();
+            return false;
         }
+        return repairSkippedRedisWrites();
+    }
 
-        // Sort parameters by level
-        List<SearchParameter> sortedParams = parameters.stream()
-                .sorted(Comparator.comparingInt(SearchParameter::getLevel))
-                .collect(Collectors.toList());
+    /**
+     * Invalidates in Redis the keys whose writes were skipped or failed, using the permit just granted, so the
+     * values those writes replaced are not served once the breaker closes. A failure counts against the breaker
+     * and keeps the keys recorded for the next permitted call. Other nodes are told about each repaired key, as
+     * write-behind batches that never reached Redis were not announced yet.
+     */
+    private boolean repairSkippedRedisWrites() {
+        if (skippedRedisWrites.isEmpty()) return true;
+        try {
+            int repaired = skippedRedisWrites.repair(key -> {
+                redisCache.invalidateOrThrow(key);
+                broadcastInvalidation(key, null);
+            }, () -> {
+                redisCache.invalidateAll();
+                InvalidationBus bus = invalidationBus;
+                if (bus != null) {
+                    bus.publishAll();
+                }
+            });
+            logger.info("Invalidated {} Redis keys whose writes were skipped", repaired < 0 ? "all" : repaired);
+            return true;
+        } catch (Exception e) {
+            redisBreaker.recordFailure();
+            logger.warn("Error invalidating Redis keys whose writes were skipped: {}", e.getMessage());
+            statistics.incrementL2Errors();
+            return false;
+        }
+    }
 
-        Set<String> patterns = new HashSet<>();
+    private boolean allowDatabase() {
+        if (databaseBreaker.allowRequest()) return true;
+        statistics.incrementL3ShortCircuits();
+        return false;
+    }
 
-        // Generate all possible combinations maintaining hierarchy
-        for (int i = 0; i < sortedParams.size(); i++) {
-            for (int j = i; j < sortedParams.size(); j++) {
-                List<SearchParameter> subList = sortedParams.subList(i, j + 1);
-                String pattern = subList.stream()
-                        .map(SearchParameter::toKey)
-                        .collect(Collectors.joining(">"));
-                patterns.add(pattern);
+    private HedgedReader hedgedReader() {
+        HedgedReader reader = hedgedReader;
+        if (reader == null) {
+            synchronized (this) {
+                reader = hedgedReader;
+                if (reader == null) {
+                    reader = new HedgedReader(config.getHedgePercentile(), config.getHedgeInitialDelayMillis(),
+                            config.getHedgeThreads());
+                    hedgedReader = reader;
+                }
             }
         }
-
-        // Add individual parameter patterns
-        for (SearchParameter param : sortedParams) {
-            patterns.add(param.toKey());
-        }
-
-        return patterns;
+        return reader;
     }
 
     private CacheConfiguration.FallbackStrategy getFallbackStrategy() {
@@ -0,0 +1,239 @@
+package ac.h2;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Bounded write-behind buffer between a local cache and its remote tiers. Callers enqueue writes and return
+ * immediately; a background thread hands them to the writer in batches of up to {@code maxBatchSize}, as soon
+ * as a batch is full or {@code flushIntervalMillis} after the oldest pending write.
+ * <p>
+ * Writes are keyed: a write to a key that is still pending replaces the pending value instead of taking another
+ * slot, so a hot key is written once per flush however often it changes. When {@code capacity} distinct keys are
+ * pending, {@link #enqueue} blocks until the flusher catches up. Batches are written one at a time and in
+ * enqueue order. A batch that fails is logged and dropped, as the synchronous write path does.
+ * <p>
+ * {@link #close()} writes everything still pending before returning; writes enqueued after that go straight to
+ * the writer on the caller's thread.
+ */
+public class WriteBehindQueue<V> {
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 500;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 50L;
+
+    private static final long CLOSE_TIMEOUT_MILLIS = 10_000L;
+
+    private final int capacity;
+    private final int maxBatchSize;
+    private final long flushIntervalNanos;
+    private final Consumer<List<V>> writer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition batchWritten = lock.newCondition();
+    // Guarded by lock
+    private final Map<String, V> pending = new LinkedHashMap<>();
+    private boolean writing;
+    private boolean closed;
+
+    private final Thread flusher;
+
+    /**
+     * @param writer writes one batch to the remote tiers; called on the flusher thread, or on the caller's
+     *               thread from {@link #flush()} and after {@link #close()}
+     */
+    public WriteBehindQueue(int capacity, int maxBatchSize, long flushIntervalMillis, Consumer<List<V>> writer) {
+        if (capacity <= 0 || maxBatchSize <= 0 || flushIntervalMillis < 0 || writer == null) {
+            throw new IllegalArgumentException("Capacity and batch size must be positive, the flush interval must not be negative and a writer is required");
+        }
+        this.capacity = capacity;
+        this.maxBatchSize = maxBatchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.writer = writer;
+
+        this.flusher = new Thread(this::runFlusher, "cache-write-behind");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queues a write of {@code value} under {@code key}, replacing any write to the same key that has not been
+     * flushed yet. Blocks while the queue is full.
+     */
+    public void enqueue(String key, V value) {
+        lock.lock();
+        try {
+            if (!closed) {
+                if (!pending.containsKey(key)) {
+                    while (pending.size() >= capacity && !closed) {
+                        notFull.awaitUninterruptibly();
+                    }
+                }
+                if (!closed) {
+                    pending.put(key, value);
+                    notEmpty.signal();
+                    return;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // Closed: write inline rather than drop the value
+        write(List.of(value));
+    }
+
+    /**
+     * Drops pending writes matching {@code filter} and waits for a batch that is being written to finish, so an
+     * invalidation that follows cannot be overwritten by an older value.
+     */
+    public void discard(Predicate<? super V> filter) {
+        lock.lock();
+        try {
+            boolean removed = pending.values().removeIf(filter);
+            if (removed) {
+                notFull.signalAll();
+            }
+            while (writing) {
+                batchWritten.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every pending write; see {@link #discard(Predicate)}.
+     */
+    public void discardAll() {
+        discard(value -> true);
+    }
+
+    /**
+     * Writes everything pending on the caller's thread and returns once it has been handed to the writer.
+     */
+    public void flush() {
+        while (writeNextBatch(false)) {
+            // keep draining
+        }
+    }
+
+    /**
+     * Stops the flusher and writes everything still pending.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        flush();
+        try {
+            flusher.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int pendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runFlusher() {
+        while (writeNextBatch(true)) {
+            // keep draining
+        }
+    }
+
+    /**
+     * Takes the oldest pending writes and hands them to the writer; only one batch is written at a time.
+     *
+     * @param wait whether to wait for a full batch or the flush interval, as the flusher does
+     * @return false once there is nothing left to do: the queue is empty, or closed when waiting
+     */
+    private boolean writeNextBatch(boolean wait) {
+        List<V> batch;
+        lock.lock();
+        try {
+            if (wait) {
+                while (pending.isEmpty() && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                // Give the batch the flush interval to fill up, counted from when the first write arrived
+                long remaining = flushIntervalNanos;
+                while (pending.size() < maxBatchSize && remaining > 0 && !closed) {
+                    remaining = notEmpty.awaitNanos(remaining);
+                }
+                if (closed) {
+                    // close() drains the rest on the closing thread
+                    return false;
+                }
+            }
+            while (writing) {
+                batchWritten.awaitUninterruptibly();
+            }
+            if (pending.isEmpty()) {
+                // Everything was discarded while waiting; the flusher goes back to sleep
+                return wait;
+            }
+
+            batch = new ArrayList<>(Math.min(pending.size(), maxBatchSize));
+            Iterator<V> it = pending.values().iterator();
+            while (it.hasNext() && batch.size() < maxBatchSize) {
+                batch.add(it.next());
+                it.remove();
+            }
+            writing = true;
+            notFull.signalAll();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            write(batch);
+        } finally {
+            lock.lock();
+            try {
+                writing = false;
+                batchWritten.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return true;
+    }
+
+    private void write(List<V> batch) {
+        try {
+            writer.accept(batch);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to write {} queued cache entries: {}", batch.size(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package ac.h2.codec;
+
+/**
+ * Binary encoding of cached values, shared by every tier: Redis (through {@link RedissonCacheCodec}) and the
+ * database provider's value and parameter columns.
+ * <p>
+ * Encodings are self-describing - {@link #decode(byte[], Class)} with {@code Object.class} must return an
+ * instance of the type that was encoded - because Redis stores {@code CachedItem}s and key pointers side by side
+ * without any other type information. Implementations must be thread-safe.
+ */
+public interface CacheCodec {
+
+    /**
+     * Short, stable identifier, e.g. for configuration and benchmark reports.
+     */
+    String name();
+
+    byte[] encode(Object value);
+
+    /**
+     * @param type expected type, or {@code Object.class} to accept whatever was encoded
+     */
+    <V> V decode(byte[] data, Class<V> type);
+}
@@ -0,0 +1,173 @@
+package ac.h2.codec;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses the output of another codec once it reaches a size threshold, and transparently decompresses on
+ * decode. Every encoding starts with a one-byte header: {@link #UNCOMPRESSED}, or an algorithm id followed by
+ * the original length. Small values (key pointers, most envelopes) pay one byte; values that do not shrink are
+ * stored as-is.
+ * <p>
+ * Any node can read any algorithm, so switching algorithms needs no flush.
+ */
+public class CompressingCacheCodec implements CacheCodec {
+    public static final int DEFAULT_THRESHOLD_BYTES = 1024;
+
+    static final byte UNCOMPRESSED = 0;
+    static final byte LZ4 = 1;
+    static final byte DEFLATE = 2;
+
+    private static final int HEADER_BYTES = 1 + Integer.BYTES;
+
+    public enum Algorithm {
+        /** lz4-java; uses the JNI build when available and its pure-Java port otherwise. */
+        LZ4,
+        /** JDK {@link Deflater} at {@link Deflater#BEST_SPEED}: slower than LZ4, usually smaller output. */
+        DEFLATE
+    }
+
+    private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+
+    private final CacheCodec delegate;
+    private final Algorithm algorithm;
+    private final int thresholdBytes;
+    private final CompressionStatistics statistics = new CompressionStatistics();
+
+    private final LZ4Compressor lz4Compressor = LZ4_FACTORY.fastCompressor();
+    private final LZ4SafeDecompressor lz4Decompressor = LZ4_FACTORY.safeDecompressor();
+
+    public CompressingCacheCodec(CacheCodec delegate) {
+        this(delegate, Algorithm.LZ4, DEFAULT_THRESHOLD_BYTES);
+    }
+
+    public CompressingCacheCodec(CacheCodec delegate, Algorithm algorithm, int thresholdBytes) {
+        this.delegate = delegate;
+        this.algorithm = algorithm;
+        this.thresholdBytes = thresholdBytes;
+    }
+
+    @Override
+    public String name() {
+        return delegate.name() + "+" + algorithm.name().toLowerCase();
+    }
+
+    public CacheCodec getDelegate() {
+        return delegate;
+    }
+
+    public CompressionStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        byte[] encoded = delegate.encode(value);
+        if (encoded.length < thresholdBytes) {
+            statistics.recordSkipped(0);
+            return uncompressed(encoded);
+        }
+
+        long start = System.nanoTime();
+        byte[] compressed = algorithm == Algorithm.LZ4 ? compressLz4(encoded) : compressDeflate(encoded);
+        long nanos = System.nanoTime() - start;
+
+        if (compressed == null) {
+            statistics.recordSkipped(nanos);
+            return uncompressed(encoded);
+        }
+        statistics.recordCompressed(encoded.length, compressed.length, nanos);
+        return compressed;
+    }
+
+    @Override
+    public <V> V decode(byte[] data, Class<V> type) {
+        if (data == null) return null;
+
+        byte header = data[0];
+        if (header == UNCOMPRESSED) {
+            return delegate.decode(Arrays.copyOfRange(data, 1, data.length), type);
+        }
+
+        long start = System.nanoTime();
+        int originalLength = ByteBuffer.wrap(data, 1, Integer.BYTES).getInt();
+        byte[] original = switch (header) {
+            case LZ4 -> decompressLz4(data, originalLength);
+            case DEFLATE -> decompressDeflate(data, originalLength);
+            default -> throw new IllegalArgumentException("Unknown compression header: " + header);
+        };
+        statistics.recordDecompressed(System.nanoTime() - start);
+
+        return delegate.decode(original, type);
+    }
+
+    private static byte[] uncompressed(byte[] encoded) {
+        byte[] result = new byte[encoded.length + 1];
+        result[0] = UNCOMPRESSED;
+        System.arraycopy(encoded, 0, result, 1, encoded.length);
+        return result;
+    }
+
+    /** Returns the framed output, or null when it would not be smaller than the input. */
+    private byte[] compressLz4(byte[] encoded) {
+        byte[] target = new byte[HEADER_BYTES + lz4Compressor.maxCompressedLength(encoded.length)];
+        int length = lz4Compressor.compress(encoded, 0, encoded.length, target, HEADER_BYTES);
+        return frame(LZ4, encoded.length, target, length);
+    }
+
+    private static byte[] compressDeflate(byte[] encoded) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(encoded);
+            deflater.finish();
+            // Output that would not beat the original is useless, so never allow more than that
+            byte[] target = new byte[HEADER_BYTES + encoded.length];
+            int length = deflater.deflate(target, HEADER_BYTES, encoded.length);
+            return deflater.finished() ? frame(DEFLATE, encoded.length, target, length) : null;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] frame(byte algorithm, int originalLength, byte[] target, int compressedLength) {
+        if (compressedLength >= originalLength) {
+            return null;
+        }
+        target[0] = algorithm;
+        ByteBuffer.wrap(target, 1, Integer.BYTES).putInt(originalLength);
+        return Arrays.copyOf(target, HEADER_BYTES + compressedLength);
+    }
+
+    private byte[] decompressLz4(byte[] data, int originalLength) {
+        byte[] original = new byte[originalLength];
+        int length = lz4Decompressor.decompress(data, HEADER_BYTES, data.length - HEADER_BYTES, original, 0);
+        if (length != originalLength) {
+            throw new IllegalStateException("Corrupt LZ4 value: expected " + originalLength + " bytes, got " + length);
+        }
+        return original;
+    }
+
+    private static byte[] decompressDeflate(byte[] data, int originalLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, HEADER_BYTES, data.length - HEADER_BYTES);
+            byte[] original = new byte[originalLength];
+            int length = inflater.inflate(original);
+            if (length != originalLength || !inflater.finished()) {
+                throw new IllegalStateException("Corrupt deflate value: expected " + originalLength + " bytes");
+            }
+            return original;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt deflate value", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ac.h2.codec;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for a {@link CompressingCacheCodec}. Byte counts cover compressed values only, so
+ * {@link #getCompressionRatio()} reflects what compression achieves where it is applied.
+ * Thread-safe implementation using atomic operations.
+ */
+public class CompressionStatistics {
+    private final AtomicLong compressed = new AtomicLong(0);
+    private final AtomicLong skipped = new AtomicLong(0);
+    private final AtomicLong decompressed = new AtomicLong(0);
+    private final AtomicLong uncompressedBytes = new AtomicLong(0);
+    private final AtomicLong compressedBytes = new AtomicLong(0);
+    private final AtomicLong compressNanos = new AtomicLong(0);
+    private final AtomicLong decompressNanos = new AtomicLong(0);
+
+    void recordCompressed(int originalLength, int compressedLength, long nanos) {
+        compressed.incrementAndGet();
+        uncompressedBytes.addAndGet(originalLength);
+        compressedBytes.addAndGet(compressedLength);
+        compressNanos.addAndGet(nanos);
+    }
+
+    void recordSkipped(long nanos) {
+        skipped.incrementAndGet();
+        compressNanos.addAndGet(nanos);
+    }
+
+    void recordDecompressed(long nanos) {
+        decompressed.incrementAndGet();
+        decompressNanos.addAndGet(nanos);
+    }
+
+    /** Values stored compressed. */
+    public long getCompressedCount() {
+        return compressed.get();
+    }
+
+    /** Values stored as-is: below the threshold or not compressible. */
+    public long getSkippedCount() {
+        return skipped.get();
+    }
+
+    public long getDecompressedCount() {
+        return decompressed.get();
+    }
+
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    /** Original size divided by compressed size; 1.0 until something has been compressed. */
+    public double getCompressionRatio() {
+        long out = compressedBytes.get();
+        return out == 0 ? 1.0 : (double) uncompressedBytes.get() / out;
+    }
+
+    /** CPU time spent compressing, including attempts that were discarded as not smaller. */
+    public long getCompressNanos() {
+        return compressNanos.get();
+    }
+
+    public long getDecompressNanos() {
+        return decompressNanos.get();
+    }
+
+    public void reset() {
+        compressed.set(0);
+        skipped.set(0);
+        decompressed.set(0);
+        uncompressedBytes.set(0);
+        compressedBytes.set(0);
+        compressNanos.set(0);
+        decompressNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "CompressionStatistics{compressed=%d, skipped=%d, decompressed=%d, ratio=%.2f, " +
+            "bytesIn=%d, bytesOut=%d, compressMs=%.2f, decompressMs=%.2f}",
+            getCompressedCount(), getSkippedCount(), getDecompressedCount(), getCompressionRatio(),
+            getUncompressedBytes(), getCompressedBytes(), getCompressNanos() / 1e6, getDecompressNanos() / 1e6
+        );
+    }
+}
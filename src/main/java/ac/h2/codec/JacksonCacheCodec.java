@@ -0,0 +1,82 @@
+package ac.h2.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.IOException;
+
+/**
+ * Jackson encoding over a binary format (Smile or CBOR). Slower and larger than Kryo but independent of the
+ * Java class layout, so cached entries survive field reordering and can be read by non-Java consumers.
+ * <p>
+ * Class names of non-final values are embedded so {@code CachedItem} values come back with their type. Only
+ * classes from {@code ac.h2}, {@code java.util}, {@code java.time} and the given trusted package prefixes may
+ * be instantiated. Final scalar values held in {@code Object}-typed fields come back as their natural JSON type,
+ * e.g. a small {@code Long} value decodes as {@code Integer}.
+ */
+public class JacksonCacheCodec implements CacheCodec {
+    private final String name;
+    private final ObjectMapper mapper;
+    private final ObjectWriter writer;
+
+    public JacksonCacheCodec(String name, JsonFactory factory, String... trustedPackages) {
+        this.name = name;
+
+        BasicPolymorphicTypeValidator.Builder types = BasicPolymorphicTypeValidator.builder()
+                .allowIfSubType("ac.h2.")
+                .allowIfSubType("java.util.")
+                .allowIfSubType("java.time.")
+                .allowIfSubTypeIsArray();
+        for (String trustedPackage : trustedPackages) {
+            types.allowIfSubType(trustedPackage);
+        }
+        PolymorphicTypeValidator validator = types.build();
+
+        this.mapper = new ObjectMapper(factory)
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .activateDefaultTyping(validator, ObjectMapper.DefaultTyping.NON_FINAL);
+        this.writer = mapper.writerFor(Object.class);
+    }
+
+    public static JacksonCacheCodec smile(String... trustedPackages) {
+        return new JacksonCacheCodec("smile", new SmileFactory(), trustedPackages);
+    }
+
+    public static JacksonCacheCodec cbor(String... trustedPackages) {
+        return new JacksonCacheCodec("cbor", new CBORFactory(), trustedPackages);
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        try {
+            return writer.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode value with " + name, e);
+        }
+    }
+
+    @Override
+    public <V> V decode(byte[] data, Class<V> type) {
+        if (data == null) return null;
+
+        try {
+            return mapper.readValue(data, type);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to decode value with " + name, e);
+        }
+    }
+}
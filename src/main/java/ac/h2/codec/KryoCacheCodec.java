@@ -0,0 +1,36 @@
+package ac.h2.codec;
+
+import ac.h2.KryoSerializer;
+
+/**
+ * Kryo encoding with the class written in front of each value. The default codec: compact and fast, but tied
+ * to the Java class layout, so all nodes must run compatible versions of cached classes.
+ */
+public class KryoCacheCodec implements CacheCodec {
+    public static final String NAME = "kryo";
+
+    private final KryoSerializer serializer;
+
+    public KryoCacheCodec() {
+        this(new KryoSerializer());
+    }
+
+    public KryoCacheCodec(KryoSerializer serializer) {
+        this.serializer = serializer;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        return serializer.serializeWithClass(value);
+    }
+
+    @Override
+    public <V> V decode(byte[] data, Class<V> type) {
+        return type.cast(serializer.deserializeWithClass(data));
+    }
+}
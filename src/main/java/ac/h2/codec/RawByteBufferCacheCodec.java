@@ -0,0 +1,204 @@
+package ac.h2.codec;
+
+import ac.h2.CachedItem;
+import ac.h2.SearchParameter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Schema-less, hand-written {@link ByteBuffer} layout: a one-byte tag followed by the raw fields. Strings,
+ * boxed scalars, byte arrays and the {@link CachedItem} envelope with its parameters are written directly, with
+ * no reflection and no class names. Any other value is handed to a fallback codec and embedded as bytes, so a
+ * {@code CachedItem<Report>} stores its envelope raw and only the report through the fallback.
+ */
+public class RawByteBufferCacheCodec implements CacheCodec {
+    public static final String NAME = "raw";
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte LONG = 2;
+    private static final byte INTEGER = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte BYTES = 6;
+    private static final byte CACHED_ITEM = 7;
+    private static final byte FALLBACK = 8;
+
+    private final CacheCodec fallback;
+
+    public RawByteBufferCacheCodec() {
+        this(new KryoCacheCodec());
+    }
+
+    public RawByteBufferCacheCodec(CacheCodec fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        Writer writer = new Writer();
+        writeValue(writer, value);
+        return writer.toBytes();
+    }
+
+    @Override
+    public <V> V decode(byte[] data, Class<V> type) {
+        if (data == null) return null;
+        return type.cast(readValue(ByteBuffer.wrap(data)));
+    }
+
+    private void writeValue(Writer writer, Object value) {
+        if (value == null) {
+            writer.put(NULL);
+        } else if (value instanceof String string) {
+            writer.put(STRING);
+            writer.putString(string);
+        } else if (value instanceof Long number) {
+            writer.put(LONG);
+            writer.ensure(Long.BYTES).putLong(number);
+        } else if (value instanceof Integer number) {
+            writer.put(INTEGER);
+            writer.ensure(Integer.BYTES).putInt(number);
+        } else if (value instanceof Double number) {
+            writer.put(DOUBLE);
+            writer.ensure(Double.BYTES).putDouble(number);
+        } else if (value instanceof Boolean flag) {
+            writer.put(BOOLEAN);
+            writer.put(flag ? (byte) 1 : (byte) 0);
+        } else if (value instanceof byte[] bytes) {
+            writer.put(BYTES);
+            writer.putBytes(bytes);
+        } else if (value instanceof CachedItem<?> item) {
+            writer.put(CACHED_ITEM);
+            writeCachedItem(writer, item);
+        } else {
+            writer.put(FALLBACK);
+            writer.putBytes(fallback.encode(value));
+        }
+    }
+
+    private void writeCachedItem(Writer writer, CachedItem<?> item) {
+        writer.putString(item.getStringKey());
+        Long longKey = item.getLongKey();
+        writer.put(longKey != null ? (byte) 1 : (byte) 0);
+        writer.ensure(4 * Long.BYTES)
+                .putLong(longKey != null ? longKey : 0L)
+                .putLong(item.getTtl())
+                .putLong(item.getCreatedAt())
+                .putLong(item.getComputeMillis());
+
+        List<SearchParameter> parameters = item.getParameters();
+        writer.ensure(Integer.BYTES).putInt(parameters.size());
+        for (SearchParameter parameter : parameters) {
+            writer.ensure(Integer.BYTES).putInt(parameter.getLevel());
+            writer.putString(parameter.getName());
+            writer.putString(parameter.getValue());
+        }
+
+        writeValue(writer, item.getValue());
+    }
+
+    private Object readValue(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(buffer);
+            case LONG:
+                return buffer.getLong();
+            case INTEGER:
+                return buffer.getInt();
+            case DOUBLE:
+                return buffer.getDouble();
+            case BOOLEAN:
+                return buffer.get() != 0;
+            case BYTES:
+                return readBytes(buffer);
+            case CACHED_ITEM:
+                return readCachedItem(buffer);
+            case FALLBACK:
+                return fallback.decode(readBytes(buffer), Object.class);
+            default:
+                throw new IllegalArgumentException("Unknown raw codec tag: " + tag);
+        }
+    }
+
+    private CachedItem<Object> readCachedItem(ByteBuffer buffer) {
+        String stringKey = readString(buffer);
+        boolean hasLongKey = buffer.get() != 0;
+        long longKey = buffer.getLong();
+        long ttl = buffer.getLong();
+        long createdAt = buffer.getLong();
+        long computeMillis = buffer.getLong();
+
+        int parameterCount = buffer.getInt();
+        List<SearchParameter> parameters = new ArrayList<>(parameterCount);
+        for (int i = 0; i < parameterCount; i++) {
+            int level = buffer.getInt();
+            String name = readString(buffer);
+            String value = readString(buffer);
+            parameters.add(new SearchParameter(name, value, level));
+        }
+
+        Object value = readValue(buffer);
+        return new CachedItem<>(stringKey, hasLongKey ? longKey : null, value, parameters, ttl, createdAt, computeMillis);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = readBytes(buffer);
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /** Growable heap buffer; sized for a typical item so most encodes never reallocate. */
+    private static final class Writer {
+        private ByteBuffer buffer = ByteBuffer.allocate(256);
+
+        ByteBuffer ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+            return buffer;
+        }
+
+        void put(byte value) {
+            ensure(1).put(value);
+        }
+
+        void putBytes(byte[] bytes) {
+            if (bytes == null) {
+                ensure(Integer.BYTES).putInt(-1);
+                return;
+            }
+            ensure(Integer.BYTES + bytes.length).putInt(bytes.length).put(bytes);
+        }
+
+        void putString(String value) {
+            putBytes(value != null ? value.getBytes(StandardCharsets.UTF_8) : null);
+        }
+
+        byte[] toBytes() {
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ac.h2.codec;
+
+import io.netty.buffer.Unpooled;
+import org.redisson.client.codec.BaseCodec;
+import org.redisson.client.protocol.Decoder;
+import org.redisson.client.protocol.Encoder;
+
+/**
+ * Exposes a {@link CacheCodec} as a Redisson codec, so Redis values are encoded exactly like the other tiers.
+ */
+public class RedissonCacheCodec extends BaseCodec {
+    private final CacheCodec codec;
+
+    private final Encoder encoder;
+    private final Decoder<Object> decoder;
+
+    public RedissonCacheCodec(CacheCodec codec) {
+        this.codec = codec;
+        this.encoder = value -> Unpooled.wrappedBuffer(codec.encode(value));
+        this.decoder = (buffer, state) -> {
+            byte[] data = new byte[buffer.readableBytes()];
+            buffer.readBytes(data);
+            return codec.decode(data, Object.class);
+        };
+    }
+
+    public CacheCodec getCacheCodec() {
+        return codec;
+    }
+
+    @Override
+    public Decoder<Object> getValueDecoder() {
+        return decoder;
+    }
+
+    @Override
+    public Encoder getValueEncoder() {
+        return encoder;
+    }
+}
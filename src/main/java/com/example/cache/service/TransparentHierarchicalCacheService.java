@@ -2,19 +2,21 @@ package com.example.cache.service;
 
 import ac.h2.CacheStatistics;
 import ac.h2.HierarchicalCacheService;
+import ac.h2.SingleFlight;
+import ac.h2.WriteBehindQueue;
 import com.example.cache.model.CacheConfiguration;
 import com.example.cache.model.CachedItem;
 import com.example.cache.model.SearchParameter;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.RemovalListener;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
@@ -30,10 +32,12 @@ public class TransparentHierarchicalCacheService<T> {
 
     // Remote cache service (L2)
     private final HierarchicalCacheService redisCache;
+    private final WriteBehindQueue<CachedItem<T>> writeBehind;
 
     // Configuration
     private final CacheConfiguration config;
     private final CacheStatistics statistics;
+    private final SingleFlight<String> flights = new SingleFlight<>();
 
     // Internal state
     private final Map<String, Set<String>> parameterPatterns = new ConcurrentHashMap<>();
@@ -45,12 +49,16 @@ public class TransparentHierarchicalCacheService<T> {
         this.redisCache = redisCache;
         this.config = config;
         this.statistics = new CacheStatistics();
+        this.writeBehind = new WriteBehindQueue<>(WriteBehindQueue.DEFAULT_CAPACITY,
+                WriteBehindQueue.DEFAULT_MAX_BATCH_SIZE, WriteBehindQueue.DEFAULT_FLUSH_INTERVAL_MILLIS,
+                this::writeBatchToRemote);
 
         // Initialize local caches with removal listener
         RemovalListener<String, CachedItem<T>> removalListener = (key, value, cause) -> {
             logger.debug("Local cache eviction - Key: {}, Cause: {}", key, cause);
             statistics.incrementL1Evictions();
-            if (value != null && config.isWriteThroughEnabled()) {
+            // Explicit invalidations and replacements must not be written back
+            if (value != null && cause.wasEvicted() && config.isWriteThroughEnabled()) {
                 writeToRemoteAsync(value);
             }
         };
@@ -343,11 +351,19 @@ public class TransparentHierarchicalCacheService<T> {
             return cached.get();
         }
 
-        T computed = supplier.get();
-        if (computed != null) {
-            put(key, Collections.emptyList(), computed);
-        }
-        return computed;
+        return flights.execute(SingleFlight.flightKey(key, null), () -> {
+            // Re-check: the value may have been cached since this caller's miss
+            Optional<T> current = get(key, valueType);
+            if (current.isPresent()) {
+                return current.get();
+            }
+
+            T computed = supplier.get();
+            if (computed != null) {
+                put(key, Collections.emptyList(), computed);
+            }
+            return computed;
+        });
     }
 
     public T getOrCompute(String key, Long id, Class<T> valueType, Supplier<T> supplier) {
@@ -356,11 +372,19 @@ public class TransparentHierarchicalCacheService<T> {
             return cached.get();
         }
 
-        T computed = supplier.get();
-        if (computed != null) {
-            put(key, id, Collections.emptyList(), computed);
-        }
-        return computed;
+        return flights.execute(SingleFlight.flightKey(key, id), () -> {
+            // Re-check: the value may have been cached since this caller's miss
+            Optional<T> current = get(key, id, valueType);
+            if (current.isPresent()) {
+                return current.get();
+            }
+
+            T computed = supplier.get();
+            if (computed != null) {
+                put(key, id, Collections.emptyList(), computed);
+            }
+            return computed;
+        });
     }
 
     public List<T> getOrCompute(List<SearchParameter> parameters, Class<T> valueType, Supplier<List<T>> supplier) {
@@ -385,6 +409,7 @@ public class TransparentHierarchicalCacheService<T> {
         if (config.isLocalCacheEnabled()) {
             invalidateFromLocal(key, null, null);
         }
+        writeBehind.discard(item -> Objects.equals(key, item.getPrimaryKey()));
 
         if (config.isRemoteCacheEnabled()) {
             try {
@@ -400,6 +425,7 @@ public class TransparentHierarchicalCacheService<T> {
         if (config.isLocalCacheEnabled()) {
             invalidateFromLocal(key, id, null);
         }
+        writeBehind.discard(item -> Objects.equals(key, item.getPrimaryKey()) && Objects.equals(id, item.getLongKey()));
 
         if (config.isRemoteCacheEnabled()) {
             try {
@@ -458,6 +484,7 @@ public class TransparentHierarchicalCacheService<T> {
             localLongKeyCache.invalidateAll();
             localParamCache.invalidateAll();
         }
+        writeBehind.discardAll();
 
         if (config.isRemoteCacheEnabled()) {
             try {
@@ -472,7 +499,11 @@ public class TransparentHierarchicalCacheService<T> {
     // ==================== UTILITY METHODS ====================
 
     private void writeToRemoteAsync(CachedItem<T> item) {
-        CompletableFuture.runAsync(() -> {
+        writeBehind.enqueue(item.generateUniqueId(), item);
+    }
+
+    private void writeBatchToRemote(List<CachedItem<T>> items) {
+        for (CachedItem<T> item : items) {
             try {
                 redisCache.put(item.getPrimaryKey(), item.getLongKey(),
                         item.getParameters(), item.getValue(), item.getTtlMillis());
@@ -481,7 +512,15 @@ public class TransparentHierarchicalCacheService<T> {
                 logger.warn("Failed to write to remote cache asynchronously", e);
                 statistics.incrementL2Errors();
             }
-        });
+        }
+    }
+
+    /**
+     * Writes back local entries that were evicted but not yet flushed to the remote cache.
+     */
+    @PreDestroy
+    public void shutdown() {
+        writeBehind.close();
     }
 
     public CacheStatistics getStatistics() {
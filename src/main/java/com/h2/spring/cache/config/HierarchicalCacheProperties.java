@@ -1,5 +1,7 @@
 package com.h2.spring.cache.config;
 
+import ac.h2.CircuitBreaker;
+import ac.h2.InvalidationBus;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
 
@@ -16,6 +18,12 @@ public class HierarchicalCacheProperties {
     @NestedConfigurationProperty
     private RedisProperties redis = new RedisProperties();
 
+    @NestedConfigurationProperty
+    private InvalidationProperties invalidation = new InvalidationProperties();
+
+    @NestedConfigurationProperty
+    private CircuitBreakerProperties circuitBreaker = new CircuitBreakerProperties();
+
     @NestedConfigurationProperty
     private Map<String, CacheLevel> levels = new ConcurrentHashMap<>();
 
@@ -26,6 +34,12 @@ public class HierarchicalCacheProperties {
     public RedisProperties getRedis() { return redis; }
     public void setRedis(RedisProperties redis) { this.redis = redis; }
 
+    public InvalidationProperties getInvalidation() { return invalidation; }
+    public void setInvalidation(InvalidationProperties invalidation) { this.invalidation = invalidation; }
+
+    public CircuitBreakerProperties getCircuitBreaker() { return circuitBreaker; }
+    public void setCircuitBreaker(CircuitBreakerProperties circuitBreaker) { this.circuitBreaker = circuitBreaker; }
+
     public Map<String, CacheLevel> getLevels() { return levels; }
     public void setLevels(Map<String, CacheLevel> levels) { this.levels = levels; }
 
@@ -77,6 +91,48 @@ public class HierarchicalCacheProperties {
         public void setDefaultTtl(Duration defaultTtl) { this.defaultTtl = defaultTtl; }
     }
 
+    /**
+     * Cross-node L1 invalidation over Redis pub/sub.
+     */
+    public static class InvalidationProperties {
+        private boolean enabled = false;
+        private String topic = InvalidationBus.DEFAULT_TOPIC;
+        private Duration batchWindow = Duration.ofMillis(InvalidationBus.DEFAULT_BATCH_WINDOW_MILLIS);
+
+        // Getters and setters
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public String getTopic() { return topic; }
+        public void setTopic(String topic) { this.topic = topic; }
+
+        public Duration getBatchWindow() { return batchWindow; }
+        public void setBatchWindow(Duration batchWindow) { this.batchWindow = batchWindow; }
+    }
+
+    /**
+     * Circuit breaker around Redis (L2): skip it while most recent calls fail or are slow.
+     */
+    public static class CircuitBreakerProperties {
+        private boolean enabled = true;
+        private double failureRateThreshold = CircuitBreaker.DEFAULT_FAILURE_RATE_THRESHOLD;
+        private Duration slowCallThreshold = Duration.ofMillis(CircuitBreaker.DEFAULT_SLOW_CALL_MILLIS);
+        private Duration openDuration = Duration.ofMillis(CircuitBreaker.DEFAULT_OPEN_MILLIS);
+
+        // Getters and setters
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public double getFailureRateThreshold() { return failureRateThreshold; }
+        public void setFailureRateThreshold(double failureRateThreshold) { this.failureRateThreshold = failureRateThreshold; }
+
+        public Duration getSlowCallThreshold() { return slowCallThreshold; }
+        public void setSlowCallThreshold(Duration slowCallThreshold) { this.slowCallThreshold = slowCallThreshold; }
+
+        public Duration getOpenDuration() { return openDuration; }
+        public void setOpenDuration(Duration openDuration) { this.openDuration = openDuration; }
+    }
+
     public static class CacheLevel {
         private String name;
         private long maximumSize = 1000;
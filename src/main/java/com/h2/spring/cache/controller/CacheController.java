@@ -1,6 +1,7 @@
 package com.h2.spring.cache.controller;
 
 import ac.h2.CacheStatistics;
+import ac.h2.CircuitBreaker;
 import com.h2.spring.cache.service.HierarchicalCacheManager;
 import com.h2.spring.cache.service.NearNFarHierarchicalCacheService;
 import org.springframework.http.ResponseEntity;
@@ -89,8 +90,12 @@ public class CacheController {
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> healthCheck() {
         CacheStatistics stats = cacheService.getStatistics();
+        // While Redis is short-circuited, reads are served from L1 only
+        boolean redisAvailable = stats.getL2CircuitState() == CircuitBreaker.State.CLOSED;
         return ResponseEntity.ok(Map.of(
-                "status", "UP",
+                "status", redisAvailable ? "UP" : "DEGRADED",
+                "redisCircuit", stats.getL2CircuitState().name(),
+                "redisShortCircuits", stats.getL2ShortCircuits(),
                 "totalRequests", stats.getTotalRequests(),
                 "hitRatio", String.format("%.2f%%", stats.getHitRatio() * 100),
                 "totalKeys", stats.getTotalKeys(),
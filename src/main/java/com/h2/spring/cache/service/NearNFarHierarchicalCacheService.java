@@ -2,7 +2,12 @@ package com.h2.spring.cache.service;
 
 import ac.h2.CachedItem;
 import ac.h2.CacheStatistics;
+import ac.h2.CircuitBreaker;
+import ac.h2.HierarchicalPatternGenerator;
+import ac.h2.InvalidationBus;
+import ac.h2.PatternIds;
 import ac.h2.SearchParameter;
+import ac.h2.SkippedWrites;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.h2.spring.cache.config.HierarchicalCacheProperties;
@@ -15,7 +20,6 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 @Service
 public class NearNFarHierarchicalCacheService {
@@ -28,6 +32,10 @@ public class NearNFarHierarchicalCacheService {
     private final HierarchicalCacheProperties properties;
     private final Map<String, Cache<String, Object>> caffeineCache;
     private final CacheStatistics statistics;
+    private final HierarchicalPatternGenerator patternGenerator = HierarchicalPatternGenerator.shared();
+    private final InvalidationBus invalidationBus;
+    private final CircuitBreaker redisBreaker;
+    private final SkippedWrites<String> skippedRedisWrites = new SkippedWrites<>(SkippedWrites.DEFAULT_CAPACITY);
 
     public NearNFarHierarchicalCacheService(RedissonClient redissonClient,
                                             HierarchicalCacheProperties properties) {
@@ -37,6 +45,42 @@ public class NearNFarHierarchicalCacheService {
         this.statistics = new CacheStatistics();
         
         initializeCaffeineCache();
+        this.invalidationBus = createInvalidationBus();
+        this.redisBreaker = createRedisBreaker();
+    }
+
+    private CircuitBreaker createRedisBreaker() {
+        HierarchicalCacheProperties.CircuitBreakerProperties circuitBreaker = properties.getCircuitBreaker();
+        if (!circuitBreaker.isEnabled()) {
+            return CircuitBreaker.disabled();
+        }
+        return new CircuitBreaker("redis", circuitBreaker.getFailureRateThreshold(),
+                circuitBreaker.getSlowCallThreshold().toMillis(), circuitBreaker.getOpenDuration().toMillis(),
+                statistics::setL2CircuitState);
+    }
+
+    private InvalidationBus createInvalidationBus() {
+        HierarchicalCacheProperties.InvalidationProperties invalidation = properties.getInvalidation();
+        if (!invalidation.isEnabled()) {
+            return null;
+        }
+
+        InvalidationBus bus = new InvalidationBus(redissonClient, invalidation.getTopic(),
+                invalidation.getBatchWindow().toMillis());
+        bus.subscribe(new InvalidationBus.Listener() {
+            @Override
+            public void invalidated(String key, Long id) {
+                if (key != null) {
+                    caffeineCache.values().forEach(l1Cache -> invalidateLocally(l1Cache, key, id));
+                }
+            }
+
+            @Override
+            public void invalidatedAll() {
+                caffeineCache.values().forEach(Cache::invalidateAll);
+            }
+        });
+        return bus;
     }
 
     private void initializeCaffeineCache() {
@@ -93,9 +137,27 @@ public class NearNFarHierarchicalCacheService {
             l1Cache.put(uniqueId, cachedItem);
         }
 
-        // Store in L2 cache (Redis) if enabled
+        // Store in L2 cache (Redis) if enabled; skipped while Redis is failing, the L1 copy still serves reads
+        // and the key is invalidated in Redis once it is reachable again
         if (isL2Enabled(cacheLevel)) {
-            storeInRedis(cachedItem, uniqueId);
+            boolean stored;
+            try {
+                stored = callRedis(() -> {
+                    storeInRedis(cachedItem, uniqueId);
+                    return true;
+                }, false);
+            } catch (RuntimeException e) {
+                skippedRedisWrites.record(key);
+                throw e;
+            }
+            if (!stored) {
+                skippedRedisWrites.record(key);
+            }
+        }
+
+        // Other nodes drop their L1 copies of the replaced value
+        if (invalidationBus != null) {
+            invalidationBus.publish(key, id);
         }
 
         statistics.incrementValues();
@@ -166,25 +228,10 @@ public class NearNFarHierarchicalCacheService {
 
         // Try L2 cache (Redis)
         if (isL2Enabled(cacheLevel)) {
-            RBucket<String> primaryBucket = redissonClient.getBucket(PRIMARY_KEY_PREFIX + key);
-            String uniqueId = primaryBucket.get();
-            
-            if (uniqueId != null) {
-                Optional<T> result = getFromRedis(uniqueId, valueType);
-                if (result.isPresent()) {
-                    // Populate L1 cache for next time
-                    if (isL1Enabled(cacheLevel)) {
-                        RBucket<CachedItem<T>> valueBucket = redissonClient.getBucket(VALUE_PREFIX + uniqueId);
-                        CachedItem<T> cachedItem = valueBucket.get();
-                        if (cachedItem != null) {
-                            Cache<String, Object> l1Cache = getL1Cache(cacheLevel);
-                            l1Cache.put(PRIMARY_KEY_PREFIX + key, uniqueId);
-                            l1Cache.put(uniqueId, cachedItem);
-                        }
-                    }
-                    statistics.incrementHits();
-                    return result;
-                }
+            Optional<T> result = callRedis(() -> getFromL2(key, valueType, cacheLevel), Optional.empty());
+            if (result.isPresent()) {
+                statistics.incrementHits();
+                return result;
             }
         }
 
@@ -202,7 +249,36 @@ public class NearNFarHierarchicalCacheService {
             return Collections.emptyList();
         }
 
-        return getByParameters(parameters, valueType, cacheLevel);
+        List<T> results = callRedis(() -> getByParameters(parameters, valueType, cacheLevel), null);
+        if (results == null) {
+            statistics.incrementMisses();
+            return Collections.emptyList();
+        }
+        return results;
+    }
+
+    private <T> Optional<T> getFromL2(String key, Class<T> valueType, String cacheLevel) {
+        RBucket<String> primaryBucket = redissonClient.getBucket(PRIMARY_KEY_PREFIX + key);
+        String uniqueId = primaryBucket.get();
+        
+        if (uniqueId != null) {
+            Optional<T> result = getFromRedis(uniqueId, valueType);
+            if (result.isPresent()) {
+                // Populate L1 cache for next time
+                if (isL1Enabled(cacheLevel)) {
+                    RBucket<CachedItem<T>> valueBucket = redissonClient.getBucket(VALUE_PREFIX + uniqueId);
+                    CachedItem<T> cachedItem = valueBucket.get();
+                    if (cachedItem != null) {
+                        Cache<String, Object> l1Cache = getL1Cache(cacheLevel);
+                        l1Cache.put(PRIMARY_KEY_PREFIX + key, uniqueId);
+                        l1Cache.put(uniqueId, cachedItem);
+                    }
+                }
+                return result;
+            }
+        }
+
+        return Optional.empty();
     }
 
     private <T> Optional<T> getFromRedis(String uniqueId, Class<T> valueType) {
@@ -243,37 +319,50 @@ public class NearNFarHierarchicalCacheService {
 
         // Remove from L1 cache
         if (isL1Enabled(cacheLevel)) {
-            Cache<String, Object> l1Cache = getL1Cache(cacheLevel);
-            String primaryKey = PRIMARY_KEY_PREFIX + key;
-            String uniqueId = (String) l1Cache.getIfPresent(primaryKey);
-            if (uniqueId != null) {
-                l1Cache.invalidate(primaryKey);
-                l1Cache.invalidate(uniqueId);
-            }
+            invalidateLocally(getL1Cache(cacheLevel), key, null);
         }
 
         // Remove from L2 cache
         if (isL2Enabled(cacheLevel)) {
-            RBucket<String> primaryBucket = redissonClient.getBucket(PRIMARY_KEY_PREFIX + key);
-            String uniqueId = primaryBucket.get();
-            if (uniqueId != null) {
-                invalidateFromRedis(uniqueId);
-            }
+            invalidateKeyInRedis(key);
+        }
+
+        if (invalidationBus != null) {
+            invalidationBus.publish(key, null);
+        }
+    }
+
+    private void invalidateLocally(Cache<String, Object> l1Cache, String key, Long id) {
+        String primaryKey = PRIMARY_KEY_PREFIX + key;
+        String uniqueId = (String) l1Cache.getIfPresent(primaryKey);
+        if (uniqueId != null) {
+            l1Cache.invalidate(primaryKey);
+            l1Cache.invalidate(uniqueId);
+        }
+        if (id != null) {
+            l1Cache.invalidate(key + ":" + id);
         }
     }
 
     public void invalidateAll() {
         // Clear all L1 caches
         caffeineCache.values().forEach(Cache::invalidateAll);
+        if (invalidationBus != null) {
+            invalidationBus.publishAll();
+        }
         
         // Clear L2 cache
+        invalidateAllInRedis();
+        
+        statistics.reset();
+    }
+
+    private void invalidateAllInRedis() {
         RKeys keys = redissonClient.getKeys();
         keys.deleteByPattern(PRIMARY_KEY_PREFIX + "*");
         keys.deleteByPattern(LONG_KEY_PREFIX + "*");
         keys.deleteByPattern(PARAM_PREFIX + "*");
         keys.deleteByPattern(VALUE_PREFIX + "*");
-        
-        statistics.reset();
     }
 
     // Helper methods
@@ -310,14 +399,10 @@ public class NearNFarHierarchicalCacheService {
 
     // Implementation of remaining methods from original class...
     private void createParameterReferences(RBatch batch, List<SearchParameter> parameters, String uniqueId, long ttlMillis) {
-        List<SearchParameter> sortedParams = parameters.stream()
-                .sorted(Comparator.comparingInt(SearchParameter::getLevel))
-                .collect(Collectors.toList());
-
-        Set<String> patterns = generateHierarchicalPatterns(sortedParams);
+        long[] patterns = patternGenerator.hierarchicalPatterns(parameters);
         
-        for (String pattern : patterns) {
-            RSetAsync<Object> paramSet = batch.getSet(PARAM_PREFIX + pattern);
+        for (long pattern : patterns) {
+            RSetAsync<Object> paramSet = batch.getSet(PARAM_PREFIX + PatternIds.toKey(pattern));
             paramSet.addAsync(uniqueId);
             if (ttlMillis > 0) {
                 paramSet.expireAsync(ttlMillis, TimeUnit.MILLISECONDS);
@@ -325,39 +410,11 @@ public class NearNFarHierarchicalCacheService {
         }
     }
 
-    private Set<String> generateHierarchicalPatterns(List<SearchParameter> sortedParams) {
-        Set<String> patterns = new HashSet<>();
-        
-        for (int i = 0; i < sortedParams.size(); i++) {
-            for (int j = i; j < sortedParams.size(); j++) {
-                List<SearchParameter> subList = sortedParams.subList(i, j + 1);
-                String pattern = subList.stream()
-                        .map(SearchParameter::toKey)
-                        .collect(Collectors.joining(">"));
-                patterns.add(pattern);
-            }
-        }
-        
-        for (SearchParameter param : sortedParams) {
-            patterns.add(param.toKey());
-        }
-        
-        return patterns;
-    }
-
     private <T> List<T> getByParameters(List<SearchParameter> parameters, Class<T> valueType, String cacheLevel) {
-        List<SearchParameter> sortedParams = parameters.stream()
-                .sorted(Comparator.comparingInt(SearchParameter::getLevel))
-                .collect(Collectors.toList());
-
-        String exactPattern = sortedParams.stream()
-                .map(SearchParameter::toKey)
-                .collect(Collectors.joining(">"));
-
-        Set<String> uniqueIds = getUniqueIdsByPattern(exactPattern);
+        Set<String> uniqueIds = getUniqueIdsByPattern(patternGenerator.exactPattern(parameters));
         
-        if (uniqueIds.isEmpty()) {
-            uniqueIds = findItemsWithHierarchicalDegradation(sortedParams);
+        if (uniqueIds.isEmpty() && parameters.size() > 1) {
+            uniqueIds = findItemsWithHierarchicalDegradation(parameters);
         }
 
         List<T> results = new ArrayList<>();
@@ -375,41 +432,18 @@ public class NearNFarHierarchicalCacheService {
         return results;
     }
 
-    private Set<String> getUniqueIdsByPattern(String pattern) {
-        RSet<String> paramSet = redissonClient.getSet(PARAM_PREFIX + pattern);
+    private Set<String> getUniqueIdsByPattern(long pattern) {
+        RSet<String> paramSet = redissonClient.getSet(PARAM_PREFIX + PatternIds.toKey(pattern));
         return new HashSet<>(paramSet.readAll());
     }
 
     private Set<String> findItemsWithHierarchicalDegradation(List<SearchParameter> searchParams) {
-        Set<String> allUniqueIds = new HashSet<>();
-        
-        RKeys keys = redissonClient.getKeys();
-        Iterable<String> paramKeys = keys.getKeysByPattern(PARAM_PREFIX + "*");
-        
-        for (String key : paramKeys) {
-            String pattern = key.substring(PARAM_PREFIX.length());
-            if (patternMatches(pattern, searchParams)) {
-                RSet<String> paramSet = redissonClient.getSet(key);
-                allUniqueIds.addAll(paramSet.readAll());
-            }
-        }
-        
-        return allUniqueIds;
-    }
-
-    private boolean patternMatches(String pattern, List<SearchParameter> searchParams) {
-        String[] patternParts = pattern.split(">");
-        Set<String> searchParamKeys = searchParams.stream()
-                .map(SearchParameter::toKey)
-                .collect(Collectors.toSet());
-        
-        for (String part : patternParts) {
-            if (searchParamKeys.contains(part)) {
-                searchParamKeys.remove(part);
-            }
-        }
-        
-        return searchParamKeys.isEmpty();
+        // Items referenced by a pattern containing every search parameter are in each single-parameter set
+        Iterator<SearchParameter> params = searchParams.iterator();
+        RSet<String> firstSet = redissonClient.getSet(PARAM_PREFIX + PatternIds.toKey(patternGenerator.singlePattern(params.next())));
+        List<String> otherSets = new ArrayList<>(searchParams.size() - 1);
+        params.forEachRemaining(param -> otherSets.add(PARAM_PREFIX + PatternIds.toKey(patternGenerator.singlePattern(param))));
+        return firstSet.readIntersection(otherSets.toArray(new String[0]));
     }
 
     private void invalidateByUniqueId(String uniqueId) {
@@ -420,6 +454,14 @@ public class NearNFarHierarchicalCacheService {
         invalidateFromRedis(uniqueId);
     }
 
+    private void invalidateKeyInRedis(String key) {
+        RBucket<String> primaryBucket = redissonClient.getBucket(PRIMARY_KEY_PREFIX + key);
+        String uniqueId = primaryBucket.get();
+        if (uniqueId != null) {
+            invalidateFromRedis(uniqueId);
+        }
+    }
+
     private void invalidateFromRedis(String uniqueId) {
         RBucket<CachedItem<?>> valueBucket = redissonClient.getBucket(VALUE_PREFIX + uniqueId);
         CachedItem<?> cachedItem = valueBucket.get();
@@ -441,12 +483,10 @@ public class NearNFarHierarchicalCacheService {
             longKeyBucket.deleteAsync();
         }
 
-        Set<String> patterns = generateHierarchicalPatterns(cachedItem.getParameters().stream()
-                .sorted(Comparator.comparingInt(SearchParameter::getLevel))
-                .collect(Collectors.toList()));
+        long[] patterns = patternGenerator.hierarchicalPatterns(cachedItem.getParameters());
 
-        for (String pattern : patterns) {
-            RSetAsync<Object> paramSet = batch.getSet(PARAM_PREFIX + pattern);
+        for (long pattern : patterns) {
+            RSetAsync<Object> paramSet = batch.getSet(PARAM_PREFIX + PatternIds.toKey(pattern));
             paramSet.removeAsync(uniqueId);
         }
 
@@ -455,12 +495,44 @@ public class NearNFarHierarchicalCacheService {
         statistics.decrementKeys();
     }
 
+    /**
+     * Runs a Redis read or write through the circuit breaker. While the breaker is open Redis is not called and
+     * {@code whenOpen} is returned; failures are recorded and rethrown. Keys whose puts were skipped are
+     * invalidated first, so the values those puts replaced are not served again.
+     */
+    private <R> R callRedis(Supplier<R> call, R whenOpen) {
+        if (!redisBreaker.allowRequest()) {
+            statistics.incrementL2ShortCircuits();
+            return whenOpen;
+        }
+        if (!skippedRedisWrites.isEmpty()) {
+            try {
+                skippedRedisWrites.repair(this::invalidateKeyInRedis, this::invalidateAllInRedis);
+            } catch (RuntimeException e) {
+                redisBreaker.recordFailure();
+                return whenOpen;
+            }
+        }
+        long start = System.nanoTime();
+        try {
+            R result = call.get();
+            redisBreaker.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            redisBreaker.recordFailure();
+            throw e;
+        }
+    }
+
     public CacheStatistics getStatistics() {
         return statistics;
     }
 
     @PreDestroy
     public void shutdown() {
+        if (invalidationBus != null) {
+            invalidationBus.close();
+        }
         caffeineCache.clear();
         redissonClient.shutdown();
     }
@@ -0,0 +1,49 @@
+package ac.h2;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachedItemTest {
+
+    private static final long CREATED_AT = 1_000_000L;
+    private static final long TTL = 60_000L;
+
+    @Test
+    void testEarlyRefreshDependsOnRemainingTtlAndComputeTime() {
+        // Arrange - a value that took 500 ms to compute; -ln(1 - 0.63) is roughly 1
+        CachedItem<String> item = item(500L);
+        double typicalDraw = 0.63;
+
+        // Act & Assert
+        assertFalse(item.shouldRefreshEarly(1.0, CREATED_AT + 1_000L, typicalDraw));
+        assertFalse(item.shouldRefreshEarly(1.0, CREATED_AT + TTL - 2_000L, typicalDraw));
+        assertTrue(item.shouldRefreshEarly(1.0, CREATED_AT + TTL - 200L, typicalDraw));
+        // A larger beta starts refreshing further ahead of expiry
+        assertTrue(item.shouldRefreshEarly(8.0, CREATED_AT + TTL - 2_000L, typicalDraw));
+    }
+
+    @Test
+    void testUnlikelyDrawStillRefreshesWellBeforeExpiry() {
+        CachedItem<String> item = item(500L);
+
+        assertFalse(item.shouldRefreshEarly(1.0, CREATED_AT + TTL - 10_000L, 0.5));
+        assertTrue(item.shouldRefreshEarly(1.0, CREATED_AT + TTL - 10_000L, 0.9999999999));
+    }
+
+    @Test
+    void testNoEarlyRefreshWithoutTtlOrComputeTime() {
+        long nearExpiry = CREATED_AT + TTL - 1L;
+
+        assertFalse(item(0L).shouldRefreshEarly(1.0, nearExpiry, 0.99));
+        assertFalse(new CachedItem<>("report", null, "value", List.of(), 0L, CREATED_AT, 500L)
+                .shouldRefreshEarly(1.0, nearExpiry, 0.99));
+        assertFalse(item(500L).shouldRefreshEarly(0.0, nearExpiry, 0.99));
+    }
+
+    private static CachedItem<String> item(long computeMillis) {
+        return new CachedItem<>("report", 42L, "value", List.of(), TTL, CREATED_AT, computeMillis);
+    }
+}
@@ -0,0 +1,139 @@
+package ac.h2;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private static final long SLOW_CALL_MILLIS = 100L;
+    private static final long OPEN_MILLIS = 5_000L;
+
+    private long now;
+    private final List<CircuitBreaker.State> transitions = new ArrayList<>();
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new CircuitBreaker("redis", 0.5, SLOW_CALL_MILLIS, OPEN_MILLIS, transitions::add, () -> now);
+    }
+
+    @Test
+    void testOpensOnceFailureRateIsReachedOverMinimumCalls() {
+        // Arrange - every call fails, but too few calls to judge yet
+        for (int i = 0; i < 19; i++) {
+            assertTrue(breaker.allowRequest());
+            breaker.recordFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        // Act
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+
+        // Assert
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(List.of(CircuitBreaker.State.OPEN), transitions);
+    }
+
+    @Test
+    void testSlowCallsCountAsFailures() {
+        for (int i = 0; i < 10; i++) {
+            breaker.allowRequest();
+            breaker.recordSuccess(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        for (int i = 0; i < 10; i++) {
+            breaker.allowRequest();
+            breaker.recordSuccess(TimeUnit.MILLISECONDS.toNanos(SLOW_CALL_MILLIS + 1));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void testStaysClosedBelowFailureRate() {
+        for (int i = 0; i < 100; i++) {
+            breaker.allowRequest();
+            if (i % 3 == 0) {
+                breaker.recordFailure();
+            } else {
+                breaker.recordSuccess(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testHalfOpenProbesCloseTheBreakerWhenTheyAllSucceed() {
+        // Arrange
+        open();
+        now += TimeUnit.MILLISECONDS.toNanos(OPEN_MILLIS);
+
+        // Act - three probes are let through, the fourth caller still skips the tier
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+        breaker.recordSuccess(TimeUnit.MILLISECONDS.toNanos(1));
+        breaker.recordSuccess(TimeUnit.MILLISECONDS.toNanos(1));
+        breaker.recordSuccess(TimeUnit.MILLISECONDS.toNanos(1));
+
+        // Assert
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertEquals(List.of(CircuitBreaker.State.OPEN, CircuitBreaker.State.HALF_OPEN, CircuitBreaker.State.CLOSED),
+                transitions);
+    }
+
+    @Test
+    void testFailedProbeReopensTheBreaker() {
+        open();
+        now += TimeUnit.MILLISECONDS.toNanos(OPEN_MILLIS);
+
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    void testFailuresOfInterruptedCallsAreNotRecorded() {
+        Thread.currentThread().interrupt();
+        try {
+            for (int i = 0; i < 20; i++) {
+                assertTrue(breaker.allowRequest());
+                breaker.recordFailure();
+            }
+        } finally {
+            Thread.interrupted();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testDisabledBreakerAlwaysAllowsCalls() {
+        CircuitBreaker disabled = CircuitBreaker.disabled();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(disabled.allowRequest());
+            disabled.recordFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, disabled.getState());
+    }
+
+    private void open() {
+        for (int i = 0; i < 20; i++) {
+            breaker.allowRequest();
+            breaker.recordFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
@@ -0,0 +1,114 @@
+package ac.h2;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ExpiredEntryPurgerTest {
+
+    private DataSource dataSource;
+    private Connection connection;
+    private CallableStatement call;
+    private ResultSet partitionedResult;
+    private CacheStatistics statistics;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = mock(DataSource.class);
+        connection = mock(Connection.class);
+        call = mock(CallableStatement.class);
+        PreparedStatement partitionedQuery = mock(PreparedStatement.class);
+        partitionedResult = mock(ResultSet.class);
+        statistics = new CacheStatistics();
+
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.prepareCall(anyString())).thenReturn(call);
+        when(connection.prepareStatement(anyString())).thenReturn(partitionedQuery);
+        when(partitionedQuery.executeQuery()).thenReturn(partitionedResult);
+        when(partitionedResult.next()).thenReturn(true);
+        when(partitionedResult.getString(1)).thenReturn("NO");
+    }
+
+    @Test
+    void testPurgesInChunksUntilAChunkIsNotFull() throws SQLException {
+        // Arrange - two full chunks of 100, then the last 30 expired rows
+        when(call.getInt(2)).thenReturn(100, 100, 30);
+        when(call.getInt(3)).thenReturn(400, 400, 120);
+        for (int i = 0; i < 250; i++) {
+            statistics.incrementValues();
+        }
+        ExpiredEntryPurger purger = new ExpiredEntryPurger(dataSource, 100, 10, statistics);
+
+        // Act
+        long purged = purger.purge();
+
+        // Assert - each chunk is its own transaction
+        assertEquals(230, purged);
+        verify(call).setInt(1, 100);
+        verify(call, times(3)).execute();
+        verify(connection, times(3)).commit();
+        verify(connection).setAutoCommit(true);
+        assertEquals(230, purger.getPurgedEntries());
+        assertEquals(920, purger.getPurgedIndexRows());
+        assertEquals(230, purger.getLastRunEntries());
+        assertEquals(1, purger.getRuns());
+        assertFalse(purger.isBacklogged());
+        assertEquals(20, statistics.getValues());
+    }
+
+    @Test
+    void testStopsAfterMaxChunksPerRun() throws SQLException {
+        when(call.getInt(2)).thenReturn(100);
+        ExpiredEntryPurger purger = new ExpiredEntryPurger(dataSource, 100, 3, statistics);
+
+        long purged = purger.purge();
+
+        assertEquals(300, purged);
+        verify(call, times(3)).execute();
+        assertTrue(purger.isBacklogged());
+    }
+
+    @Test
+    void testFailedChunkIsRolledBackAndEarlierChunksStayPurged() throws SQLException {
+        // Arrange
+        when(call.getInt(2)).thenReturn(100);
+        when(call.execute()).thenReturn(false).thenThrow(new SQLException("ORA-00060: deadlock detected"));
+        ExpiredEntryPurger purger = new ExpiredEntryPurger(dataSource, 100, 10, statistics);
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, purger::purge);
+        verify(connection).commit();
+        verify(connection).rollback();
+        assertEquals(100, purger.getPurgedEntries());
+        assertEquals(1, purger.getFailedRuns());
+    }
+
+    @Test
+    void testDropsExpiredPartitionsOnPartitionedTables() throws SQLException {
+        // Arrange
+        when(partitionedResult.getString(1)).thenReturn("YES");
+        when(call.getInt(1)).thenReturn(2);
+        ExpiredEntryPurger purger = new ExpiredEntryPurger(dataSource, 100, 10, statistics);
+
+        // Act
+        purger.purge();
+        purger.purge();
+
+        // Assert - the table layout is only looked up once
+        verify(connection, times(1)).prepareStatement(anyString());
+        verify(connection, never()).commit();
+        assertEquals(4, purger.getDroppedPartitions());
+        assertEquals(0, purger.getPurgedEntries());
+    }
+}
@@ -0,0 +1,132 @@
+package ac.h2;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgedReaderTest {
+
+    private final HedgedReader reader = new HedgedReader(95.0, 20L, 4);
+
+    @AfterEach
+    void tearDown() {
+        reader.shutdown();
+    }
+
+    @Test
+    void testFastPrimaryHitNeverStartsBackup() {
+        AtomicInteger backupReads = new AtomicInteger();
+
+        Optional<String> result = reader.read(() -> Optional.of("redis"), () -> {
+            backupReads.incrementAndGet();
+            return Optional.of("database");
+        });
+
+        assertEquals(Optional.of("redis"), result);
+        assertEquals(0, backupReads.get());
+        assertEquals(0, reader.getHedgedReads());
+    }
+
+    @Test
+    void testFastPrimaryMissFallsBackToBackup() {
+        List<String> backupResults = new ArrayList<>();
+
+        Optional<String> result = reader.read(Optional::empty, () -> Optional.of("database"), backupResults::add);
+
+        assertEquals(Optional.of("database"), result);
+        assertEquals(0, reader.getHedgedReads());
+        assertEquals(List.of("database"), backupResults);
+    }
+
+    @Test
+    void testSlowPrimaryIsHedgedAndLeftToFinishWhenBackupWins() throws Exception {
+        // Arrange
+        CountDownLatch releasePrimary = new CountDownLatch(1);
+        CountDownLatch primaryFinished = new CountDownLatch(1);
+        AtomicBoolean primaryInterrupted = new AtomicBoolean();
+        List<String> backupResults = new CopyOnWriteArrayList<>();
+        long start = System.nanoTime();
+
+        // Act
+        Optional<String> result = reader.read(() -> {
+            try {
+                releasePrimary.await();
+                return Optional.of("redis");
+            } catch (InterruptedException e) {
+                primaryInterrupted.set(true);
+                return Optional.empty();
+            } finally {
+                primaryFinished.countDown();
+            }
+        }, () -> Optional.of("database"), backupResults::add);
+
+        // Assert - the caller does not wait for the primary, which is not interrupted either
+        assertEquals(Optional.of("database"), result);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertEquals(1, reader.getHedgedReads());
+        assertEquals(1, reader.getBackupWins());
+        assertEquals(List.of("database"), backupResults);
+        releasePrimary.countDown();
+        assertTrue(primaryFinished.await(5, TimeUnit.SECONDS));
+        assertFalse(primaryInterrupted.get());
+    }
+
+    @Test
+    void testBackupResultIsNotReportedWhenPrimaryWins() {
+        List<String> backupResults = new CopyOnWriteArrayList<>();
+
+        Optional<String> result = reader.read(() -> {
+            sleep(100);
+            return Optional.of("redis");
+        }, () -> {
+            sleep(1_000);
+            return Optional.of("database");
+        }, backupResults::add);
+
+        assertEquals(Optional.of("redis"), result);
+        assertEquals(List.of(), backupResults);
+    }
+
+    @Test
+    void testSlowPrimaryStillWinsWhenBackupMisses() {
+        Optional<String> result = reader.read(() -> {
+            sleep(100);
+            return Optional.of("redis");
+        }, Optional::empty);
+
+        assertEquals(Optional.of("redis"), result);
+        assertEquals(1, reader.getHedgedReads());
+        assertEquals(0, reader.getBackupWins());
+    }
+
+    @Test
+    void testHedgeDelayFollowsPrimaryLatencyPercentile() {
+        // Before enough samples the initial delay applies
+        assertEquals(20L, reader.getHedgeDelayMillis());
+
+        for (int millis = 1; millis <= 128; millis++) {
+            reader.recordPrimaryLatency(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        // 95th percentile of 1..128 ms
+        assertEquals(122L, reader.getHedgeDelayMillis());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
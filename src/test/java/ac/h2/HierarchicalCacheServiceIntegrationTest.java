@@ -155,6 +155,50 @@ class HierarchicalCacheServiceIntegrationTest {
         assertEquals(iphoneSpec, results.get(0));
     }
 
+    @Test
+    void testStreamReturnsSameItemsAsSearchAcrossPages() {
+        // Arrange - more items than one SSCAN/MGET page
+        List<SearchParameter> regionParameters = Arrays.asList(
+            new SearchParameter("region", "EU", 0),
+            new SearchParameter("category", "accessories", 1)
+        );
+        for (int i = 0; i < 1200; i++) {
+            cacheService.put("case-" + i, regionParameters, "Case " + i);
+        }
+        List<SearchParameter> regionSearch = Arrays.asList(
+            new SearchParameter("region", "EU", 0)
+        );
+
+        // Act
+        Set<String> streamed;
+        try (java.util.stream.Stream<String> stream = cacheService.stream(regionSearch, String.class)) {
+            streamed = stream.collect(java.util.stream.Collectors.toSet());
+        }
+
+        // Assert
+        assertEquals(1200, streamed.size());
+        assertEquals(new HashSet<>(cacheService.get(regionSearch, String.class)), streamed);
+    }
+
+    @Test
+    void testStreamWithGapsIntersectsParameterSets() {
+        // Arrange
+        String iphoneSpec = "iPhone 17s Specification";
+        cacheService.put("iphone17s", iphoneParameters, iphoneSpec);
+        cacheService.put("galaxy-s25", samsungParameters, "Samsung Galaxy S25 Specification");
+
+        // Act - no item is stored under this exact combination, so the single-parameter sets are intersected
+        List<SearchParameter> gappedSearch = Arrays.asList(
+            new SearchParameter("region", "US", 0),
+            new SearchParameter("brand", "apple", 2)
+        );
+        List<String> results = cacheService.stream(gappedSearch, String.class).toList();
+
+        // Assert
+        assertEquals(cacheService.get(gappedSearch, String.class), results);
+        assertEquals(List.of(iphoneSpec), results);
+    }
+
     @Test
     void testLinkOperations() {
         // Arrange
@@ -387,4 +431,40 @@ class HierarchicalCacheServiceIntegrationTest {
         assertEquals(numThreads * operationsPerThread, stats.getTotalValues());
         assertTrue(stats.getHitCount() >= numThreads * operationsPerThread);
     }
+
+    @Test
+    void testLocalCachedStorageStaysCoherentAcrossNodes() throws InterruptedException {
+        // Arrange - a second node with its own client, both keeping local copies
+        Config config = new Config();
+        config.useSingleServer().setAddress(String.format("redis://%s:%d", redis.getHost(), redis.getMappedPort(6379)));
+        config.setCodec(new Kryo5Codec());
+        HierarchicalCacheService<String> otherNode = new HierarchicalCacheService<>(Redisson.create(config), 300000L);
+        cacheService.enableLocalCachedStorage(1000, 60000L);
+        otherNode.enableLocalCachedStorage(1000, 60000L);
+
+        try {
+            cacheService.put("iphone17s", iphoneParameters, "v1");
+            assertEquals(Optional.of("v1"), otherNode.get("iphone17s", String.class));
+
+            // Act
+            cacheService.put("iphone17s", iphoneParameters, "v2");
+
+            // Assert - the other node's local copy is evicted once the sync message arrives
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!Optional.of("v2").equals(otherNode.get("iphone17s", String.class))) {
+                assertTrue(System.nanoTime() < deadline, "Stale local copy was not evicted");
+                Thread.sleep(10);
+            }
+            assertEquals(Optional.of("v2"), cacheService.get("iphone17s", String.class));
+
+            cacheService.invalidate("iphone17s");
+            deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (otherNode.get("iphone17s", String.class).isPresent()) {
+                assertTrue(System.nanoTime() < deadline, "Invalidated item is still served locally");
+                Thread.sleep(10);
+            }
+        } finally {
+            otherNode.shutdown();
+        }
+    }
 }
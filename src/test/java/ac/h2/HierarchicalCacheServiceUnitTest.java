@@ -1,15 +1,26 @@
 package ac.h2;// HierarchicalCacheServiceUnitTest.java
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.redisson.api.*;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.redisson.client.codec.Codec;
+import org.redisson.codec.Kryo5Codec;
+import org.redisson.config.Config;
+import org.redisson.misc.CompletableFutureWrapper;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
@@ -39,6 +50,18 @@ class HierarchicalCacheServiceUnitTest {
     @Mock
     private RKeys keys;
 
+    @Mock
+    private RScript script;
+
+    @Mock
+    private RScript writeScript;
+
+    @Mock
+    private RScriptAsync batchScript;
+
+    @Mock
+    private RBuckets buckets;
+
     // Additional mocks for async operations
     @Mock
     private RBucketAsync<Object> asyncObjectBucket;
@@ -55,6 +78,15 @@ class HierarchicalCacheServiceUnitTest {
     @Mock
     private RFuture<Boolean> booleanFuture;
 
+    @Mock
+    private RFuture<String> stringFuture;
+
+    @Mock
+    private RFuture<CachedItem<String>> cachedItemFuture;
+
+    @Mock
+    private RFuture<Object> scriptFuture;
+
     private HierarchicalCacheService<String> cacheService;
     private List<SearchParameter> testParameters;
     private final String TEST_VALUE = "Test iPhone Specification";
@@ -63,6 +95,10 @@ class HierarchicalCacheServiceUnitTest {
 
     @BeforeEach
     void setUp() {
+        Config config = new Config();
+        config.setCodec(new Kryo5Codec());
+        when(redissonClient.getConfig()).thenReturn(config);
+
         cacheService = new HierarchicalCacheService<>(redissonClient, 300000L);
 
         testParameters = Arrays.asList(
@@ -84,7 +120,25 @@ class HierarchicalCacheServiceUnitTest {
 
         // Configure batch operations for put operations
         when(batch.getBucket(anyString())).thenReturn(asyncObjectBucket);
-        when(batch.getSet(anyString())).thenReturn(asyncStringSet);
+        when(batch.getSet(anyString(), any(Codec.class))).thenReturn(asyncStringSet);
+
+        // Writes and invalidations run as scripts, either directly or pipelined in a batch
+        when(redissonClient.getScript(any(Codec.class))).thenReturn(writeScript);
+        when(batch.getScript(any(Codec.class))).thenReturn(batchScript);
+        when(writeScript.eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any(Object[].class)))
+                .thenReturn(1L);
+    }
+
+    private static String paramSet(SearchParameter... parameters) {
+        return "param:" + PatternIds.toKey(PatternIds.exactPattern(Arrays.asList(parameters)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> verifyWriteScriptKeys(String scriptFragment) {
+        ArgumentCaptor<List<Object>> keys = ArgumentCaptor.forClass(List.class);
+        verify(writeScript).eval(eq(RScript.Mode.READ_WRITE), contains(scriptFragment), eq(RScript.ReturnType.INTEGER),
+                keys.capture(), any(Object[].class));
+        return keys.getValue();
     }
 
     @Test
@@ -92,12 +146,12 @@ class HierarchicalCacheServiceUnitTest {
         // Act
         cacheService.put(TEST_KEY, testParameters, TEST_VALUE);
 
-        // Assert
-        verify(redissonClient).createBatch();
-        verify(batch).execute();
-        verify(batch, atLeastOnce()).getBucket(contains("value:"));
-        verify(batch, atLeastOnce()).getBucket(contains("primary:"));
-        verify(batch, atLeastOnce()).getSet(contains("param:"));
+        // Assert - value, references and pattern sets in one atomic script call
+        List<Object> keys = verifyWriteScriptKeys("SADD");
+        assertEquals(Arrays.asList("value:" + TEST_KEY, "meta:" + TEST_KEY, "primary:" + TEST_KEY), keys.subList(0, 3));
+        assertTrue(keys.contains(paramSet(testParameters.toArray(new SearchParameter[0]))));
+        assertTrue(keys.contains(paramSet(new SearchParameter("category", "electronics", 1))));
+        verify(redissonClient, never()).createBatch();
     }
 
     @Test
@@ -106,26 +160,30 @@ class HierarchicalCacheServiceUnitTest {
         cacheService.put(TEST_KEY, TEST_ID, testParameters, TEST_VALUE);
 
         // Assert
-        verify(redissonClient).createBatch();
-        verify(batch).execute();
-        verify(batch, atLeastOnce()).getBucket(contains("value:"));
-        verify(batch, atLeastOnce()).getBucket(contains("primary:"));
-        verify(batch, atLeastOnce()).getBucket(contains("longkey:"));
-        verify(batch, atLeastOnce()).getSet(contains("param:"));
+        List<Object> keys = verifyWriteScriptKeys("SADD");
+        assertEquals("value:" + TEST_KEY + ":" + TEST_ID, keys.get(0));
+        assertTrue(keys.contains("primary:" + TEST_KEY));
+        assertTrue(keys.contains("longkey:" + TEST_ID));
+        assertTrue(keys.contains(paramSet(new SearchParameter("brand", "apple", 2))));
     }
 
     @Test
     void testPutWithCustomTtl() {
         // Arrange
         long customTtl = 600000L;
-        Mockito.<RBucketAsync<CachedItem<String>>>when(batch.getBucket(startsWith("value:"))).thenReturn(asyncCachedItemBucket);
+        List<Object[]> scriptArgs = new ArrayList<>();
+        when(writeScript.eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any(Object[].class)))
+                .thenAnswer(invocation -> {
+                    scriptArgs.add((Object[]) invocation.getRawArguments()[4]);
+                    return 1L;
+                });
 
         // Act
         cacheService.put(TEST_KEY, testParameters, TEST_VALUE, customTtl);
 
         // Assert
-        verify(batch, atLeastOnce()).getBucket(anyString());
-        verify(asyncCachedItemBucket, atLeastOnce()).setAsync(any(), eq(customTtl), eq(TimeUnit.MILLISECONDS));
+        assertEquals(1, scriptArgs.size());
+        assertEquals(String.valueOf(customTtl), new String((byte[]) scriptArgs.get(0)[3], StandardCharsets.UTF_8));
     }
 
     @Test
@@ -223,6 +281,84 @@ class HierarchicalCacheServiceUnitTest {
         verify(redissonClient).getBucket("value:" + uniqueId);
     }
 
+    @Test
+    void testGetAsyncByStringKey() {
+        // Arrange
+        String uniqueId = TEST_KEY;
+        CachedItem<String> cachedItem = new CachedItem<>(TEST_KEY, null, TEST_VALUE, testParameters, 300000L);
+
+        when(stringFuture.toCompletableFuture()).thenReturn(CompletableFuture.completedFuture(uniqueId));
+        when(cachedItemFuture.toCompletableFuture()).thenReturn(CompletableFuture.completedFuture(cachedItem));
+        when(stringBucket.getAsync()).thenReturn(stringFuture);
+        when(cachedItemBucket.getAsync()).thenReturn(cachedItemFuture);
+        when(redissonClient.<String>getBucket("primary:" + TEST_KEY)).thenReturn(stringBucket);
+        when(redissonClient.<CachedItem<String>>getBucket("value:" + uniqueId)).thenReturn(cachedItemBucket);
+
+        // Act
+        Optional<String> result = cacheService.getAsync(TEST_KEY, String.class).join();
+
+        // Assert
+        assertEquals(Optional.of(TEST_VALUE), result);
+        verify(stringBucket, never()).get();
+        verify(cachedItemBucket, never()).get();
+    }
+
+    @Test
+    void testPutAsyncDoesNotBlock() {
+        // Arrange
+        CompletableFuture<Object> pending = new CompletableFuture<>();
+        doReturn(scriptFuture).when(writeScript)
+                .evalAsync(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any(Object[].class));
+        doReturn(pending).when(scriptFuture).toCompletableFuture();
+
+        // Act
+        CompletableFuture<Void> result = cacheService.putAsync(TEST_KEY, TEST_ID, testParameters, TEST_VALUE);
+
+        // Assert
+        assertFalse(result.isDone());
+        verify(writeScript, never()).eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any(Object[].class));
+        pending.complete(1L);
+        assertTrue(result.isDone());
+        assertTrue(cacheService.getStatistics().getTotalValues() > 0);
+    }
+
+    @Test
+    void testPutAllPipelinesOneScriptPerItem() {
+        // Arrange
+        List<CachedItem<String>> items = Arrays.asList(
+                new CachedItem<>(TEST_KEY, TEST_ID, TEST_VALUE, testParameters, 300000L),
+                new CachedItem<>("ipad", null, "Test iPad Specification", testParameters, 0L)
+        );
+
+        // Act
+        cacheService.putAll(items);
+
+        // Assert - a single round trip, no direct script calls
+        verify(batchScript, times(2)).evalAsync(eq(RScript.Mode.READ_WRITE), contains("SADD"),
+                eq(RScript.ReturnType.INTEGER), anyList(), any(Object[].class));
+        verify(batch).execute();
+        verify(writeScript, never()).eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any(Object[].class));
+        assertEquals(2, cacheService.getStatistics().getTotalValues());
+    }
+
+    @Test
+    void testGetAllResolvesPointersAndValuesWithTwoMultiGets() {
+        // Arrange
+        CachedItem<String> item = new CachedItem<>(TEST_KEY, TEST_ID, TEST_VALUE, testParameters, 300000L);
+        when(redissonClient.getBuckets()).thenReturn(buckets);
+        doReturn(Map.of("primary:" + TEST_KEY, TEST_KEY + ":" + TEST_ID))
+                .when(buckets).get("primary:" + TEST_KEY, "primary:missing");
+        doReturn(Map.of("value:" + TEST_KEY + ":" + TEST_ID, item))
+                .when(buckets).get("value:" + TEST_KEY + ":" + TEST_ID);
+
+        // Act
+        Map<String, String> results = cacheService.getAll(Arrays.asList(TEST_KEY, "missing"), String.class);
+
+        // Assert
+        assertEquals(Map.of(TEST_KEY, TEST_VALUE), results);
+        verify(redissonClient, never()).getBucket(anyString());
+    }
+
     @Test
     void testGetByParameters() {
         // Arrange
@@ -230,14 +366,11 @@ class HierarchicalCacheServiceUnitTest {
                 new SearchParameter("region", "US", 0)
         );
 
-        String uniqueId = TEST_KEY + ":" + TEST_ID;
-        Set<String> uniqueIds = Collections.singleton(uniqueId);
         CachedItem<String> cachedItem = new CachedItem<>(TEST_KEY, TEST_ID, TEST_VALUE, testParameters, 300000L);
 
-        when(stringSet.readAll()).thenReturn(uniqueIds);
-        when(cachedItemBucket.get()).thenReturn(cachedItem);
-        Mockito.<RSet<String>>when(redissonClient.getSet(contains("param:"))).thenReturn(stringSet);
-        when(redissonClient.<CachedItem<String>>getBucket("value:" + uniqueId)).thenReturn(cachedItemBucket);
+        when(redissonClient.getScript()).thenReturn(script);
+        when(script.<List<Object>>eval(eq(RScript.Mode.READ_ONLY), anyString(), eq(RScript.ReturnType.MULTI), anyList()))
+                .thenReturn(List.of(cachedItem));
 
         // Act
         List<String> results = cacheService.get(searchParams, String.class);
@@ -245,6 +378,58 @@ class HierarchicalCacheServiceUnitTest {
         // Assert
         assertEquals(1, results.size());
         assertEquals(TEST_VALUE, results.get(0));
+        verify(script).eval(eq(RScript.Mode.READ_ONLY), anyString(), eq(RScript.ReturnType.MULTI),
+                eq(List.of(paramSet(new SearchParameter("region", "US", 0)))));
+    }
+
+    @Test
+    void testGetByParametersDegradationIntersectsParameterSets() {
+        // Arrange - non-contiguous search, so the exact pattern set is empty
+        List<SearchParameter> searchParams = Arrays.asList(
+                new SearchParameter("region", "US", 0),
+                new SearchParameter("brand", "apple", 2)
+        );
+
+        CachedItem<String> cachedItem = new CachedItem<>(TEST_KEY, TEST_ID, TEST_VALUE, testParameters, 300000L);
+
+        when(redissonClient.getScript()).thenReturn(script);
+        when(script.<List<Object>>eval(eq(RScript.Mode.READ_ONLY), anyString(), eq(RScript.ReturnType.MULTI), anyList()))
+                .thenReturn(List.of(cachedItem));
+
+        // Act
+        List<String> results = cacheService.get(searchParams, String.class);
+
+        // Assert - exact pattern first, then the single-parameter sets to intersect
+        assertEquals(Collections.singletonList(TEST_VALUE), results);
+        verify(script).eval(eq(RScript.Mode.READ_ONLY), contains("SINTER"), eq(RScript.ReturnType.MULTI),
+                eq(List.of(paramSet(searchParams.toArray(new SearchParameter[0])), paramSet(new SearchParameter("region", "US", 0)), paramSet(new SearchParameter("brand", "apple", 2)))));
+        verify(redissonClient, never()).getKeys();
+    }
+
+    @Test
+    void testGetByParametersDefersExpiredCleanup() {
+        // Arrange
+        CachedItem<String> liveItem = new CachedItem<>(TEST_KEY, TEST_ID, TEST_VALUE, testParameters, 300000L);
+        CachedItem<String> expiredItem = new CachedItem<>("stale", null, "old", testParameters, 1L);
+        try {
+            Thread.sleep(2);
+        } catch (InterruptedException e) {
+        }
+
+        when(redissonClient.getScript()).thenReturn(script);
+        when(script.<List<Object>>eval(eq(RScript.Mode.READ_ONLY), anyString(), eq(RScript.ReturnType.MULTI), anyList()))
+                .thenReturn(Arrays.asList(liveItem, expiredItem, null));
+
+        // Act
+        List<String> results = cacheService.get(testParameters, String.class);
+
+        // Assert - one pipelined cleanup batch, sent without blocking the read
+        assertEquals(Collections.singletonList(TEST_VALUE), results);
+        verify(redissonClient, times(1)).createBatch();
+        verify(batchScript).evalAsync(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.INTEGER),
+                eq(Arrays.asList("value:stale", "meta:stale")), any(Object[].class));
+        verify(batch).executeAsync();
+        verify(batch, never()).execute();
     }
 
     @Test
@@ -267,12 +452,12 @@ class HierarchicalCacheServiceUnitTest {
         // Mock batch operations for invalidation
         when(redissonClient.createBatch()).thenReturn(batch);
         when(batch.getBucket(anyString())).thenReturn(asyncObjectBucket);
-        when(batch.getSet(anyString())).thenReturn(asyncStringSet);
+        when(batch.getSet(anyString(), any(Codec.class))).thenReturn(asyncStringSet);
         when(asyncObjectBucket.deleteAsync()).thenReturn(booleanFuture);
         when(asyncStringSet.removeAsync(anyString())).thenReturn(booleanFuture);
 
         // Mock the getSet call for parameter cleanup - this is the key fix
-        Mockito.<RSet<String>>when(redissonClient.getSet(anyString())).thenReturn(stringSet);
+        Mockito.<RSet<String>>when(redissonClient.getSet(anyString(), any(Codec.class))).thenReturn(stringSet);
         when(stringSet.size()).thenReturn(0);
 
         // Act
@@ -302,9 +487,12 @@ class HierarchicalCacheServiceUnitTest {
         // Act
         cacheService.link(TEST_KEY, TEST_ID);
 
-        // Assert
-        verify(redissonClient).createBatch();
-        verify(batch).execute();
+        // Assert - the new item is written and the old one released in the same script call
+        List<Object> keys = verifyWriteScriptKeys("release");
+        assertEquals("value:" + TEST_KEY + ":" + TEST_ID, keys.get(0));
+        assertTrue(keys.contains("longkey:" + TEST_ID));
+        assertEquals(Arrays.asList("value:" + TEST_KEY, "meta:" + TEST_KEY), keys.subList(keys.size() - 2, keys.size()));
+        verify(redissonClient, never()).createBatch();
     }
 
     @Test
@@ -348,8 +536,10 @@ class HierarchicalCacheServiceUnitTest {
         cacheService.link(TEST_KEY, newParams);
 
         // Assert
-        verify(redissonClient).createBatch();
-        verify(batch).execute();
+        List<Object> keys = verifyWriteScriptKeys("SADD");
+        assertEquals("value:" + uniqueId, keys.get(0));
+        assertTrue(keys.contains(paramSet(new SearchParameter("color", "black", 4))));
+        assertTrue(keys.contains(paramSet(new SearchParameter("region", "US", 0))));
     }
 
     @Test
@@ -402,37 +592,64 @@ class HierarchicalCacheServiceUnitTest {
 
         // Assert
         assertEquals(computedValue, result);
-        verify(redissonClient).createBatch(); // Should cache the computed value
+        verifyWriteScriptKeys("SADD"); // Should cache the computed value
+        assertEquals(1, cacheService.getStatistics().getMisses()); // The re-check before computing is not counted
+    }
+
+    @Test
+    void testLocalCopyIsWithdrawnWhenInvalidatedDuringTheMiss() throws Exception {
+        // Arrange - the item is invalidated after this node read it but before the check after sharing it
+        String uniqueId = TEST_KEY + ":" + TEST_ID;
+        RLocalCachedMap<String, Object> localMap = enableLocalCachedStorage();
+        RBucket<byte[]> rawBucket = rawValueBucket(uniqueId);
+        when(rawBucket.getAsync()).thenReturn(new CompletableFutureWrapper<>((byte[]) null));
+
+        // Act
+        Optional<String> result = cacheService.get(TEST_KEY, TEST_ID, String.class);
+
+        // Assert - this caller still gets what it read, but the shared copy is removed again on every node
+        assertEquals(Optional.of(TEST_VALUE), result);
+        InOrder inOrder = inOrder(localMap, rawBucket);
+        inOrder.verify(rawBucket).get();
+        inOrder.verify(localMap).fastPutAsync(eq(uniqueId), any());
+        inOrder.verify(rawBucket).getAsync();
+        inOrder.verify(localMap).fastRemoveAsync(uniqueId);
+    }
+
+    @Test
+    void testLocalCopyIsKeptWhenUnchangedAfterTheMiss() throws Exception {
+        // Arrange
+        String uniqueId = TEST_KEY + ":" + TEST_ID;
+        RLocalCachedMap<String, Object> localMap = enableLocalCachedStorage();
+        RBucket<byte[]> rawBucket = rawValueBucket(uniqueId);
+        byte[] stored = rawBucket.get();
+        when(rawBucket.getAsync()).thenReturn(new CompletableFutureWrapper<>(stored.clone()));
+
+        // Act
+        Optional<String> result = cacheService.get(TEST_KEY, TEST_ID, String.class);
+
+        // Assert
+        assertEquals(Optional.of(TEST_VALUE), result);
+        verify(localMap).fastPutAsync(eq(uniqueId), any());
+        verify(localMap, never()).fastRemoveAsync(any());
     }
 
     @Test
     void testInvalidateByKey() {
         // Arrange
         String uniqueId = TEST_KEY;
-        CachedItem<String> cachedItem = new CachedItem<>(TEST_KEY, null, TEST_VALUE, testParameters, 0L);
 
         when(stringBucket.get()).thenReturn(uniqueId);
-        when(cachedItemBucket.get()).thenReturn(cachedItem);
         when(redissonClient.<String>getBucket("primary:" + TEST_KEY)).thenReturn(stringBucket);
         when(redissonClient.<CachedItem<String>>getBucket("value:" + uniqueId)).thenReturn(cachedItemBucket);
 
-        // Mock batch operations
-        when(redissonClient.createBatch()).thenReturn(batch);
-        when(batch.getBucket(anyString())).thenReturn(asyncObjectBucket);
-        when(batch.getSet(anyString())).thenReturn(asyncStringSet);
-        when(asyncObjectBucket.deleteAsync()).thenReturn(booleanFuture);
-        when(asyncStringSet.removeAsync(anyString())).thenReturn(booleanFuture);
-
-        // Mock the getSet call for parameter cleanup
-        Mockito.<RSet<String>>when(redissonClient.getSet(anyString())).thenReturn(stringSet);
-        when(stringSet.size()).thenReturn(0);
-
         // Act
         cacheService.invalidate(TEST_KEY);
 
-        // Assert
-        verify(redissonClient, times(1)).createBatch(); // Now expects exactly 1 call
-        verify(batch, times(1)).execute(); // Should execute the batch once
+        // Assert - a single script call removes the value and every reference recorded in meta:
+        assertEquals(Arrays.asList("value:" + uniqueId, "meta:" + uniqueId), verifyWriteScriptKeys("release"));
+        verify(cachedItemBucket, never()).get();
+        verify(redissonClient, never()).createBatch();
     }
 
     @Test
@@ -507,4 +724,24 @@ class HierarchicalCacheServiceUnitTest {
         // Assert
         verify(redissonClient).shutdown();
     }
-}
\ No newline at end of file
+
+    @SuppressWarnings("unchecked")
+    private RLocalCachedMap<String, Object> enableLocalCachedStorage() {
+        RLocalCachedMap<String, Object> localMap = mock(RLocalCachedMap.class);
+        doReturn(localMap).when(redissonClient).getLocalCachedMap(any(org.redisson.api.options.LocalCachedMapOptions.class));
+        when(localMap.fastPutAsync(anyString(), any())).thenReturn(new CompletableFutureWrapper<>(true));
+        cacheService.enableLocalCachedStorage(100, 60000L);
+        return localMap;
+    }
+
+    @SuppressWarnings("unchecked")
+    private RBucket<byte[]> rawValueBucket(String uniqueId) throws Exception {
+        ByteBuf encoded = new Kryo5Codec().getValueEncoder()
+                .encode(new CachedItem<>(TEST_KEY, TEST_ID, TEST_VALUE, Collections.emptyList(), 300000L));
+        RBucket<byte[]> rawBucket = mock(RBucket.class);
+        when(rawBucket.get()).thenReturn(ByteBufUtil.getBytes(encoded));
+        encoded.release();
+        doReturn(rawBucket).when(redissonClient).getBucket(eq("value:" + uniqueId), eq(ByteArrayCodec.INSTANCE));
+        return rawBucket;
+    }
+}
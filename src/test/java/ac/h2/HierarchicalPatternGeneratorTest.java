@@ -0,0 +1,68 @@
+package ac.h2;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalPatternGeneratorTest {
+
+    private HierarchicalPatternGenerator generator;
+    private List<SearchParameter> parameters;
+
+    @BeforeEach
+    void setUp() {
+        generator = new HierarchicalPatternGenerator(100);
+        parameters = Arrays.asList(
+                new SearchParameter("region", "US", 0),
+                new SearchParameter("category", "electronics", 1),
+                new SearchParameter("brand", "apple", 2)
+        );
+    }
+
+    @Test
+    void testMatchesPatternIds() {
+        assertArrayEquals(PatternIds.hierarchicalPatterns(parameters), generator.hierarchicalPatterns(parameters));
+    }
+
+    @Test
+    void testMemoizesPerCanonicalParameterList() {
+        // Arrange - same parameters, different order and instances
+        List<SearchParameter> reordered = Arrays.asList(
+                new SearchParameter("brand", "apple", 2),
+                new SearchParameter("region", "US", 0),
+                new SearchParameter("category", "electronics", 1)
+        );
+
+        // Act
+        long[] first = generator.hierarchicalPatterns(parameters);
+        long[] second = generator.hierarchicalPatterns(reordered);
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, generator.stats().missCount());
+        assertEquals(1, generator.stats().hitCount());
+    }
+
+    @Test
+    void testDistinctValuesAreNotShared() {
+        // Arrange
+        List<SearchParameter> other = Arrays.asList(
+                new SearchParameter("region", "EU", 0),
+                new SearchParameter("category", "electronics", 1),
+                new SearchParameter("brand", "apple", 2)
+        );
+
+        // Assert
+        assertFalse(Arrays.equals(generator.hierarchicalPatterns(parameters), generator.hierarchicalPatterns(other)));
+    }
+
+    @Test
+    void testEmptyParameters() {
+        assertEquals(0, generator.hierarchicalPatterns(List.of()).length);
+        assertEquals(0, generator.hierarchicalPatterns(null).length);
+    }
+}
@@ -0,0 +1,122 @@
+package ac.h2;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class InvalidationBusTest {
+
+    // Long enough that the scheduled flush never runs during a test; tests flush explicitly
+    private static final long BATCH_WINDOW_MILLIS = 60_000L;
+
+    private RTopic topic;
+    private InvalidationBus bus;
+
+    @BeforeEach
+    void setUp() {
+        RedissonClient redissonClient = mock(RedissonClient.class);
+        topic = mock(RTopic.class);
+        when(redissonClient.getTopic(anyString(), any(Codec.class))).thenReturn(topic);
+        bus = new InvalidationBus(redissonClient, InvalidationBus.DEFAULT_TOPIC, BATCH_WINDOW_MILLIS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bus.close();
+    }
+
+    @Test
+    void testInvalidationsWithinWindowAreCoalescedIntoOneMessage() {
+        // Act
+        bus.publish("report", null);
+        bus.publish("report", null);
+        bus.publish("schedule", 42L);
+        bus.publish(null, 7L);
+        bus.publish("report", null);
+        bus.flush();
+
+        // Assert
+        List<String> messages = publishedMessages();
+        assertEquals(1, messages.size());
+        assertEquals(List.of("kreport", "p42:schedule", "i7"), entries(messages.get(0)));
+    }
+
+    @Test
+    void testInvalidateAllSupersedesKeysInSameWindow() {
+        bus.publish("report", null);
+        bus.publishAll();
+        bus.publish("schedule", 42L);
+        bus.flush();
+
+        assertEquals(List.of("*"), entries(publishedMessages().get(0)));
+    }
+
+    @Test
+    void testMessagesFromOtherNodesAreAppliedAndOwnMessagesIgnored() {
+        // Arrange
+        bus.publish("report:v2", 42L);
+        bus.publish("schedule", null);
+        bus.publishAll();
+        bus.flush();
+        bus.publish("report:v2", 42L);
+        bus.publish("schedule", null);
+        bus.flush();
+        List<String> messages = publishedMessages();
+        RecordingListener otherNode = new RecordingListener();
+        RecordingListener sameNode = new RecordingListener();
+        RedissonClient otherClient = mock(RedissonClient.class);
+        when(otherClient.getTopic(anyString(), any(Codec.class))).thenReturn(mock(RTopic.class));
+        InvalidationBus otherBus = new InvalidationBus(otherClient);
+
+        // Act
+        for (String message : messages) {
+            otherBus.dispatch(message, otherNode);
+            bus.dispatch(message, sameNode);
+        }
+        otherBus.close();
+
+        // Assert - keys containing ':' survive the round trip
+        assertEquals(List.of("all", "report:v2#42", "schedule#null"), otherNode.events);
+        assertTrue(sameNode.events.isEmpty());
+    }
+
+    private List<String> publishedMessages() {
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(topic, atLeastOnce()).publish(captor.capture());
+        List<String> messages = new ArrayList<>();
+        captor.getAllValues().forEach(message -> messages.add((String) message));
+        return messages;
+    }
+
+    private static List<String> entries(String message) {
+        List<String> lines = Arrays.asList(message.split("\n"));
+        return lines.subList(1, lines.size());
+    }
+
+    private static class RecordingListener implements InvalidationBus.Listener {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void invalidated(String key, Long id) {
+            events.add(key + "#" + id);
+        }
+
+        @Override
+        public void invalidatedAll() {
+            events.add("all");
+        }
+    }
+}
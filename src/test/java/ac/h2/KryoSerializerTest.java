@@ -0,0 +1,70 @@
+package ac.h2;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KryoSerializerTest {
+
+    private final KryoSerializer serializer = new KryoSerializer(2);
+
+    @Test
+    void testRoundTrip() {
+        // Arrange
+        HashMap<String, Object> value = new HashMap<>();
+        value.put("id", 42L);
+        value.put("tags", new ArrayList<>(List.of("electronics", "apple")));
+
+        // Act
+        HashMap<?, ?> copy = serializer.deserialize(serializer.serialize(value), HashMap.class);
+
+        // Assert
+        assertEquals(value, copy);
+    }
+
+    @Test
+    void testDeserializeNull() {
+        assertNull(serializer.deserialize(null, String.class));
+    }
+
+    @Test
+    void testLargeValuesAreNotTruncated() {
+        // Arrange - larger than both the initial and the largest pooled buffer
+        String value = "x".repeat(KryoSerializer.MAX_POOLED_BUFFER_SIZE + 1);
+
+        // Act & Assert
+        assertEquals(value, serializer.deserialize(serializer.serialize(value), String.class));
+        assertEquals("small", serializer.deserialize(serializer.serialize("small"), String.class));
+    }
+
+    @Test
+    void testConcurrentUseSharesPooledInstances() throws Exception {
+        // Arrange - more threads than pooled instances
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<String>> results = new ArrayList<>();
+
+        // Act
+        try {
+            for (int i = 0; i < 200; i++) {
+                String value = "value-" + i;
+                results.add(executor.submit(() -> serializer.deserialize(serializer.serialize(value), String.class)));
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        // Assert
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals("value-" + i, results.get(i).get());
+        }
+    }
+}
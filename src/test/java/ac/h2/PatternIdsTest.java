@@ -0,0 +1,77 @@
+package ac.h2;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatternIdsTest {
+
+    private final SearchParameter region = new SearchParameter("region", "US", 0);
+    private final SearchParameter category = new SearchParameter("category", "electronics", 1);
+    private final SearchParameter brand = new SearchParameter("brand", "apple", 2);
+
+    @Test
+    void testHierarchicalPatternsCoverEveryContiguousRun() {
+        // Act
+        long[] patterns = PatternIds.hierarchicalPatterns(Arrays.asList(brand, region, category));
+
+        // Assert - three singles, two pairs, one triple
+        assertEquals(6, patterns.length);
+        assertEquals(6, Arrays.stream(patterns).distinct().count());
+        assertTrue(contains(patterns, PatternIds.exactPattern(List.of(region, category, brand))));
+        assertTrue(contains(patterns, PatternIds.exactPattern(List.of(category, brand))));
+        assertTrue(contains(patterns, PatternIds.singlePattern(brand)));
+        assertFalse(contains(patterns, PatternIds.exactPattern(List.of(region, brand))));
+    }
+
+    @Test
+    void testPatternIdsAreOrderIndependentAndValueBased() {
+        // Arrange
+        SearchParameter sameRegion = new SearchParameter("region", "US", 0);
+
+        // Assert
+        assertEquals(PatternIds.exactPattern(List.of(region, brand)), PatternIds.exactPattern(List.of(brand, region)));
+        assertEquals(PatternIds.singlePattern(region), PatternIds.singlePattern(sameRegion));
+        assertEquals(PatternIds.singlePattern(region), PatternIds.exactPattern(List.of(region)));
+        assertNotEquals(PatternIds.singlePattern(region), PatternIds.singlePattern(new SearchParameter("region", "US", 1)));
+        assertNotEquals(PatternIds.parameterId(0, "ab", "c"), PatternIds.parameterId(0, "a", "bc"));
+    }
+
+    @Test
+    void testRepeatedParametersAreDeduplicated() {
+        // Act
+        long[] patterns = PatternIds.hierarchicalPatterns(Arrays.asList(region, region));
+
+        // Assert
+        assertEquals(2, patterns.length);
+    }
+
+    @Test
+    void testUnionKeepsSortedDistinctIds() {
+        // Arrange
+        long[] first = PatternIds.hierarchicalPatterns(List.of(region, category));
+        long[] second = PatternIds.hierarchicalPatterns(List.of(category, brand));
+
+        // Act
+        long[] union = PatternIds.union(first, second);
+
+        // Assert - the shared single-category pattern appears once
+        assertEquals(5, union.length);
+        long[] sorted = union.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(sorted, union);
+    }
+
+    @Test
+    void testEmptyParameters() {
+        assertEquals(0, PatternIds.hierarchicalPatterns(List.of()).length);
+        assertEquals(0, PatternIds.hierarchicalPatterns(null).length);
+    }
+
+    private static boolean contains(long[] patterns, long pattern) {
+        return Arrays.stream(patterns).anyMatch(p -> p == pattern);
+    }
+}
@@ -0,0 +1,117 @@
+package ac.h2;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    void testConcurrentCallersShareOneComputation() throws Exception {
+        // Arrange
+        SingleFlight<String> flights = new SingleFlight<>();
+        AtomicInteger computations = new AtomicInteger();
+        AtomicInteger arrived = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        try {
+            // Act - the leader blocks until every other caller has joined its flight
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> {
+                    arrived.incrementAndGet();
+                    return flights.execute("report:42", () -> {
+                        computations.incrementAndGet();
+                        await(release);
+                        return "report";
+                    });
+                }));
+            }
+            waitUntil(() -> arrived.get() == THREADS && computations.get() == 1);
+            Thread.sleep(100);
+            release.countDown();
+
+            // Assert
+            for (Future<String> result : results) {
+                assertEquals("report", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, computations.get());
+            assertEquals(0, flights.inFlightCount());
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testFailureIsSharedAndNotRemembered() throws Exception {
+        // Arrange
+        SingleFlight<String> flights = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<Object> leader = executor.submit(() -> flights.execute("key", () -> {
+                await(release);
+                throw new IllegalStateException("backend down");
+            }));
+            waitUntil(() -> flights.inFlightCount() == 1);
+            Future<Object> follower = executor.submit(() -> flights.execute("key", () -> "unexpected"));
+            Thread.sleep(100);
+            release.countDown();
+
+            // Assert - both callers see the leader's exception
+            for (Future<Object> result : List.of(leader, follower)) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+            }
+
+            // A later call starts a fresh flight
+            assertEquals("recovered", flights.execute("key", () -> "recovered"));
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testFlightKeysMatchUniqueIds() {
+        assertEquals("report", SingleFlight.flightKey("report", null));
+        assertEquals("report:42", SingleFlight.flightKey("report", 42L));
+        assertEquals("#42", SingleFlight.flightKey(null, 42L));
+        assertEquals(
+                SingleFlight.flightKey(List.of(new SearchParameter("a", "1", 0), new SearchParameter("b", "2", 1))),
+                SingleFlight.flightKey(List.of(new SearchParameter("b", "2", 1), new SearchParameter("a", "1", 0))));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not reached");
+            Thread.sleep(5);
+        }
+    }
+}
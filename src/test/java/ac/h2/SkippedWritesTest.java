@@ -0,0 +1,108 @@
+package ac.h2;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SkippedWritesTest {
+
+    private SkippedWrites<String> skipped;
+    private final List<String> invalidated = new ArrayList<>();
+    private final AtomicInteger clears = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        skipped = new SkippedWrites<>(3);
+    }
+
+    @Test
+    void testRepairInvalidatesEachRecordedKeyOnce() {
+        // Arrange
+        skipped.record("a");
+        skipped.record("b");
+        skipped.record("a");
+
+        // Act
+        int repaired = skipped.repair(invalidated::add, clears::incrementAndGet);
+
+        // Assert
+        assertEquals(2, repaired);
+        assertEquals(List.of("a", "b"), invalidated.stream().sorted().toList());
+        assertEquals(0, clears.get());
+        assertTrue(skipped.isEmpty());
+        assertEquals(0, skipped.repair(invalidated::add, clears::incrementAndGet));
+    }
+
+    @Test
+    void testOverflowClearsTheWholeTierInstead() {
+        // Arrange - one key more than the capacity
+        for (String key : List.of("a", "b", "c", "d")) {
+            skipped.record(key);
+        }
+        assertFalse(skipped.isEmpty());
+
+        // Act
+        int repaired = skipped.repair(invalidated::add, clears::incrementAndGet);
+
+        // Assert
+        assertEquals(-1, repaired);
+        assertEquals(1, clears.get());
+        assertTrue(invalidated.isEmpty());
+        assertTrue(skipped.isEmpty());
+    }
+
+    @Test
+    void testFailedInvalidationKeepsTheKeyRecorded() {
+        // Arrange
+        skipped.record("a");
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> skipped.repair(key -> {
+            throw new IllegalStateException("Redis down");
+        }, clears::incrementAndGet));
+
+        // Assert - the next repair retries it
+        assertFalse(skipped.isEmpty());
+        assertEquals(1, skipped.repair(invalidated::add, clears::incrementAndGet));
+        assertEquals(List.of("a"), invalidated);
+    }
+
+    @Test
+    void testFailedClearKeepsTheOverflow() {
+        // Arrange
+        for (String key : List.of("a", "b", "c", "d")) {
+            skipped.record(key);
+        }
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> skipped.repair(invalidated::add, () -> {
+            throw new IllegalStateException("Redis down");
+        }));
+
+        // Assert
+        assertFalse(skipped.isEmpty());
+        assertEquals(-1, skipped.repair(invalidated::add, clears::incrementAndGet));
+        assertEquals(1, clears.get());
+    }
+
+    @Test
+    void testKeyRecordedAgainDuringItsInvalidationIsKept() {
+        // Arrange
+        skipped.record("a");
+
+        // Act - another write of the same key is skipped while the repair is invalidating it
+        skipped.repair(key -> {
+            invalidated.add(key);
+            skipped.record(key);
+        }, clears::incrementAndGet);
+
+        // Assert
+        assertFalse(skipped.isEmpty());
+        assertEquals(1, skipped.size());
+    }
+}
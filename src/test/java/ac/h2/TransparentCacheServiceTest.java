@@ -0,0 +1,163 @@
+package ac.h2;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("TransparentCacheService local tier")
+class TransparentCacheServiceTest {
+
+    private TransparentCacheService<String> cache;
+
+    @BeforeEach
+    void setUp() {
+        CacheConfiguration config = CacheConfiguration.builder()
+                .enableLocalCache(true)
+                .enableRemoteCache(false)
+                .enableDatabaseCache(false)
+                .maxLocalCacheSize(10_000L)
+                .localCacheTtl(600000L)
+                .build();
+        cache = new TransparentCacheService<>(String.class, null, null, config);
+    }
+
+    @Test
+    void testConcurrentPutsSharingParametersKeepEveryIndexEntry() throws Exception {
+        // Arrange - every writer uses a different key but the same parameter patterns
+        int threads = 16;
+        int perThread = 200;
+        List<SearchParameter> parameters = List.of(
+                new SearchParameter("region", "US", 0),
+                new SearchParameter("category", "electronics", 1));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // Act
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        String key = "item-" + thread + "-" + i;
+                        cache.put(key, parameters, key);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        // Assert - no update to the shared pattern sets was lost
+        List<String> results = cache.get(List.of(new SearchParameter("region", "US", 0)), String.class);
+        assertEquals(threads * perThread, new HashSet<>(results).size());
+        assertEquals(threads * perThread, cache.size());
+    }
+
+    @Test
+    void testRemoveDropsItemFromParameterIndex() {
+        // Arrange
+        List<SearchParameter> parameters = List.of(new SearchParameter("region", "EU", 0));
+        cache.put("a", parameters, "A");
+        cache.put("b", parameters, "B");
+
+        // Act
+        cache.invalidate("a");
+
+        // Assert
+        assertEquals(List.of("B"), cache.get(parameters, String.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRefreshAheadReloadsStaleLocalEntryInBackground() throws Exception {
+        // Arrange - Redis holds a newer value than the local copy
+        HierarchicalCacheService<String> redisCache = mock(HierarchicalCacheService.class);
+        when(redisCache.get("report", String.class)).thenReturn(Optional.of("v2"));
+        CacheConfiguration config = CacheConfiguration.builder()
+                .enableLocalCache(true)
+                .enableRemoteCache(true)
+                .enableDatabaseCache(false)
+                .fallbackStrategy(CacheConfiguration.FallbackStrategy.REDIS_ONLY)
+                .localCacheTtl(600000L)
+                .localRefreshAhead(50L, 1)
+                .build();
+        TransparentCacheService<String> refreshing = new TransparentCacheService<>(String.class, redisCache, null, config);
+        refreshing.put("report", List.of(), "v1");
+        Thread.sleep(100);
+
+        try {
+            // Act & Assert - the stale read is served locally and triggers the reload
+            assertEquals(Optional.of("v1"), refreshing.get("report", String.class));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!Optional.of("v2").equals(refreshing.get("report", String.class))) {
+                assertTrue(System.nanoTime() < deadline, "Local entry was not refreshed");
+                Thread.sleep(10);
+            }
+        } finally {
+            refreshing.shutdown();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testClusterSingleFlightReusesValueComputedByAnotherNode() throws Exception {
+        // Arrange - another node caches the value while this one waits for the cluster lock
+        HierarchicalCacheService<String> redisCache = mock(HierarchicalCacheService.class);
+        RedissonClient redissonClient = mock(RedissonClient.class);
+        RLock lock = mock(RLock.class);
+        when(redisCache.getRedissonClient()).thenReturn(redissonClient);
+        when(redissonClient.getLock(DistributedSingleFlight.LOCK_PREFIX + SingleFlight.flightKey("report", null)))
+                .thenReturn(lock);
+        when(lock.tryLock(100L, 5000L, TimeUnit.MILLISECONDS)).thenReturn(true);
+        when(redisCache.get("report", String.class)).thenReturn(Optional.empty(), Optional.of("from-other-node"));
+        CacheConfiguration config = CacheConfiguration.builder()
+                .enableLocalCache(true)
+                .enableRemoteCache(true)
+                .enableDatabaseCache(false)
+                .fallbackStrategy(CacheConfiguration.FallbackStrategy.REDIS_ONLY)
+                .clusterSingleFlight(100L, 5000L)
+                .build();
+        TransparentCacheService<String> clustered = new TransparentCacheService<>(String.class, redisCache, null, config);
+        Supplier<String> supplier = mock(Supplier.class);
+
+        try {
+            // Act
+            String result = clustered.getOrCompute("report", String.class, supplier);
+
+            // Assert - the re-check ran under the lock and found the other node's value
+            assertEquals("from-other-node", result);
+            verify(supplier, never()).get();
+            InOrder inOrder = inOrder(lock, redisCache);
+            inOrder.verify(lock).tryLock(100L, 5000L, TimeUnit.MILLISECONDS);
+            inOrder.verify(redisCache).get("report", String.class);
+            inOrder.verify(lock).unlock();
+        } finally {
+            clustered.shutdown();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ac.h2;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TransparentHCacheService local tier")
+class TransparentHCacheServiceTest {
+
+    private TransparentHCacheService<String> cache;
+
+    @BeforeEach
+    void setUp() {
+        CacheConfiguration config = CacheConfiguration.builder()
+                .enableLocalCache(true)
+                .enableRemoteCache(false)
+                .enableDatabaseCache(false)
+                .maxLocalCacheSize(10_000L)
+                .localCacheTtl(600000L)
+                .build();
+        cache = new TransparentHCacheService<>(null, null, config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    void testPutRacingInvalidateByIdLeavesEveryLookupConsistent() throws Exception {
+        // Arrange - each round starts a put(key, id) and an invalidate(id) of the same item at the same time
+        int rounds = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CyclicBarrier barrier = new CyclicBarrier(2);
+
+        try {
+            for (int i = 0; i < rounds; i++) {
+                String key = "item-" + i;
+                long id = i;
+                List<SearchParameter> parameters = List.of(new SearchParameter("item", key, 0));
+
+                // Act
+                Future<?> put = executor.submit(() -> {
+                    barrier.await();
+                    cache.put(key, id, parameters, key);
+                    return null;
+                });
+                Future<?> invalidate = executor.submit(() -> {
+                    barrier.await();
+                    cache.invalidate(id);
+                    return null;
+                });
+                put.get(10, TimeUnit.SECONDS);
+                invalidate.get(10, TimeUnit.SECONDS);
+
+                // Assert - whichever side won, the item is reachable by key, by ID and by parameters, or by none
+                boolean byKey = cache.get(key, id, String.class).isPresent();
+                boolean byId = cache.get(id, String.class).isPresent();
+                boolean byParameters = cache.get(parameters, String.class).contains(key);
+                assertEquals(byKey, byId, "Key and ID lookups disagree for " + key);
+                assertEquals(byKey, byParameters, "Key and parameter lookups disagree for " + key);
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+}
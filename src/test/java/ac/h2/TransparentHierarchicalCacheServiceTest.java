@@ -1,11 +1,16 @@
 package ac.h2;
 
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -354,4 +359,89 @@ class TransparentHierarchicalCacheServiceTest {
 
         verify(redisCacheMock).put("testKey", id, params, value, 60000L);
     }
-}
\ No newline at end of file
+
+    @Test
+    void put_WithWriteBehind_ShouldFlushCoalescedBatchOnShutdown() {
+        HierarchicalCacheService<Object> redisCacheMock = mock(HierarchicalCacheService.class);
+        DatabaseCacheProvider<Object> databaseCacheMock = mock(DatabaseCacheProvider.class);
+        CacheConfiguration config = CacheConfiguration.builder()
+                .maxLocalCacheSize(100)
+                .enableDatabaseCache(true)
+                .writeBehind(100, 100, 60_000L)
+                .build();
+
+        TransparentHierarchicalCacheService<Object> service =
+                new TransparentHierarchicalCacheService<>(redisCacheMock, databaseCacheMock, config);
+
+        List<SearchParameter> params = Collections.singletonList(new SearchParameter("param", "val", 1));
+        service.put("testKey", 456L, params, "v1");
+        service.put("testKey", 456L, params, "v2");
+        service.put("otherKey", params, "other");
+
+        // Puts only touch the local cache until the queue is flushed
+        assertEquals("v2", service.get("testKey", 456L, Object.class).orElse(null));
+        verify(redisCacheMock, never()).put(anyString(), anyLong(), anyList(), any(), anyLong());
+        verify(redisCacheMock, never()).putAll(anyCollection());
+
+        service.shutdown();
+
+        ArgumentCaptor<Collection<CachedItem<Object>>> redisBatch = ArgumentCaptor.forClass(Collection.class);
+        verify(redisCacheMock).putAll(redisBatch.capture());
+        assertEquals(Arrays.asList("v2", "other"),
+                redisBatch.getValue().stream().map(CachedItem::getValue).collect(Collectors.toList()));
+        verify(databaseCacheMock).putAll(redisBatch.getValue());
+
+        // The flushed values must survive the shutdown
+        verify(redisCacheMock, never()).invalidateAll();
+        verify(databaseCacheMock, never()).invalidateAll();
+    }
+
+    @Test
+    void put_WithWriteBehind_ShouldTellPeersOnlyOnceTheBatchIsFlushed() {
+        // Two nodes sharing one Redis, which holds v1 until the writer's queue is flushed
+        AtomicReference<Object> redisValue = new AtomicReference<>("v1");
+        HierarchicalCacheService<Object> writerRedis = mock(HierarchicalCacheService.class);
+        doAnswer(invocation -> {
+            Collection<CachedItem<Object>> batch = invocation.getArgument(0);
+            batch.forEach(item -> redisValue.set(item.getValue()));
+            return null;
+        }).when(writerRedis).putAll(anyCollection());
+        HierarchicalCacheService<Object> peerRedis = mock(HierarchicalCacheService.class);
+        when(peerRedis.get("testKey", 456L, Object.class)).thenAnswer(invocation -> Optional.ofNullable(redisValue.get()));
+        CacheConfiguration config = CacheConfiguration.builder()
+                .maxLocalCacheSize(100)
+                .writeBehind(100, 100, 60_000L)
+                .build();
+
+        TransparentHierarchicalCacheService<Object> writer =
+                new TransparentHierarchicalCacheService<>(writerRedis, mock(DatabaseCacheProvider.class), config);
+        TransparentHierarchicalCacheService<Object> peer =
+                new TransparentHierarchicalCacheService<>(peerRedis, mock(DatabaseCacheProvider.class), config);
+
+        // The writer's bus delivers straight to the peer's listener
+        InvalidationBus writerBus = mock(InvalidationBus.class);
+        InvalidationBus peerBus = mock(InvalidationBus.class);
+        writer.enableInvalidationBus(writerBus);
+        peer.enableInvalidationBus(peerBus);
+        ArgumentCaptor<InvalidationBus.Listener> peerListener = ArgumentCaptor.forClass(InvalidationBus.Listener.class);
+        verify(peerBus).subscribe(peerListener.capture());
+        doAnswer(invocation -> {
+            peerListener.getValue().invalidated(invocation.getArgument(0), invocation.getArgument(1));
+            return null;
+        }).when(writerBus).publish(any(), any());
+        doAnswer(invocation -> {
+            peerListener.getValue().invalidatedAll();
+            return null;
+        }).when(writerBus).publishAll();
+
+        assertEquals("v1", peer.get("testKey", 456L, Object.class).orElse(null));
+
+        // While v2 is queued the peer can only read v1
+        writer.put("testKey", 456L, Collections.singletonList(new SearchParameter("param", "val", 1)), "v2");
+        assertEquals("v1", peer.get("testKey", 456L, Object.class).orElse(null));
+
+        writer.shutdown();
+
+        assertEquals("v2", peer.get("testKey", 456L, Object.class).orElse(null));
+    }
+}
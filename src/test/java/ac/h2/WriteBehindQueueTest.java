@@ -0,0 +1,119 @@
+package ac.h2;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindQueueTest {
+
+    // Long enough that the background flush never runs during a test; tests flush explicitly
+    private static final long FLUSH_INTERVAL_MILLIS = 60_000L;
+
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private WriteBehindQueue<String> queue;
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    @Test
+    void testRepeatedWritesToAKeyAreCoalesced() {
+        // Arrange
+        queue = new WriteBehindQueue<>(100, 100, FLUSH_INTERVAL_MILLIS, batches::add);
+
+        // Act
+        queue.enqueue("report", "report-v1");
+        queue.enqueue("schedule", "schedule-v1");
+        queue.enqueue("report", "report-v2");
+        queue.flush();
+
+        // Assert - a replaced write keeps its place in the queue
+        assertEquals(List.of(List.of("report-v2", "schedule-v1")), batches);
+        assertEquals(0, queue.pendingCount());
+    }
+
+    @Test
+    void testWritesAreFlushedInBatchesOfAtMostMaxBatchSize() {
+        queue = new WriteBehindQueue<>(100, 2, FLUSH_INTERVAL_MILLIS, batches::add);
+
+        queue.enqueue("report", "report-v1");
+        queue.enqueue("schedule", "schedule-v1");
+        queue.enqueue("audit", "audit-v1");
+        queue.flush();
+
+        assertEquals(List.of(List.of("report-v1", "schedule-v1"), List.of("audit-v1")), batches);
+    }
+
+    @Test
+    void testFullQueueBlocksNewKeysUntilFlushed() throws Exception {
+        // Arrange
+        queue = new WriteBehindQueue<>(2, 100, FLUSH_INTERVAL_MILLIS, batches::add);
+        queue.enqueue("report", "report-v1");
+        queue.enqueue("schedule", "schedule-v1");
+
+        // Act
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> queue.enqueue("audit", "audit-v1"));
+        Thread.sleep(100);
+        // Pending keys can still be updated while the queue is full
+        queue.enqueue("report", "report-v2");
+
+        // Assert
+        assertFalse(blocked.isDone());
+        queue.flush();
+        blocked.get(5, TimeUnit.SECONDS);
+        queue.flush();
+        assertEquals(List.of(List.of("report-v2", "schedule-v1"), List.of("audit-v1")), batches);
+    }
+
+    @Test
+    void testDiscardedWritesAreNeverFlushed() {
+        queue = new WriteBehindQueue<>(100, 100, FLUSH_INTERVAL_MILLIS, batches::add);
+        queue.enqueue("report", "report-v1");
+        queue.enqueue("schedule", "schedule-v1");
+
+        queue.discard(value -> value.startsWith("report"));
+        queue.flush();
+
+        assertEquals(List.of(List.of("schedule-v1")), batches);
+    }
+
+    @Test
+    void testCloseFlushesPendingWritesAndLaterWritesGoInline() {
+        // Arrange
+        queue = new WriteBehindQueue<>(100, 100, FLUSH_INTERVAL_MILLIS, batches::add);
+        queue.enqueue("report", "report-v1");
+
+        // Act
+        queue.close();
+        queue.enqueue("schedule", "schedule-v1");
+
+        // Assert
+        assertEquals(List.of(List.of("report-v1"), List.of("schedule-v1")), batches);
+    }
+
+    @Test
+    void testBackgroundFlushAfterInterval() throws Exception {
+        // Arrange
+        queue = new WriteBehindQueue<>(100, 100, 20L, batches::add);
+
+        // Act
+        queue.enqueue("report", "report-v1");
+
+        // Assert
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (batches.isEmpty()) {
+            assertTrue(System.nanoTime() < deadline, "Queue was not flushed");
+            Thread.sleep(5);
+        }
+        assertEquals(List.of(List.of("report-v1")), batches);
+    }
+}
@@ -0,0 +1,85 @@
+package ac.h2.benchmark;
+
+import ac.h2.HierarchicalPatternGenerator;
+import ac.h2.PatternIds;
+import ac.h2.SearchParameter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Pattern generation cost for 4, 8 and 16 level parameter lists: the former per-service string implementation,
+ * uncached pattern ids, and the memoized shared generator. Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=ac.h2.benchmark.HierarchicalPatternGeneratorBenchmark}
+ * or from the IDE.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HierarchicalPatternGeneratorBenchmark {
+
+    @Param({"4", "8", "16"})
+    private int levels;
+
+    private List<SearchParameter> parameters;
+    private HierarchicalPatternGenerator generator;
+
+    @Setup
+    public void setUp() {
+        parameters = new ArrayList<>(levels);
+        // Reverse level order so every implementation pays for sorting
+        for (int level = levels - 1; level >= 0; level--) {
+            parameters.add(new SearchParameter("attribute" + level, "value-" + level, level));
+        }
+        generator = new HierarchicalPatternGenerator(HierarchicalPatternGenerator.DEFAULT_MAXIMUM_SIZE);
+        generator.hierarchicalPatterns(parameters);
+    }
+
+    @Benchmark
+    public Set<String> stringPatterns() {
+        List<SearchParameter> sortedParams = parameters.stream()
+                .sorted(Comparator.comparingInt(SearchParameter::getLevel))
+                .collect(Collectors.toList());
+
+        Set<String> patterns = new HashSet<>();
+        for (int i = 0; i < sortedParams.size(); i++) {
+            for (int j = i; j < sortedParams.size(); j++) {
+                List<SearchParameter> subList = sortedParams.subList(i, j + 1);
+                String pattern = subList.stream()
+                        .map(SearchParameter::toKey)
+                        .collect(Collectors.joining(">"));
+                patterns.add(pattern);
+            }
+        }
+        for (SearchParameter param : sortedParams) {
+            patterns.add(param.toKey());
+        }
+        return patterns;
+    }
+
+    @Benchmark
+    public long[] patternIds() {
+        return PatternIds.hierarchicalPatterns(parameters);
+    }
+
+    @Benchmark
+    public long[] memoizedPatternIds() {
+        return generator.hierarchicalPatterns(parameters);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(HierarchicalPatternGeneratorBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,107 @@
+package ac.h2.benchmark;
+
+import ac.h2.CachedItem;
+import ac.h2.KryoSerializer;
+import ac.h2.SearchParameter;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round-trip cost of the former per-call stream wrapping with a {@code ThreadLocal<Kryo>} against the pooled
+ * {@link KryoSerializer}. Run {@link #main} to get {@code gc.alloc.rate.norm} (bytes per operation) from the GC
+ * profiler next to the timings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class KryoSerializerBenchmark {
+
+    @Param({"64", "4096"})
+    private int payloadSize;
+
+    private HashMap<String, Object> value;
+    private byte[] serialized;
+    private KryoSerializer serializer;
+    private ThreadLocal<Kryo> kryoThreadLocal;
+
+    @Setup
+    public void setUp() {
+        // A typical report row: a few scalar columns and one text payload
+        value = new HashMap<>();
+        value.put("id", 42L);
+        value.put("region", "US");
+        value.put("tags", new ArrayList<>(List.of("electronics", "apple")));
+        value.put("body", "x".repeat(payloadSize));
+
+        serializer = new KryoSerializer();
+        serialized = serializer.serialize(value);
+        kryoThreadLocal = ThreadLocal.withInitial(() -> {
+            Kryo kryo = new Kryo();
+            kryo.setReferences(true);
+            kryo.setRegistrationRequired(false);
+            kryo.register(String.class);
+            kryo.register(ArrayList.class);
+            kryo.register(HashMap.class);
+            kryo.register(SearchParameter.class);
+            kryo.register(CachedItem.class);
+            return kryo;
+        });
+    }
+
+    @Benchmark
+    public Object threadLocalStreams() throws IOException {
+        byte[] data;
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
+             Output output = new Output(baos)) {
+            kryoThreadLocal.get().writeObject(output, value);
+            output.flush();
+            data = baos.toByteArray();
+        }
+        try (ByteArrayInputStream bais = new ByteArrayInputStream(data);
+             Input input = new Input(bais)) {
+            return kryoThreadLocal.get().readObject(input, HashMap.class);
+        }
+    }
+
+    @Benchmark
+    public Object pooled() {
+        return serializer.deserialize(serializer.serialize(value), HashMap.class);
+    }
+
+    @Benchmark
+    public byte[] pooledSerializeOnly() {
+        return serializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object pooledDeserializeOnly() {
+        return serializer.deserialize(serialized, HashMap.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(KryoSerializerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,93 @@
+package ac.h2.benchmark;
+
+import ac.h2.CacheConfiguration;
+import ac.h2.SearchParameter;
+import ac.h2.TransparentHCacheService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local-tier read throughput of {@link TransparentHCacheService} with 10 threads: all readers, and 9 readers
+ * next to 1 writer (a 10% write mix). With per-key write stripes the {@code mixed:read} score should stay close
+ * to {@code readOnly}; a global write lock drops it by the share of time the writer holds the lock. Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=ac.h2.benchmark.TransparentHCacheServiceBenchmark}
+ * or from the IDE.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransparentHCacheServiceBenchmark {
+    private static final int KEYS = 10_000;
+
+    private TransparentHCacheService<String> cache;
+    private String[] keys;
+    private List<SearchParameter>[] parameters;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        CacheConfiguration config = CacheConfiguration.builder()
+                .enableLocalCache(true)
+                .enableRemoteCache(false)
+                .enableDatabaseCache(false)
+                .maxLocalCacheSize(KEYS * 2L)
+                .localCacheTtl(TimeUnit.HOURS.toMillis(1))
+                .remoteCacheTtl(TimeUnit.HOURS.toMillis(1))
+                .build();
+        cache = new TransparentHCacheService<>(null, null, config);
+
+        keys = new String[KEYS];
+        parameters = new List[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "report:" + i;
+            parameters[i] = List.of(
+                    new SearchParameter("region", "region-" + (i % 8), 0),
+                    new SearchParameter("group", "group-" + (i % 128), 1));
+            cache.put(keys[i], parameters[i], keys[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        cache.shutdown();
+    }
+
+    @Benchmark
+    @Threads(10)
+    public Optional<String> readOnly() {
+        return cache.get(keys[ThreadLocalRandom.current().nextInt(KEYS)], String.class);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(9)
+    public Optional<String> read() {
+        return cache.get(keys[ThreadLocalRandom.current().nextInt(KEYS)], String.class);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void write() {
+        int i = ThreadLocalRandom.current().nextInt(KEYS);
+        cache.put(keys[i], parameters[i], keys[i]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TransparentHCacheServiceBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,74 @@
+package ac.h2.codec;
+
+import ac.h2.CachedItem;
+import ac.h2.SearchParameter;
+import com.example.cache.example.model.Report;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheCodecTest {
+
+    private static final List<SearchParameter> PARAMETERS = Arrays.asList(
+            new SearchParameter("region", "US", 0),
+            new SearchParameter("category", "electronics", 1)
+    );
+
+    static Stream<CacheCodec> codecs() {
+        return Stream.of(
+                new KryoCacheCodec(),
+                JacksonCacheCodec.smile("com.example."),
+                JacksonCacheCodec.cbor("com.example."),
+                new RawByteBufferCacheCodec()
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void testCachedItemRoundTrip(CacheCodec codec) {
+        // Arrange
+        Report report = new Report("Quarterly summary", "content", 1L, 2L, 3L);
+        report.setId(42L);
+        CachedItem<Report> item = new CachedItem<>("report:42", 42L, report, PARAMETERS, 300000L,
+                System.currentTimeMillis(), 1250L);
+
+        // Act
+        CachedItem<?> copy = codec.decode(codec.encode(item), Object.class) instanceof CachedItem<?> decoded ? decoded : null;
+
+        // Assert - the envelope survives unchanged, including its creation time
+        assertNotNull(copy, codec.name());
+        assertEquals(item.getStringKey(), copy.getStringKey());
+        assertEquals(item.getLongKey(), copy.getLongKey());
+        assertEquals(item.getTtl(), copy.getTtl());
+        assertEquals(item.getCreatedAt(), copy.getCreatedAt());
+        assertEquals(item.getComputeMillis(), copy.getComputeMillis());
+        assertEquals(item.getParameters(), copy.getParameters());
+        assertEquals(report, copy.getValue());
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void testStringPointerRoundTrip(CacheCodec codec) {
+        assertEquals("report:42", codec.decode(codec.encode("report:42"), Object.class));
+        assertEquals("report:42", codec.decode(codec.encode("report:42"), String.class));
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void testItemWithoutLongKey(CacheCodec codec) {
+        // Arrange
+        CachedItem<String> item = new CachedItem<>("plain", null, "value", PARAMETERS, 0L);
+
+        // Act
+        CachedItem<?> copy = codec.decode(codec.encode(item), CachedItem.class);
+
+        // Assert
+        assertNull(copy.getLongKey());
+        assertEquals("value", copy.getValue());
+    }
+}
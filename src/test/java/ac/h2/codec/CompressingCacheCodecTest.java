@@ -0,0 +1,65 @@
+package ac.h2.codec;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressingCacheCodecTest {
+
+    @ParameterizedTest
+    @EnumSource(CompressingCacheCodec.Algorithm.class)
+    void testLargeValueIsCompressedAndRoundTrips(CompressingCacheCodec.Algorithm algorithm) {
+        // Arrange
+        CompressingCacheCodec codec = new CompressingCacheCodec(new KryoCacheCodec(), algorithm, 512);
+        String content = "quarterly capacity report line\n".repeat(200);
+
+        // Act
+        byte[] encoded = codec.encode(content);
+
+        // Assert
+        assertNotEquals(CompressingCacheCodec.UNCOMPRESSED, encoded[0]);
+        assertTrue(encoded.length < content.length() / 4);
+        assertEquals(content, codec.decode(encoded, String.class));
+
+        CompressionStatistics statistics = codec.getStatistics();
+        assertEquals(1, statistics.getCompressedCount());
+        assertEquals(1, statistics.getDecompressedCount());
+        assertTrue(statistics.getCompressionRatio() > 4.0);
+    }
+
+    @ParameterizedTest
+    @EnumSource(CompressingCacheCodec.Algorithm.class)
+    void testValueBelowThresholdIsStoredAsIs(CompressingCacheCodec.Algorithm algorithm) {
+        // Arrange
+        CompressingCacheCodec codec = new CompressingCacheCodec(new KryoCacheCodec(), algorithm, 512);
+
+        // Act
+        byte[] encoded = codec.encode("report:42");
+
+        // Assert
+        assertEquals(CompressingCacheCodec.UNCOMPRESSED, encoded[0]);
+        assertEquals("report:42", codec.decode(encoded, Object.class));
+        assertEquals(1, codec.getStatistics().getSkippedCount());
+        assertEquals(0, codec.getStatistics().getCompressedCount());
+    }
+
+    @ParameterizedTest
+    @EnumSource(CompressingCacheCodec.Algorithm.class)
+    void testIncompressibleValueIsStoredAsIs(CompressingCacheCodec.Algorithm algorithm) {
+        // Arrange
+        CompressingCacheCodec codec = new CompressingCacheCodec(new KryoCacheCodec(), algorithm, 64);
+        byte[] noise = new byte[4096];
+        new Random(7).nextBytes(noise);
+
+        // Act
+        byte[] encoded = codec.encode(noise);
+
+        // Assert
+        assertEquals(CompressingCacheCodec.UNCOMPRESSED, encoded[0]);
+        assertArrayEquals(noise, codec.decode(encoded, byte[].class));
+        assertEquals(1, codec.getStatistics().getSkippedCount());
+    }
+}
@@ -0,0 +1,114 @@
+package com.example;
+
+import ac.h2.CachedItem;
+import ac.h2.SearchParameter;
+import ac.h2.codec.CacheCodec;
+import ac.h2.codec.CompressingCacheCodec;
+import ac.h2.codec.JacksonCacheCodec;
+import ac.h2.codec.KryoCacheCodec;
+import ac.h2.codec.RawByteBufferCacheCodec;
+import com.example.cache.example.model.Report;
+import com.h2.spring.cache.model.User;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Codec matrix for {@link CacheCodec}: encode and decode ns/op for every built-in codec on the two payloads the
+ * services actually cache, {@code CachedItem<Report>} and {@code CachedItem<User>}. {@link #main} first prints
+ * the encoded size of each combination, then runs the benchmarks with the GC profiler, whose
+ * {@code gc.alloc.rate.norm} gives allocated bytes/op.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TestSerialisationPerf {
+    private static final String[] TRUSTED_PACKAGES = {"com.example.", "com.h2."};
+
+    @Param({KryoCacheCodec.NAME, "smile", "cbor", RawByteBufferCacheCodec.NAME, "kryo+lz4"})
+    private String codecName;
+
+    @Param({"report", "user"})
+    private String payload;
+
+    private CacheCodec codec;
+    private CachedItem<?> item;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        codec = codec(codecName);
+        item = item(payload);
+        encoded = codec.encode(item);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(item);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return codec.decode(encoded, CachedItem.class);
+    }
+
+    static CacheCodec codec(String name) {
+        switch (name) {
+            case KryoCacheCodec.NAME:
+                return new KryoCacheCodec();
+            case "smile":
+                return JacksonCacheCodec.smile(TRUSTED_PACKAGES);
+            case "cbor":
+                return JacksonCacheCodec.cbor(TRUSTED_PACKAGES);
+            case RawByteBufferCacheCodec.NAME:
+                return new RawByteBufferCacheCodec();
+            case "kryo+lz4":
+                return new CompressingCacheCodec(new KryoCacheCodec());
+            default:
+                throw new IllegalArgumentException("Unknown codec: " + name);
+        }
+    }
+
+    static CachedItem<?> item(String payload) {
+        List<SearchParameter> parameters = List.of(
+                new SearchParameter("region", "US", 0),
+                new SearchParameter("resourceGroup", "17", 1),
+                new SearchParameter("schedule", "daily", 2));
+
+        if ("report".equals(payload)) {
+            Report report = new Report("Daily capacity summary", "x".repeat(2048), 17L, 42L, 7L);
+            report.setId(1001L);
+            report.setGeneratedAt(LocalDateTime.of(2024, 1, 15, 6, 30));
+            report.setStatus(Report.ReportStatus.COMPLETED);
+            return new CachedItem<>("report:1001", 1001L, report, parameters, 3600000L);
+        }
+
+        User user = new User(2002L, "jdoe", "jdoe@example.com", "Jane", "Doe", "Engineering", "ADMIN");
+        return new CachedItem<>("user:2002", 2002L, user, parameters, 3600000L);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        System.out.println("Encoded size (bytes)");
+        for (String payload : new String[]{"report", "user"}) {
+            for (String name : new String[]{KryoCacheCodec.NAME, "smile", "cbor", RawByteBufferCacheCodec.NAME, "kryo+lz4"}) {
+                System.out.printf("%-8s %-6s %,d%n", payload, name, codec(name).encode(item(payload)).length);
+            }
+        }
+
+        Options options = new OptionsBuilder()
+                .include(TestSerialisationPerf.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}